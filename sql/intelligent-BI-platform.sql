@@ -33,14 +33,27 @@ create table if not exists chart
     id           bigint auto_increment comment 'id' primary key,
     goal				 text  null comment '分析目标',
     `name`               varchar(128) null comment '图表名称',
-    chart_data    text  null comment '图表数据',
+    chart_data    mediumblob  null comment '图表数据（压缩存储，见 CompressedTextTypeHandler）',
     chart_type	   varchar(128) null comment '图表类型',
     gen_chart		 text	 null comment '生成的图表数据',
     gen_result		 text	 null comment '生成的分析结论',
     status       varchar(128) not null default 'wait' comment 'wait,running,succeed,failed',
     exec_message  text   null comment '执行信息',
+    reduce_ratio  decimal(8, 4) null comment '发送给 AI 的数据压缩比例（压缩后 / 原始）',
+    reduce_time   bigint null comment '数据压缩耗时（毫秒）',
     user_id       bigint null comment '创建用户 id',
     create_time   datetime     default CURRENT_TIMESTAMP not null comment '创建时间',
     update_time   datetime     default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
-    is_delete     tinyint      default 0                 not null comment '是否删除'
+    is_delete     tinyint      default 0                 not null comment '是否删除',
+    index idx_status_update_time (status, update_time),
+    index idx_user_id (user_id)
 ) comment '图表信息表' collate = utf8mb4_unicode_ci;
+
+-- 已有的库执行：记录发送给 AI 的数据压缩比例、压缩耗时
+-- alter table chart add column reduce_ratio decimal(8, 4) null comment '发送给 AI 的数据压缩比例（压缩后 / 原始）' after exec_message;
+-- alter table chart add column reduce_time bigint null comment '数据压缩耗时（毫秒）' after reduce_ratio;
+-- 已有的库执行：按状态查询卡住的图表、按用户分页查询图表
+-- alter table chart add index idx_status_update_time (status, update_time);
+-- alter table chart add index idx_user_id (user_id);
+-- 已有的库执行：图表数据改为压缩存储（旧数据无需转换，读取时按文本处理，再次保存时压缩）
+-- alter table chart modify chart_data mediumblob null comment '图表数据（压缩存储，见 CompressedTextTypeHandler）';
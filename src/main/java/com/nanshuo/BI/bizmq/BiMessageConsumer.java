@@ -2,19 +2,32 @@ package com.nanshuo.BI.bizmq;
 
 import com.nanshuo.BI.common.CommonConstant;
 import com.nanshuo.BI.common.ErrorCode;
+import com.nanshuo.BI.config.BiMqConfig;
 import com.nanshuo.BI.exception.BusinessException;
-import com.nanshuo.BI.manager.AiManager;
+import com.nanshuo.BI.manager.AiBatchManager;
+import com.nanshuo.BI.manager.ChartEventManager;
+import com.nanshuo.BI.manager.ChartIdempotencyManager;
+import com.nanshuo.BI.manager.CosManager;
+import com.nanshuo.BI.manager.LocalChartManager;
+import com.nanshuo.BI.manager.ai.GenResultParser;
 import com.nanshuo.BI.model.domain.Chart;
+import com.nanshuo.BI.model.enums.chart.ChartStatusEnums;
+import com.nanshuo.BI.model.vo.ChartEventVO;
 import com.nanshuo.BI.service.ChartService;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
-import org.springframework.amqp.support.AmqpHeaders;
-import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 import com.rabbitmq.client.Channel;
 import javax.annotation.Resource;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 @Component
 @Slf4j
@@ -24,93 +37,389 @@ public class BiMessageConsumer {
     private ChartService chartService;
 
     @Resource
-    private AiManager aiManager;
+    private ChartEventManager chartEventManager;
+
+    @Resource
+    private Executor chartJobExecutor;
+
+    @Resource
+    private BiQueueScaler biQueueScaler;
+
+    @Resource
+    private BiMessageProducer biMessageProducer;
+
+    @Resource
+    private BiMqConfig biMqConfig;
+
+    @Resource
+    private CosManager cosManager;
+
+    @Resource
+    private AiBatchManager aiBatchManager;
+
+    @Resource
+    private LocalChartManager localChartManager;
+
+    @Resource
+    private ChartIdempotencyManager chartIdempotencyManager;
 
     // 指定程序监听的消息队列和确认机制
     @SneakyThrows
-    @RabbitListener(queues = {BiMqConstant.BI_QUEUE_NAME}, ackMode = "MANUAL")
-    public void receiveMessage(String message, Channel channel, @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) {
-        log.info("receiveMessage message = {}", message);
-        if (StringUtils.isBlank(message)) {
-            // 如果失败，消息拒绝
+    @RabbitListener(id = BiQueueScaler.LISTENER_ID, queues = {BiMqConstant.BI_QUEUE_NAME}, ackMode = "MANUAL",
+            containerFactory = "biListenerContainerFactory")
+    public void receiveMessage(Message message, Channel channel) {
+        long deliveryTag = message.getMessageProperties().getDeliveryTag();
+        Object retryCountHeader = message.getMessageProperties().getHeader(BiMqConstant.RETRY_COUNT_HEADER);
+        int retryCount = retryCountHeader instanceof Number ? ((Number) retryCountHeader).intValue() : 0;
+        byte[] body = message.getBody();
+        if (body == null || body.length == 0) {
+            // 如果失败，消息拒绝（进入死信队列）
             channel.basicNack(deliveryTag, false, false);
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "消息为空");
         }
-        long chartId = Long.parseLong(message);
-        Chart chart = chartService.getById(chartId);
-        if (chart == null) {
-            channel.basicNack(deliveryTag, false, false);
-            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "图表为空");
-        }
-        // 先修改图表任务状态为 “执行中”。等执行成功后，修改为 “已完成”、保存执行结果；执行失败后，状态修改为 “失败”，记录任务失败信息。
-        Chart updateChart = new Chart();
-        updateChart.setId(chart.getId());
-        updateChart.setStatus("running");
-        boolean b = chartService.updateById(updateChart);
-        if (!b) {
+        ChartJobMessage jobMessage;
+        try {
+            jobMessage = ChartJobMessage.fromBytes(body);
+        } catch (BusinessException e) {
             channel.basicNack(deliveryTag, false, false);
-            handleChartUpdateError(chart.getId(), "更新图表执行中状态失败");
+            throw e;
+        }
+        log.info("receiveMessage chartId = {}, dataType = {}, retryCount = {}", jobMessage.getChartId(),
+                jobMessage.getDataType(), retryCount);
+        ChartJob job = new ChartJob(jobMessage, body, retryCount, message.getMessageProperties().getPriority(),
+                channel, deliveryTag);
+        biQueueScaler.recordReceived();
+        // 在图表任务执行器（线程池或虚拟线程）中处理，已满时在监听线程中处理，以此对消息队列形成背压
+        executeOrRun(() -> processChart(job));
+    }
+
+    /**
+     * 处理图表生成任务
+     *
+     * @param job 任务
+     */
+    private void processChart(ChartJob job) {
+        boolean started = false;
+        try {
+            started = startChart(job);
+        } catch (Exception e) {
+            // 读取图表、更新状态、构造输入等任一步骤异常都要结束这次投递，否则消息一直未确认
+            log.error("处理图表任务失败，chartId = {}", job.chartId, e);
+            failJob(job, "处理图表任务失败");
+        } finally {
+            if (!started) {
+                finishJob(job);
+            }
+        }
+    }
+
+    /**
+     * 开始处理图表生成任务
+     *
+     * @param job 任务
+     * @return 是否已开始生成（结果由回调处理，回调结束后再释放令牌）
+     * @throws IOException 确认消息失败
+     */
+    private boolean startChart(ChartJob job) throws IOException {
+        Chart chart = loadChart(job.message);
+        if (chart == null) {
+            // 无法处理，不重试
+            job.nack();
+            log.error("图表为空，chartId = {}", job.chartId);
+            biMessageProducer.releaseUserJob(job.message.getUserId());
+            return false;
+        }
+        // 同一图表同时只有一个持有者调用 AI，令牌被占用说明消息被重复投递、其他消费者正在处理
+        String token = chartIdempotencyManager.tryAcquireProcessing(chart.getId());
+        if (token == null) {
+            deferDuplicate(job);
+            return false;
+        }
+        job.token = token;
+        // 先修改图表任务状态为 “执行中”（条件更新 wait -> running）。等执行成功后，修改为 “已完成”、保存执行结果；执行失败后，状态修改为 “失败”，记录任务失败信息。
+        if (chartService.compareAndSetStatus(chart.getId(), ChartStatusEnums.WAIT, ChartStatusEnums.RUNNING)) {
+            chartEventManager.publish(ChartEventVO.of(chart.getId(), ChartStatusEnums.RUNNING.getValue()));
+        } else {
+            Chart currentChart = chartService.getById(chart.getId());
+            if (currentChart == null || !ChartStatusEnums.RUNNING.getValue().equals(currentChart.getStatus())) {
+                // 已完成、已失败或已删除：重复投递，直接确认，不再调用 AI
+                log.info("图表已处理，忽略重复消息，chartId = {}, status = {}", chart.getId(),
+                        currentChart == null ? null : currentChart.getStatus());
+                job.ack();
+                biMessageProducer.releaseUserJob(job.message.getUserId());
+                return false;
+            }
+            // 执行中但令牌已过期：上一个持有者异常退出（如调用 AI 后、确认消息前宕机），接管处理，
+            // 相同内容的 AI 结果已缓存时不会再次调用模型
+            log.warn("接管执行中的图表任务，chartId = {}", chart.getId());
+        }
+        // 调用 AI（数据过大时只压缩发给 AI 的副本），等待结果期间不占用监听线程，图表配置生成后先入库，全部生成后再确认消息；
+        // 简单图表先本地生成图表配置，AI 只生成分析结论；需要 AI 生成图表配置的小数据集开启合批时与其他任务合并调用
+        String userInput = chartService.buildUserInput(chart);
+        String localChart = localChartManager.generate(chart);
+        CompletableFuture<GenResultParser> genResult = localChart == null && aiBatchManager.isEligible(chart)
+                ? aiBatchManager.submit(CommonConstant.BI_MODEL_ID, userInput)
+                : chartService.genChart(chart, CommonConstant.BI_MODEL_ID, userInput, localChart);
+        genResult.whenCompleteAsync((parser, throwable) -> {
+            try {
+                handleResult(chart, parser, throwable, job);
+            } catch (Exception e) {
+                log.error("处理图表生成结果失败，chartId = {}", chart.getId(), e);
+                failJob(job, "处理生成结果失败");
+            } finally {
+                finishJob(job);
+            }
+        }, this::executeOrRun);
+        return true;
+    }
+
+    /**
+     * 处理过程中出现异常：消息还未确认时重试或进入死信队列
+     *
+     * @param job    任务
+     * @param reason 失败原因
+     */
+    private void failJob(ChartJob job, String reason) {
+        if (job.settled) {
             return;
         }
-        // 调用 AI
-        String result = aiManager.doChat(CommonConstant.BI_MODEL_ID, buildUserInput(chart));
-        String[] splits = result.split("【【【【【");
-        if (splits.length < 3) {
-            channel.basicNack(deliveryTag, false, false);
-            handleChartUpdateError(chart.getId(), "AI 生成错误");
+        try {
+            retryOrDeadLetter(job, reason);
+        } catch (Exception e) {
+            // 通道异常时消息由 broker 重新投递
+            log.error("图表任务失败处理异常，chartId = {}", job.chartId, e);
+        }
+    }
+
+    /**
+     * 一次投递处理结束：释放处理令牌，记录已消费
+     *
+     * @param job 任务
+     */
+    private void finishJob(ChartJob job) {
+        if (job.token != null) {
+            chartIdempotencyManager.releaseProcessing(job.chartId, job.token);
+        }
+        biQueueScaler.recordConsumed();
+    }
+
+    /**
+     * 从消息中还原图表，消息不携带数据或数据读取 / 校验失败时从数据库读取
+     *
+     * @param message 消息
+     * @return 图表，不存在时返回 null
+     */
+    private Chart loadChart(ChartJobMessage message) {
+        if (message.getDataType() != ChartJobMessage.DATA_NONE) {
+            try {
+                byte[] compressed = message.getDataType() == ChartJobMessage.DATA_INLINE
+                        ? message.getCompressedData() : cosManager.getObjectBytes(message.getBlobKey());
+                Chart chart = new Chart();
+                chart.setId(message.getChartId());
+                chart.setUserId(message.getUserId());
+                chart.setGoal(message.getGoal());
+                chart.setChartType(message.getChartType());
+                chart.setChartData(message.decodeData(compressed));
+                return chart;
+            } catch (Exception e) {
+                log.warn("从消息还原图表数据失败，改为从数据库读取，chartId = {}", message.getChartId(), e);
+            }
+        }
+        return chartService.getById(message.getChartId());
+    }
+
+    /**
+     * 在图表任务执行器中执行，已满时在当前线程执行
+     *
+     * @param task 任务
+     */
+    private void executeOrRun(Runnable task) {
+        try {
+            chartJobExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    /**
+     * 处理 AI 生成结果并确认消息
+     *
+     * @param chart     图表
+     * @param parser    AI 生成结果
+     * @param throwable 调用异常
+     * @param job       任务
+     */
+    private void handleResult(Chart chart, GenResultParser parser, Throwable throwable, ChartJob job)
+            throws IOException {
+        if (throwable != null) {
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause() : throwable;
+            log.error("图表生成失败，chartId = {}", chart.getId(), cause);
+            // 熔断、排队已满、超时等业务异常记录原因
+            retryOrDeadLetter(job, cause instanceof BusinessException ? cause.getMessage() : "AI 调用失败");
+            return;
+        }
+        if (!parser.isComplete()) {
+            retryOrDeadLetter(job, "AI 生成错误");
             return;
         }
-        String genChart = splits[1].trim();
-        String genResult = splits[2].trim();
         Chart updateChartResult = new Chart();
         updateChartResult.setId(chart.getId());
-        updateChartResult.setGenChart(genChart);
-        updateChartResult.setGenResult(genResult);
-        // todo 建议定义状态为枚举值
-        updateChartResult.setStatus("succeed");
-        boolean updateResult = chartService.updateById(updateChartResult);
-        if (!updateResult) {
-            channel.basicNack(deliveryTag, false, false);
-            handleChartUpdateError(chart.getId(), "更新图表成功状态失败");
+        updateChartResult.setGenChart(parser.getGenChart());
+        updateChartResult.setGenResult(parser.getGenResult());
+        updateChartResult.setReduceRatio(chart.getReduceRatio());
+        updateChartResult.setReduceTime(chart.getReduceTime());
+        if (chartService.markSucceed(chart.getId(), updateChartResult)) {
+            chartEventManager.publish(ChartEventVO.of(updateChartResult));
+        } else {
+            // 图表已是终态（如已被删除或标记失败），结果不再写入
+            log.warn("图表已结束，丢弃生成结果，chartId = {}", chart.getId());
         }
         // 消息确认
-        channel.basicAck(deliveryTag, false);
+        job.ack();
+        biMessageProducer.releaseUserJob(chart.getUserId());
+        deleteBlob(job.message);
+    }
+
+    /**
+     * 重复投递且其他消费者正在处理：延迟后再检查（不计入重试次数），持有者完成后该消息会被直接确认
+     *
+     * @param job 任务
+     */
+    private void deferDuplicate(ChartJob job) throws IOException {
+        List<Long> retryDelays = biMqConfig.getRetryDelays();
+        if (!retryDelays.isEmpty()) {
+            try {
+                biMessageProducer.sendRetryMessage(job.body, job.retryCount, retryDelays.get(0), job.priority);
+                job.ack();
+                log.info("图表正在处理，延迟检查重复消息，chartId = {}", job.chartId);
+                return;
+            } catch (AmqpException e) {
+                log.error("发送延迟检查消息失败，chartId = {}", job.chartId, e);
+            }
+        }
+        // 没有延迟队列或发送失败时不重新入队（避免反复投递），由持有者完成处理；丢弃的消息不再排队，释放用户排队任务数
+        job.ack();
+        biMessageProducer.releaseUserJob(job.message.getUserId());
+        log.warn("图表正在处理，丢弃重复消息，chartId = {}", job.chartId);
     }
 
     /**
-     * 构建用户输入
-     * @param chart
-     * @return
+     * 失败处理：还有重试次数时发送到对应的延迟队列并确认原消息，图表回到等待状态；
+     * 否则拒绝消息（进入死信队列），图表标记为失败
+     *
+     * @param job    任务
+     * @param reason 失败原因
      */
-    private String buildUserInput(Chart chart) {
-        String goal = chart.getGoal();
-        String chartType = chart.getChartType();
-        String csvData = chart.getChartData();
-
-        // 构造用户输入
-        StringBuilder userInput = new StringBuilder();
-        userInput.append("分析需求：").append("\n");
-
-        // 拼接分析目标
-        String userGoal = goal;
-        if (StringUtils.isNotBlank(chartType)) {
-            userGoal += "，请使用" + chartType;
-        }
-        userInput.append(userGoal).append("\n");
-        userInput.append("原始数据：").append("\n");
-        userInput.append(csvData).append("\n");
-        return userInput.toString();
+    private void retryOrDeadLetter(ChartJob job, String reason) throws IOException {
+        List<Long> retryDelays = biMqConfig.getRetryDelays();
+        if (job.retryCount < retryDelays.size()) {
+            long delay = retryDelays.get(job.retryCount);
+            int nextRetryCount = job.retryCount + 1;
+            try {
+                biMessageProducer.sendRetryMessage(job.body, nextRetryCount, delay, job.priority);
+                job.ack();
+                String execMessage = reason + "，" + delay / 1000 + " 秒后第 " + nextRetryCount + " 次重试";
+                log.warn("图表生成失败，chartId = {}，{}", job.chartId, execMessage);
+                chartService.markRetry(job.chartId, execMessage);
+                ChartEventVO event = ChartEventVO.of(job.chartId, ChartStatusEnums.WAIT.getValue());
+                event.setExecMessage(execMessage);
+                chartEventManager.publish(event);
+                return;
+            } catch (AmqpException e) {
+                log.error("发送重试消息失败，chartId = {}", job.chartId, e);
+            }
+        }
+        job.nack();
+        biMessageProducer.releaseUserJob(job.message.getUserId());
+        handleChartUpdateError(job.chartId, job.retryCount > 0 ? reason + "（已重试 " + job.retryCount + " 次）" : reason);
     }
 
     private void handleChartUpdateError(long chartId, String execMessage) {
-        Chart updateChartResult = new Chart();
-        updateChartResult.setId(chartId);
-        updateChartResult.setStatus("failed");
-        updateChartResult.setExecMessage("execMessage");
-        boolean updateResult = chartService.updateById(updateChartResult);
+        boolean updateResult = chartService.markFailed(chartId, execMessage);
         if (!updateResult) {
             log.error("更新图表失败状态失败" + chartId + "," + execMessage);
         }
+        ChartEventVO event = ChartEventVO.of(chartId, ChartStatusEnums.FAILED.getValue());
+        event.setExecMessage(execMessage);
+        chartEventManager.publish(event);
+    }
+
+    /**
+     * 生成成功后删除对象存储中的图表数据（重试期间保留）
+     *
+     * @param message 消息
+     */
+    private void deleteBlob(ChartJobMessage message) {
+        if (message.getDataType() != ChartJobMessage.DATA_BLOB) {
+            return;
+        }
+        try {
+            cosManager.deleteObject(message.getBlobKey());
+        } catch (Exception e) {
+            log.warn("删除图表数据失败，key = {}", message.getBlobKey(), e);
+        }
+    }
+
+    /**
+     * 一次消息投递对应的图表任务
+     */
+    private static class ChartJob {
+
+        private final long chartId;
+
+        private final ChartJobMessage message;
+
+        /**
+         * 原消息体（重试时原样发送）
+         */
+        private final byte[] body;
+
+        /**
+         * 已重试次数
+         */
+        private final int retryCount;
+
+        /**
+         * 消息优先级（重试时沿用）
+         */
+        private final Integer priority;
+
+        private final Channel channel;
+
+        private final long deliveryTag;
+
+        /**
+         * 处理令牌
+         */
+        private String token;
+
+        /**
+         * 消息是否已确认或拒绝
+         */
+        private boolean settled;
+
+        private ChartJob(ChartJobMessage message, byte[] body, int retryCount, Integer priority, Channel channel,
+                         long deliveryTag) {
+            this.chartId = message.getChartId();
+            this.message = message;
+            this.body = body;
+            this.retryCount = retryCount;
+            this.priority = priority;
+            this.channel = channel;
+            this.deliveryTag = deliveryTag;
+        }
+
+        private void ack() throws IOException {
+            channel.basicAck(deliveryTag, false);
+            settled = true;
+        }
+
+        private void nack() throws IOException {
+            // 拒绝且不重新入队（进入死信队列）
+            channel.basicNack(deliveryTag, false, false);
+            settled = true;
+        }
     }
 
 }
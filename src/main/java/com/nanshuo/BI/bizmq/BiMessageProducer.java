@@ -1,22 +1,193 @@
 package com.nanshuo.BI.bizmq;
 
+import cn.hutool.core.util.HexUtil;
+import com.nanshuo.BI.config.BiMqConfig;
+import com.nanshuo.BI.constant.RedisKeyConstant;
+import com.nanshuo.BI.constant.UserConstant;
+import com.nanshuo.BI.manager.CosManager;
+import com.nanshuo.BI.model.domain.Chart;
+import com.nanshuo.BI.model.domain.User;
+import com.nanshuo.BI.utils.redis.RedisUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
+import java.util.concurrent.TimeUnit;
 
+@Slf4j
 @Component
 public class BiMessageProducer {
 
+    /**
+     * 对象存储中图表数据的 key 前缀
+     */
+    public static final String CHART_JOB_BLOB_PREFIX = "chart_job/";
+
+    /**
+     * 用户排队任务数的过期时间（小时），避免异常退出未释放的计数长期残留
+     */
+    private static final long USER_PENDING_TTL_HOURS = 24;
+
     @Resource
     private RabbitTemplate rabbitTemplate;
 
+    @Resource
+    private BiMqConfig biMqConfig;
+
+    @Resource
+    private CosManager cosManager;
+
+    @Resource
+    private RedisUtils redisUtils;
+
+    /**
+     * 发送图表生成任务，消息携带生成所需的字段和压缩后的数据，消费者无需读取数据库
+     * <p>
+     * 压缩后超过内联上限时上传到对象存储（未开启时不携带数据），消息体超过上限时只携带图表 id
+     * <p>
+     * 消息优先级：基础优先级，管理员、小数据集加分，用户排队中的任务越多分越低
+     *
+     * @param chart 图表（已保存）
+     * @param user  提交的用户，为空时按普通用户处理
+     */
+    public void sendChartJob(Chart chart, User user) {
+        ChartJobMessage message = ChartJobMessage.ofId(chart.getId());
+        message.setUserId(chart.getUserId());
+        message.setGoal(chart.getGoal());
+        message.setChartType(chart.getChartType());
+        if (chart.getChartData() != null) {
+            message.setInlineData(chart.getChartData());
+            if (message.getCompressedData().length > biMqConfig.getMaxInlineBytes()) {
+                toBlobOrNone(message);
+            }
+        }
+        byte[] body = message.toBytes();
+        if (body.length > biMqConfig.getMaxMessageBytes()) {
+            ChartJobMessage idOnly = ChartJobMessage.ofId(chart.getId());
+            idOnly.setUserId(chart.getUserId());
+            body = idOnly.toBytes();
+        }
+        long userPending = acquireUserJob(chart.getUserId());
+        int priority = computePriority(user, message.getRawLength(), userPending);
+        try {
+            send(BiMqConstant.BI_EXCHANGE_NAME, BiMqConstant.BI_ROUTING_KEY, body, null, priority);
+        } catch (AmqpException e) {
+            releaseUserJob(chart.getUserId());
+            throw e;
+        }
+    }
+
+    /**
+     * 用户的一个图表任务结束（成功或进入死信队列），排队任务数减 1
+     *
+     * @param userId 用户 id
+     */
+    public void releaseUserJob(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        try {
+            String key = RedisKeyConstant.CHART_JOB_USER_PENDING_KEY + userId;
+            if (redisUtils.decr(key, 1) <= 0) {
+                redisUtils.del(key);
+            }
+        } catch (Exception e) {
+            log.warn("释放用户排队任务数失败，userId = {}", userId, e);
+        }
+    }
+
+    /**
+     * 用户排队任务数加 1
+     *
+     * @param userId 用户 id
+     * @return 加入前用户排队中的任务数
+     */
+    private long acquireUserJob(Long userId) {
+        if (userId == null) {
+            return 0;
+        }
+        try {
+            String key = RedisKeyConstant.CHART_JOB_USER_PENDING_KEY + userId;
+            long pending = redisUtils.incr(key, 1);
+            redisUtils.expire(key, USER_PENDING_TTL_HOURS, TimeUnit.HOURS);
+            return pending - 1;
+        } catch (Exception e) {
+            // 计数不可用时不影响发送，按没有排队任务处理
+            log.warn("记录用户排队任务数失败，userId = {}", userId, e);
+            return 0;
+        }
+    }
+
+    /**
+     * 计算消息优先级
+     *
+     * @param user        用户
+     * @param rawLength   原始数据字节数
+     * @param userPending 用户排队中的任务数
+     * @return 0 ~ maxPriority
+     */
+    private int computePriority(User user, int rawLength, long userPending) {
+        int priority = biMqConfig.getBasePriority();
+        if (user != null && UserConstant.ADMIN_ROLE.equals(user.getUserRole())) {
+            priority += biMqConfig.getAdminPriorityBoost();
+        }
+        if (rawLength <= biMqConfig.getSmallDataBytes()) {
+            priority += biMqConfig.getSmallDataPriorityBoost();
+        }
+        long penalty = userPending / Math.max(1, biMqConfig.getUserPendingStep());
+        return (int) Math.max(0, Math.min(priority - penalty, biMqConfig.getMaxPriority()));
+    }
+
+    /**
+     * 发送重试消息（进入延迟队列，过期后回到工作队列）
+     *
+     * @param body       原消息体
+     * @param retryCount 本次是第几次重试
+     * @param delay      延迟（毫秒），须为配置的延迟之一
+     * @param priority   原消息的优先级，为空时不设置
+     */
+    public void sendRetryMessage(byte[] body, int retryCount, long delay, Integer priority) {
+        send(BiMqConstant.BI_RETRY_EXCHANGE_NAME, String.valueOf(delay), body, retryCount, priority);
+    }
+
+    private void send(String exchange, String routingKey, byte[] body, Integer retryCount, Integer priority) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_BYTES);
+        properties.setDeliveryMode(MessageProperties.DEFAULT_DELIVERY_MODE);
+        if (retryCount != null) {
+            properties.setHeader(BiMqConstant.RETRY_COUNT_HEADER, retryCount);
+        }
+        if (priority != null) {
+            properties.setPriority(priority);
+        }
+        rabbitTemplate.send(exchange, routingKey, new Message(body, properties));
+    }
+
     /**
-     * 发送消息
-     * @param message
+     * 数据过大：上传到对象存储，上传失败或未开启时不携带数据
+     *
+     * @param message 消息
      */
-    public void sendMessage(String message) {
-        rabbitTemplate.convertAndSend(BiMqConstant.BI_EXCHANGE_NAME, BiMqConstant.BI_ROUTING_KEY, message);
+    private void toBlobOrNone(ChartJobMessage message) {
+        if (biMqConfig.isBlobEnabled()) {
+            String key = CHART_JOB_BLOB_PREFIX + message.getChartId() + "/"
+                    + HexUtil.encodeHexStr(message.getContentHash()) + ".deflate";
+            try {
+                cosManager.putObject(key, message.getCompressedData());
+                message.setDataType(ChartJobMessage.DATA_BLOB);
+                message.setBlobKey(key);
+                message.setCompressedData(null);
+                return;
+            } catch (Exception e) {
+                log.error("上传图表数据失败，chartId = {}", message.getChartId(), e);
+            }
+        }
+        message.setDataType(ChartJobMessage.DATA_NONE);
+        message.setCompressedData(null);
     }
 
 }
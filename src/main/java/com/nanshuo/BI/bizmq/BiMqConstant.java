@@ -7,4 +7,28 @@ public interface BiMqConstant {
     String BI_QUEUE_NAME = "bi_queue";
 
     String BI_ROUTING_KEY = "bi_routingKey";
+
+    /**
+     * 重试交换机，按延迟路由到对应的延迟队列，延迟队列的消息过期后回到 bi_exchange
+     */
+    String BI_RETRY_EXCHANGE_NAME = "bi_retry_exchange";
+
+    /**
+     * 延迟队列名前缀，后缀为延迟毫秒数（同时作为路由键）
+     */
+    String BI_RETRY_QUEUE_PREFIX = "bi_retry_queue_";
+
+    /**
+     * 死信交换机，重试次数用完或无法处理的消息进入死信队列
+     */
+    String BI_DLX_EXCHANGE_NAME = "bi_dlx_exchange";
+
+    String BI_DEAD_QUEUE_NAME = "bi_dead_queue";
+
+    String BI_DEAD_ROUTING_KEY = "bi_dead";
+
+    /**
+     * 已重试次数的消息头
+     */
+    String RETRY_COUNT_HEADER = "x-retry-count";
 }
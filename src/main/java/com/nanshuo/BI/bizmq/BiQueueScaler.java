@@ -0,0 +1,173 @@
+package com.nanshuo.BI.bizmq;
+
+import com.nanshuo.BI.config.BiMqConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 图表生成队列的消费者扩缩容和积压统计
+ * <p>
+ * 定时读取队列积压数，按 积压数 / 每个消费者可承担的积压数 调整本节点的消费者数（上下限为配置值）；
+ * 消息在确认前异步处理，只在没有处理中的消息时缩容
+ *
+ * @author nanshuo
+ * @date 2026/10/18 20:11:46
+ */
+@Slf4j
+@Component
+public class BiQueueScaler {
+
+    /**
+     * 图表生成队列监听器 id
+     */
+    public static final String LISTENER_ID = "biMessageConsumer";
+
+    @Resource
+    private AmqpAdmin amqpAdmin;
+
+    @Resource
+    private RabbitListenerEndpointRegistry rabbitListenerEndpointRegistry;
+
+    @Resource
+    private BiMqConfig biMqConfig;
+
+    private final LongAdder consumedCount = new LongAdder();
+
+    /**
+     * 已收到但还未确认或拒绝的消息数（异步处理中，确认前消费者的 channel 不能关闭）
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile long queueDepth = -1;
+
+    private volatile long deadQueueDepth = -1;
+
+    private volatile long lastConsumed;
+
+    private volatile long lastCheckTime = System.currentTimeMillis();
+
+    /**
+     * 最近一个检查周期的消费速度（条/秒）
+     */
+    private volatile double consumeRate;
+
+    /**
+     * 当前设置的消费者数，0 表示还未调整过（使用配置值）
+     */
+    private volatile int consumers;
+
+    /**
+     * 记录收到一条消息，开始处理
+     */
+    public void recordReceived() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * 记录一条消息处理完成（确认或拒绝）
+     */
+    public void recordConsumed() {
+        consumedCount.increment();
+        inFlight.updateAndGet(count -> Math.max(0, count - 1));
+    }
+
+    @Scheduled(fixedDelayString = "${bi.mq.scale-interval:10000}")
+    public void checkAndScale() {
+        Properties properties;
+        try {
+            properties = amqpAdmin.getQueueProperties(BiMqConstant.BI_QUEUE_NAME);
+        } catch (Exception e) {
+            log.warn("获取队列信息失败：{}", e.getMessage());
+            return;
+        }
+        if (properties == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long consumed = consumedCount.sum();
+        consumeRate = (consumed - lastConsumed) * 1000.0 / Math.max(1, now - lastCheckTime);
+        lastConsumed = consumed;
+        lastCheckTime = now;
+        Object messageCount = properties.get(RabbitAdmin.QUEUE_MESSAGE_COUNT);
+        queueDepth = messageCount == null ? 0 : ((Number) messageCount).longValue();
+        deadQueueDepth = getMessageCount(BiMqConstant.BI_DEAD_QUEUE_NAME);
+
+        SimpleMessageListenerContainer container = getContainer();
+        if (!biMqConfig.isAutoscaleEnabled() || container == null) {
+            return;
+        }
+        int target = targetConsumers(queueDepth);
+        int current = getConsumerCount();
+        if (target < current && inFlight.get() > 0) {
+            // 缩容会关闭消费者的 channel，其上未确认的消息被重新投递后会再调用一次 AI，没有处理中的消息时再缩容
+            log.debug("图表生成队列有 {} 条消息处理中，暂不缩容", inFlight.get());
+            return;
+        }
+        if (target != current) {
+            log.info("图表生成队列积压 {} 条，消费者数 {} -> {}", queueDepth, current, target);
+            container.setConcurrentConsumers(target);
+            consumers = target;
+        }
+    }
+
+    /**
+     * 消费统计
+     *
+     * @return {@code Map<String, Object>}
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queue", BiMqConstant.BI_QUEUE_NAME);
+        stats.put("queueDepth", queueDepth);
+        stats.put("deadQueueDepth", deadQueueDepth);
+        stats.put("consumers", getConsumerCount());
+        stats.put("minConsumers", biMqConfig.getConcurrentConsumers());
+        stats.put("maxConsumers", biMqConfig.getMaxConcurrentConsumers());
+        stats.put("prefetch", biMqConfig.getPrefetch());
+        stats.put("inFlight", inFlight.get());
+        stats.put("consumedCount", consumedCount.sum());
+        stats.put("consumeRatePerSecond", Math.round(consumeRate * 100) / 100.0);
+        // 按当前消费速度估算消化积压所需时间
+        stats.put("estimatedLagSeconds", queueDepth <= 0 ? 0 : consumeRate <= 0 ? -1 : Math.round(queueDepth / consumeRate));
+        return stats;
+    }
+
+    private long getMessageCount(String queueName) {
+        try {
+            Properties properties = amqpAdmin.getQueueProperties(queueName);
+            Object messageCount = properties == null ? null : properties.get(RabbitAdmin.QUEUE_MESSAGE_COUNT);
+            return messageCount == null ? -1 : ((Number) messageCount).longValue();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private int targetConsumers(long depth) {
+        int perConsumer = Math.max(1, biMqConfig.getMessagesPerConsumer());
+        long needed = (depth + perConsumer - 1) / perConsumer;
+        return (int) Math.max(biMqConfig.getConcurrentConsumers(),
+                Math.min(biMqConfig.getMaxConcurrentConsumers(), needed));
+    }
+
+    private int getConsumerCount() {
+        return consumers > 0 ? consumers : biMqConfig.getConcurrentConsumers();
+    }
+
+    private SimpleMessageListenerContainer getContainer() {
+        MessageListenerContainer container = rabbitListenerEndpointRegistry.getListenerContainer(LISTENER_ID);
+        return container instanceof SimpleMessageListenerContainer ? (SimpleMessageListenerContainer) container : null;
+    }
+}
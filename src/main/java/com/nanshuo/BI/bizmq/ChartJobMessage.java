@@ -0,0 +1,226 @@
+package com.nanshuo.BI.bizmq;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.nanshuo.BI.common.ErrorCode;
+import com.nanshuo.BI.exception.BusinessException;
+import com.nanshuo.BI.utils.CompressUtils;
+import lombok.Data;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 图表生成任务消息（二进制，带版本号）
+ * <p>
+ * 携带生成所需的全部字段，消费者无需再从数据库读取图表（尤其是 chart_data）。
+ * 格式（v1）：魔数 "BJ"、版本、数据类型、chartId、userId、goal、chartType、数据 SHA-256、原始数据长度、数据。
+ * 数据类型：INLINE 内联的 Deflate 压缩数据；BLOB 对象存储的 key；NONE 不携带数据（由消费者从数据库读取）。
+ * 旧版本的消息只有图表 id 字符串，解析时兼容
+ *
+ * @author nanshuo
+ * @date 2026/10/18 20:58:31
+ */
+@Data
+public class ChartJobMessage {
+
+    private static final byte[] MAGIC = {'B', 'J'};
+
+    public static final byte VERSION = 1;
+
+    public static final byte DATA_NONE = 0;
+
+    public static final byte DATA_INLINE = 1;
+
+    public static final byte DATA_BLOB = 2;
+
+    private long chartId;
+
+    private Long userId;
+
+    private String goal;
+
+    private String chartType;
+
+    /**
+     * 数据类型
+     */
+    private byte dataType = DATA_NONE;
+
+    /**
+     * 原始 CSV（UTF-8）的 SHA-256
+     */
+    private byte[] contentHash;
+
+    /**
+     * 原始 CSV（UTF-8）的字节数
+     */
+    private int rawLength;
+
+    /**
+     * INLINE：压缩后的数据
+     */
+    private byte[] compressedData;
+
+    /**
+     * BLOB：对象存储的 key（对象内容为压缩后的数据）
+     */
+    private String blobKey;
+
+    /**
+     * 只包含图表 id 的消息
+     *
+     * @param chartId 图表 id
+     * @return {@link ChartJobMessage}
+     */
+    public static ChartJobMessage ofId(long chartId) {
+        ChartJobMessage message = new ChartJobMessage();
+        message.setChartId(chartId);
+        return message;
+    }
+
+    /**
+     * 压缩 CSV 数据并记录摘要（数据类型设为 INLINE，由调用方按大小决定是否改为 BLOB）
+     *
+     * @param chartData CSV 数据
+     */
+    public void setInlineData(String chartData) {
+        byte[] raw = chartData.getBytes(StandardCharsets.UTF_8);
+        this.dataType = DATA_INLINE;
+        this.rawLength = raw.length;
+        this.contentHash = DigestUtil.sha256(raw);
+        this.compressedData = CompressUtils.deflate(raw);
+    }
+
+    /**
+     * 解压数据并校验摘要
+     *
+     * @param compressed 压缩后的数据（INLINE 为消息中的数据，BLOB 为从对象存储读取的数据）
+     * @return CSV 数据
+     */
+    public String decodeData(byte[] compressed) {
+        byte[] raw = CompressUtils.inflate(compressed, rawLength);
+        if (!Arrays.equals(contentHash, DigestUtil.sha256(raw))) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "图表数据校验失败");
+        }
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 序列化
+     *
+     * @return byte[]
+     */
+    public byte[] toBytes() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+                    64 + (compressedData == null ? 0 : compressedData.length));
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(dataType);
+            out.writeLong(chartId);
+            out.writeLong(userId == null ? -1 : userId);
+            writeString(out, goal);
+            writeString(out, chartType);
+            if (dataType != DATA_NONE) {
+                out.write(contentHash);
+                out.writeInt(rawLength);
+                if (dataType == DATA_INLINE) {
+                    out.writeInt(compressedData.length);
+                    out.write(compressedData);
+                } else {
+                    writeString(out, blobKey);
+                }
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "消息序列化失败");
+        }
+    }
+
+    /**
+     * 反序列化（兼容只有图表 id 的旧消息）
+     *
+     * @param body 消息体
+     * @return {@link ChartJobMessage}
+     */
+    public static ChartJobMessage fromBytes(byte[] body) {
+        if (body.length < MAGIC.length || body[0] != MAGIC[0] || body[1] != MAGIC[1]) {
+            String chartId = new String(body, StandardCharsets.UTF_8).trim();
+            try {
+                return ofId(Long.parseLong(chartId));
+            } catch (NumberFormatException e) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "无法识别的消息");
+            }
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(body, MAGIC.length,
+                    body.length - MAGIC.length));
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "不支持的消息版本：" + version);
+            }
+            ChartJobMessage message = new ChartJobMessage();
+            message.setDataType(in.readByte());
+            message.setChartId(in.readLong());
+            long userId = in.readLong();
+            message.setUserId(userId < 0 ? null : userId);
+            message.setGoal(readString(in));
+            message.setChartType(readString(in));
+            if (message.getDataType() != DATA_NONE) {
+                byte[] contentHash = new byte[32];
+                in.readFully(contentHash);
+                message.setContentHash(contentHash);
+                int rawLength = in.readInt();
+                if (rawLength < 0 || rawLength > CompressUtils.MAX_INFLATE_LENGTH) {
+                    throw new IOException("原始数据长度错误：" + rawLength);
+                }
+                message.setRawLength(rawLength);
+                if (message.getDataType() == DATA_INLINE) {
+                    int compressedLength = in.readInt();
+                    checkLength(in, compressedLength);
+                    byte[] compressedData = new byte[compressedLength];
+                    in.readFully(compressedData);
+                    message.setCompressedData(compressedData);
+                } else {
+                    message.setBlobKey(readString(in));
+                }
+            }
+            return message;
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "消息格式错误");
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        checkLength(in, length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 长度字段不能超过剩余字节数，避免错误消息导致分配过大的数组
+     */
+    private static void checkLength(DataInputStream in, int length) throws IOException {
+        if (length < 0 || length > in.available()) {
+            throw new IOException("长度字段错误：" + length);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.nanshuo.BI.bizmq;
+
+import com.nanshuo.BI.config.ChartSweeperConfig;
+import com.nanshuo.BI.constant.RedisKeyConstant;
+import com.nanshuo.BI.manager.ChartEventManager;
+import com.nanshuo.BI.manager.ChartIdempotencyManager;
+import com.nanshuo.BI.model.domain.Chart;
+import com.nanshuo.BI.model.enums.chart.ChartStatusEnums;
+import com.nanshuo.BI.model.vo.ChartEventVO;
+import com.nanshuo.BI.service.ChartService;
+import com.nanshuo.BI.utils.redis.RedissonUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 回收长时间未完成的图表
+ * <p>
+ * 进程内异步生成的任务随 JVM 重启丢失、处理节点宕机后，图表会一直停在等待中或执行中：
+ * 启动时和定时按 status + update_time 索引查找长时间没有更新、也没有处理令牌的图表，
+ * 条件更新回等待中后重新发送到消息队列。同一时间只有拿到扫描锁的节点扫描，条件更新保证每个图表只回收一次
+ *
+ * @author nanshuo
+ * @date 2026/10/18 22:52:37
+ */
+@Slf4j
+@Component
+public class ChartStuckSweeper {
+
+    private static final String STUCK_MESSAGE = "执行超时，已重新排队";
+
+    private static final String LOST_MESSAGE = "任务丢失，已重新排队";
+
+    @Resource
+    private ChartService chartService;
+
+    @Resource
+    private ChartIdempotencyManager chartIdempotencyManager;
+
+    @Resource
+    private BiMessageProducer biMessageProducer;
+
+    @Resource
+    private ChartEventManager chartEventManager;
+
+    @Resource
+    private RedissonUtils redissonUtils;
+
+    @Resource
+    private ChartSweeperConfig chartSweeperConfig;
+
+    /**
+     * 启动后扫描一次，回收上次运行遗留的图表
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverOnStartup() {
+        if (chartSweeperConfig.isRecoverOnStartup()) {
+            sweep();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bi.chart.sweeper.interval:60000}")
+    public void sweep() {
+        if (!chartSweeperConfig.isEnabled()) {
+            return;
+        }
+        String lockName = RedisKeyConstant.CHART_RECOVERY_LOCK_KEY;
+        boolean locked;
+        try {
+            locked = redissonUtils.tryLock(lockName, 0, chartSweeperConfig.getLockLeaseTime());
+        } catch (Exception e) {
+            log.error("获取图表回收锁失败", e);
+            return;
+        }
+        if (!locked) {
+            // 其他节点正在扫描
+            return;
+        }
+        try {
+            recover(ChartStatusEnums.RUNNING, chartSweeperConfig.getStuckTimeout(), STUCK_MESSAGE);
+            recover(ChartStatusEnums.WAIT, chartSweeperConfig.getWaitTimeout(), LOST_MESSAGE);
+        } finally {
+            RLock lock = redissonUtils.getLock(lockName);
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 回收某个状态下长时间没有更新的图表
+     *
+     * @param status         状态
+     * @param timeoutSeconds 没有更新的时间（秒）
+     * @param execMessage    回收原因
+     */
+    private void recover(ChartStatusEnums status, long timeoutSeconds, String execMessage) {
+        Date before = new Date(System.currentTimeMillis() - timeoutSeconds * 1000);
+        List<Chart> staleCharts;
+        try {
+            staleCharts = chartService.listStale(status, before, chartSweeperConfig.getBatchSize());
+        } catch (Exception e) {
+            log.error("查询长时间未完成的图表失败，status = {}", status.getValue(), e);
+            return;
+        }
+        for (Chart staleChart : staleCharts) {
+            try {
+                requeue(staleChart, status, execMessage);
+            } catch (Exception e) {
+                log.error("回收图表失败，chartId = {}", staleChart.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * 回收并重新发送一个图表
+     *
+     * @param staleChart  长时间没有更新的图表（只有 id 和更新时间）
+     * @param status      查询到的状态
+     * @param execMessage 回收原因
+     */
+    private void requeue(Chart staleChart, ChartStatusEnums status, String execMessage) {
+        long chartId = staleChart.getId();
+        // 令牌未过期说明持有者仍在处理
+        if (chartIdempotencyManager.isProcessing(chartId)) {
+            return;
+        }
+        if (!chartService.requeueStale(chartId, status, staleChart.getUpdateTime(), execMessage)) {
+            return;
+        }
+        Chart chart = chartService.getById(chartId);
+        if (chart == null) {
+            return;
+        }
+        biMessageProducer.sendChartJob(chart, null);
+        log.warn("图表长时间未完成，已重新排队，chartId = {}, status = {}", chartId, status.getValue());
+        ChartEventVO event = ChartEventVO.of(chartId, ChartStatusEnums.WAIT.getValue());
+        event.setExecMessage(execMessage);
+        chartEventManager.publish(event);
+    }
+}
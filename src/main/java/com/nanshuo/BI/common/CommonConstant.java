@@ -6,4 +6,9 @@ public interface CommonConstant {
      * 模型id
      */
     long BI_MODEL_ID = 1659171950288818178L;
+
+    /**
+     * AI 生成结果的分隔符（图表配置与分析结论之间）
+     */
+    String GEN_SEPARATOR = "【【【【【";
 }
@@ -35,7 +35,9 @@ public enum ErrorCode {
 
     SYSTEM_ERROR(50000, "系统内部异常"),
 
-    OPERATION_ERROR(50001, "操作失败");
+    OPERATION_ERROR(50001, "操作失败"),
+
+    AI_UNAVAILABLE(50002, "AI 服务暂时不可用，请稍后重试");
 
     /**
      * 状态码
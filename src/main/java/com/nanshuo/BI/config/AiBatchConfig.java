@@ -0,0 +1,37 @@
+package com.nanshuo.BI.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 小图表任务合批调用 AI 的配置（仅消息队列消费链路）
+ *
+ * @author nanshuo
+ * @date 2026/10/18 21:32:46
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "bi.ai.batch")
+public class AiBatchConfig {
+
+    /**
+     * 是否开启
+     */
+    private boolean enabled = false;
+
+    /**
+     * 每批最多合并的任务数
+     */
+    private int maxBatchSize = 4;
+
+    /**
+     * 第一个任务进入后最多等待的时间（毫秒），未凑满也发送
+     */
+    private long maxWaitMs = 200;
+
+    /**
+     * 可合批的图表数据上限（原始 CSV 字节数），超过时单独调用
+     */
+    private int maxDataBytes = 2048;
+}
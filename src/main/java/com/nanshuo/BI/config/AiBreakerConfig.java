@@ -0,0 +1,57 @@
+package com.nanshuo.BI.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * AI 调用熔断配置
+ *
+ * @author nanshuo
+ * @date 2026/10/18 17:05:41
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "bi.ai.breaker")
+public class AiBreakerConfig {
+
+    /**
+     * 是否开启
+     */
+    private boolean enabled = true;
+
+    /**
+     * 统计最近多少次调用
+     */
+    private int windowSize = 50;
+
+    /**
+     * 窗口内至少多少次调用才计算失败率
+     */
+    private int minCalls = 10;
+
+    /**
+     * 失败率达到多少时熔断（0 ~ 1）
+     */
+    private double failureRateThreshold = 0.5;
+
+    /**
+     * 耗时超过多少毫秒算作慢调用
+     */
+    private long slowCallThreshold = 60000;
+
+    /**
+     * 慢调用比例达到多少时熔断（0 ~ 1）
+     */
+    private double slowCallRateThreshold = 0.8;
+
+    /**
+     * 熔断持续时间（毫秒），之后放行少量试探调用
+     */
+    private long openDuration = 30000;
+
+    /**
+     * 半开状态放行的试探调用数，全部成功后恢复
+     */
+    private int halfOpenCalls = 3;
+}
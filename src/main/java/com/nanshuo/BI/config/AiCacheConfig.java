@@ -0,0 +1,42 @@
+package com.nanshuo.BI.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * AI 生成结果缓存配置（本地 + Redis 两级）
+ *
+ * @author nanshuo
+ * @date 2026/10/18 14:40:26
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "bi.ai.cache")
+public class AiCacheConfig {
+
+    /**
+     * 是否开启
+     */
+    private boolean enabled = true;
+
+    /**
+     * 本地缓存最大条数
+     */
+    private long localMaxSize = 1000;
+
+    /**
+     * 本地缓存过期时间（秒）
+     */
+    private long localTtl = 600;
+
+    /**
+     * Redis 缓存最大条数，超出后淘汰最早写入的
+     */
+    private long redisMaxSize = 10000;
+
+    /**
+     * Redis 缓存过期时间（秒）
+     */
+    private long redisTtl = 7 * 24 * 3600;
+}
@@ -0,0 +1,31 @@
+package com.nanshuo.BI.config;
+
+import com.nanshuo.BI.manager.ai.AiClient;
+import com.nanshuo.BI.manager.ai.StubAiClient;
+import com.nanshuo.BI.manager.ai.YuCongMingAiClient;
+import com.yupi.yucongming.dev.client.YuCongMingClient;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * AI 客户端配置，bi.ai.stub-enabled=true 时使用本地桩客户端，不访问网络
+ *
+ * @author nanshuo
+ * @date 2026/10/18 16:18:51
+ */
+@Configuration
+public class AiClientConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "bi.ai", name = "stub-enabled", havingValue = "false", matchIfMissing = true)
+    public AiClient yuCongMingAiClient(YuCongMingClient yuCongMingClient) {
+        return new YuCongMingAiClient(yuCongMingClient);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "bi.ai", name = "stub-enabled", havingValue = "true")
+    public AiClient stubAiClient(AiConfig aiConfig) {
+        return new StubAiClient(aiConfig::getStubLatency);
+    }
+}
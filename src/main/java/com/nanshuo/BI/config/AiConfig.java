@@ -0,0 +1,67 @@
+package com.nanshuo.BI.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * AI 调用配置
+ *
+ * @author nanshuo
+ * @date 2026/10/18 15:32:18
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "bi.ai")
+public class AiConfig {
+
+    /**
+     * 是否合并相同内容的并发调用（单机 + 跨节点）
+     */
+    private boolean singleFlightEnabled = true;
+
+    /**
+     * 跨节点合并时等待其他节点完成的最长时间（秒），超时后自行调用；实际等待不超过调用的截止时间
+     */
+    private long singleFlightWaitTime = 300;
+
+    /**
+     * 单次调用的超时时间（毫秒），包含排队时间，小于等于 0 表示不限制
+     */
+    private long timeout = 120000;
+
+    /**
+     * 同时进行中的 AI 调用上限（全局）
+     */
+    private int maxConcurrency = 20;
+
+    /**
+     * 等待并发名额的最大排队数，超出后直接拒绝
+     */
+    private int maxQueueSize = 1000;
+
+    /**
+     * 是否开启对冲请求：调用耗时超过 p95 后再发一个相同的请求，先返回的为准
+     */
+    private boolean hedgeEnabled = false;
+
+    /**
+     * 样本不足时使用的对冲等待时间（毫秒）
+     */
+    private long hedgeDelay = 30000;
+
+    /**
+     * 使用 p95 作为对冲等待时间所需的最少样本数
+     */
+    private int hedgeMinSamples = 20;
+
+    /**
+     * 是否使用本地桩客户端（不访问网络）
+     */
+    private boolean stubEnabled = false;
+
+    /**
+     * 本地桩客户端的响应延迟（毫秒）
+     */
+    private long stubLatency = 1000;
+}
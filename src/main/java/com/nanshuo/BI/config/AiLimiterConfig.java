@@ -0,0 +1,47 @@
+package com.nanshuo.BI.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * AI 调用自适应并发限制配置，上限为 bi.ai.max-concurrency
+ *
+ * @author nanshuo
+ * @date 2026/10/18 17:07:12
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "bi.ai.limiter")
+public class AiLimiterConfig {
+
+    /**
+     * 是否开启，关闭时并发数固定为 bi.ai.max-concurrency
+     */
+    private boolean enabled = true;
+
+    /**
+     * 初始并发数
+     */
+    private int initialLimit = 10;
+
+    /**
+     * 最小并发数
+     */
+    private int minLimit = 1;
+
+    /**
+     * 出现拥塞时并发数乘以的系数
+     */
+    private double backoffRatio = 0.9;
+
+    /**
+     * 耗时超过基准耗时的多少倍视为拥塞
+     */
+    private double tolerance = 2.0;
+
+    /**
+     * 基准耗时（窗口内最小耗时）的统计窗口（次）
+     */
+    private int baselineWindow = 200;
+}
@@ -0,0 +1,169 @@
+package com.nanshuo.BI.config;
+
+import com.nanshuo.BI.bizmq.BiMqConstant;
+import lombok.Data;
+import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 图表生成队列（bi_queue）的拓扑和消费配置
+ * <p>
+ * 拓扑：bi_exchange -> bi_queue；失败后按 retryDelays 逐级进入 bi_retry_queue_{延迟}，过期后回到 bi_exchange；
+ * 重试次数用完后拒绝，经 bi_dlx_exchange 进入 bi_dead_queue
+ * <p>
+ * 消费者收到消息后异步调用 AI，结果返回后才确认消息，所以每个消费者同时处理的消息数由 prefetch 决定，
+ * 单节点同时处理的图表数约为 消费者数 * prefetch
+ * <p>
+ * 工作队列开启优先级，优先级只对还未投递给消费者的消息生效，prefetch 越小排序越及时
+ *
+ * @author nanshuo
+ * @date 2026/10/18 20:05:27
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "bi.mq")
+public class BiMqConfig {
+
+    /**
+     * 初始消费者数
+     */
+    private int concurrentConsumers = 2;
+
+    /**
+     * 最大消费者数（由 BiQueueScaler 按积压扩容的上限，不设置到容器上）
+     */
+    private int maxConcurrentConsumers = 10;
+
+    /**
+     * 每个消费者未确认消息的上限
+     */
+    private int prefetch = 5;
+
+    /**
+     * 是否按队列积压数自动调整消费者数
+     */
+    private boolean autoscaleEnabled = true;
+
+    /**
+     * 每个消费者可承担的积压消息数，积压超过 消费者数 * 该值 时扩容
+     */
+    private int messagesPerConsumer = 20;
+
+    /**
+     * 检查队列积压的间隔（毫秒）
+     */
+    private long scaleInterval = 10000;
+
+    /**
+     * 各次重试的延迟（毫秒），重试次数即列表长度；每个延迟对应一个带 TTL 的延迟队列
+     */
+    private List<Long> retryDelays = new ArrayList<>(Arrays.asList(5000L, 30000L, 120000L));
+
+    /**
+     * 消息中内联的压缩数据上限（字节），超过后上传到对象存储，消息只携带 key
+     */
+    private int maxInlineBytes = 64 * 1024;
+
+    /**
+     * 是否允许把大数据上传到对象存储（COS），关闭时超过内联上限的消息不携带数据，由消费者从数据库读取
+     */
+    private boolean blobEnabled = false;
+
+    /**
+     * 消息体大小上限（字节），超过后只携带图表 id
+     */
+    private int maxMessageBytes = 128 * 1024;
+
+    /**
+     * 工作队列的最大优先级（x-max-priority），消息优先级取值 0 ~ maxPriority
+     */
+    private int maxPriority = 10;
+
+    /**
+     * 普通任务的基础优先级
+     */
+    private int basePriority = 4;
+
+    /**
+     * 管理员任务增加的优先级
+     */
+    private int adminPriorityBoost = 4;
+
+    /**
+     * 小数据集的上限（原始 CSV 字节数）
+     */
+    private int smallDataBytes = 8 * 1024;
+
+    /**
+     * 小数据集增加的优先级
+     */
+    private int smallDataPriorityBoost = 2;
+
+    /**
+     * 用户每有该数量的任务在排队，新任务的优先级降低 1（同一用户大量提交时让出给其他用户）
+     */
+    private int userPendingStep = 5;
+
+    /**
+     * 声明交换机、队列和绑定（替代手动执行的初始化程序）
+     *
+     * @return {@link Declarables}
+     */
+    @Bean
+    public Declarables biMqTopology() {
+        List<Declarable> declarables = new ArrayList<>();
+        DirectExchange workExchange = new DirectExchange(BiMqConstant.BI_EXCHANGE_NAME, true, false);
+        DirectExchange retryExchange = new DirectExchange(BiMqConstant.BI_RETRY_EXCHANGE_NAME, true, false);
+        DirectExchange deadExchange = new DirectExchange(BiMqConstant.BI_DLX_EXCHANGE_NAME, true, false);
+        declarables.add(workExchange);
+        declarables.add(retryExchange);
+        declarables.add(deadExchange);
+
+        // 工作队列：按消息优先级投递；拒绝（不重新入队）的消息进入死信队列
+        Queue workQueue = QueueBuilder.durable(BiMqConstant.BI_QUEUE_NAME)
+                .maxPriority(maxPriority)
+                .deadLetterExchange(BiMqConstant.BI_DLX_EXCHANGE_NAME)
+                .deadLetterRoutingKey(BiMqConstant.BI_DEAD_ROUTING_KEY)
+                .build();
+        declarables.add(workQueue);
+        declarables.add(BindingBuilder.bind(workQueue).to(workExchange).with(BiMqConstant.BI_ROUTING_KEY));
+
+        // 延迟队列：没有消费者，消息过期后回到工作队列
+        for (Long delay : retryDelays) {
+            Queue retryQueue = QueueBuilder.durable(BiMqConstant.BI_RETRY_QUEUE_PREFIX + delay)
+                    .ttl(delay.intValue())
+                    .deadLetterExchange(BiMqConstant.BI_EXCHANGE_NAME)
+                    .deadLetterRoutingKey(BiMqConstant.BI_ROUTING_KEY)
+                    .build();
+            declarables.add(retryQueue);
+            declarables.add(BindingBuilder.bind(retryQueue).to(retryExchange).with(String.valueOf(delay)));
+        }
+
+        Queue deadQueue = QueueBuilder.durable(BiMqConstant.BI_DEAD_QUEUE_NAME).build();
+        declarables.add(deadQueue);
+        declarables.add(BindingBuilder.bind(deadQueue).to(deadExchange).with(BiMqConstant.BI_DEAD_ROUTING_KEY));
+        return new Declarables(declarables);
+    }
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory biListenerContainerFactory(ConnectionFactory connectionFactory,
+            SimpleRabbitListenerContainerFactoryConfigurer configurer) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        // 只由 BiQueueScaler 调整消费者数：容器自带的伸缩会停掉预取窗口已满（消息仍在执行器中处理）的消费者，
+        // 关闭其 channel 导致未确认的消息被重新投递
+        factory.setConcurrentConsumers(concurrentConsumers);
+        factory.setPrefetchCount(prefetch);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        return factory;
+    }
+}
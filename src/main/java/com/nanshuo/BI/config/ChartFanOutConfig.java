@@ -0,0 +1,32 @@
+package com.nanshuo.BI.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 并行生成配置（图表配置和分析结论拆成两个并发的 AI 调用，缩短长输出的等待时间）
+ *
+ * @author nanshuo
+ * @date 2026/10/19 01:46:12
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "bi.chart.fan-out")
+public class ChartFanOutConfig {
+
+    /**
+     * 是否开启（每个图表多一次输入的 token 消耗）
+     */
+    private boolean enabled = false;
+
+    /**
+     * 用户输入达到该长度（字符数）才并行生成，输入较短时输出也较短，拆分收益小
+     */
+    private int minInputLength = 2000;
+
+    /**
+     * 图表配置不是合法 JSON 时重新生成的次数
+     */
+    private int optionRetries = 1;
+}
@@ -0,0 +1,27 @@
+package com.nanshuo.BI.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 图表任务幂等配置
+ *
+ * @author nanshuo
+ * @date 2026/10/18 21:57:14
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "bi.chart.idempotency")
+public class ChartIdempotencyConfig {
+
+    /**
+     * 处理令牌的有效期（秒），须大于单个图表任务的最长处理时间，持有者异常退出后过期才能被接管
+     */
+    private long processingTtl = 300;
+
+    /**
+     * 重复提交的判定时间窗口（秒），窗口内相同用户提交相同的文件和需求直接返回已提交的图表
+     */
+    private long submissionTtl = 600;
+}
@@ -0,0 +1,53 @@
+package com.nanshuo.BI.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 长时间未完成的图表回收配置
+ *
+ * @author nanshuo
+ * @date 2026/10/18 22:46:18
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "bi.chart.sweeper")
+public class ChartSweeperConfig {
+
+    /**
+     * 是否开启
+     */
+    private boolean enabled = true;
+
+    /**
+     * 检查间隔（毫秒）
+     */
+    private long interval = 60000;
+
+    /**
+     * 执行中超过该时间（秒）没有更新且没有处理令牌的图表视为卡住，须大于处理令牌有效期
+     */
+    private long stuckTimeout = 600;
+
+    /**
+     * 等待中超过该时间（秒）没有更新的图表视为丢失（如进程内异步任务随 JVM 重启丢失），
+     * 须大于消息队列正常积压时的等待时间，重复发送的消息会因状态条件更新失败而被丢弃
+     */
+    private long waitTimeout = 1800;
+
+    /**
+     * 每次每种状态最多回收的图表数
+     */
+    private int batchSize = 100;
+
+    /**
+     * 启动后是否立即扫描一次
+     */
+    private boolean recoverOnStartup = true;
+
+    /**
+     * 扫描锁的租期（毫秒），持有节点宕机后到期释放
+     */
+    private long lockLeaseTime = 5 * 60 * 1000L;
+}
@@ -0,0 +1,52 @@
+package com.nanshuo.BI.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 数据压缩配置（控制发送给 AI 的数据大小）
+ *
+ * @author nanshuo
+ * @date 2026/10/18 13:24:36
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "bi.reduce")
+public class DataReduceConfig {
+
+    /**
+     * 是否开启
+     */
+    private boolean enabled = true;
+
+    /**
+     * 压缩方式：head_tail、reservoir、group_aggregate、numeric_bin、aggregate
+     */
+    private String mode = "aggregate";
+
+    /**
+     * 数据部分的 token 预算（估算值），小于等于 0 表示不限制
+     */
+    private int maxTokens = 3000;
+
+    /**
+     * 数据部分的字节预算（UTF-8），小于等于 0 表示不限制
+     */
+    private int maxBytes = 0;
+
+    /**
+     * 压缩后至少保留的行数
+     */
+    private int minRows = 10;
+
+    /**
+     * 聚合查询的并行度，小于等于 0 表示使用 CPU 核数
+     */
+    private int aggregateParallelism = 0;
+
+    /**
+     * 聚合查询每块的行数，不超过该行数时不拆分
+     */
+    private int aggregateChunkRows = 16384;
+}
@@ -0,0 +1,42 @@
+package com.nanshuo.BI.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 本地生成图表配置（折线图、柱状图、饼图且数据是明显的 x / y 结构时不让 AI 生成图表配置）
+ *
+ * @author nanshuo
+ * @date 2026/10/19 00:55:41
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "bi.chart.local")
+public class LocalChartConfig {
+
+    /**
+     * 是否开启
+     */
+    private boolean enabled = true;
+
+    /**
+     * 折线图、柱状图最多的 x 轴取值，超过时先聚合
+     */
+    private int maxPoints = 50;
+
+    /**
+     * 饼图最多的扇区数，超过时先聚合（其余合并为"其他"）
+     */
+    private int maxPieSlices = 12;
+
+    /**
+     * 折线图、柱状图最多的系列数（数值列数），超过时交给 AI
+     */
+    private int maxSeries = 5;
+
+    /**
+     * 本地生成图表配置后是否只让 AI 生成分析结论（输出更短）；为 false 时仍发送完整请求，只替换图表配置
+     */
+    private boolean narrativeOnly = true;
+}
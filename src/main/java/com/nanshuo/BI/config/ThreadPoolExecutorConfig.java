@@ -1,32 +1,86 @@
 package com.nanshuo.BI.config;
 
-import org.jetbrains.annotations.NotNull;
+import com.nanshuo.BI.utils.concurrent.MonitoredThreadPoolExecutor;
+import com.nanshuo.BI.utils.concurrent.SemaphoreBoundedExecutor;
+import com.nanshuo.BI.utils.concurrent.VirtualThreads;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executor;
 
+/**
+ * 业务线程池配置（异步生成图表时的写库等任务，AI 调用本身不占用此线程池）
+ * <p>
+ * 启动后可通过 /monitor/executor 查看统计、调整大小；JDK 21+ 可开启虚拟线程模式
+ *
+ * @author nanshuo
+ * @date 2026/10/18 19:02:30
+ */
+@Slf4j
+@Data
 @Configuration
+@ConfigurationProperties(prefix = "bi.executor")
 public class ThreadPoolExecutorConfig {
 
+    /**
+     * 核心线程数
+     */
+    private int corePoolSize = 8;
+
+    /**
+     * 最大线程数
+     */
+    private int maxPoolSize = 32;
+
+    /**
+     * 任务队列容量
+     */
+    private int queueCapacity = 1000;
+
+    /**
+     * 空闲线程存活时间（秒）
+     */
+    private long keepAliveSeconds = 60;
+
+    /**
+     * 队列已满时的处理方式：reject 返回请求过于频繁（429）、mq 转入消息队列处理
+     */
+    private String overloadPolicy = "reject";
+
+    /**
+     * 是否使用虚拟线程执行图表任务（需要 JDK 21+，不支持时退回线程池）
+     */
+    private boolean virtualThreadEnabled = false;
+
+    /**
+     * 虚拟线程模式下同时执行的图表任务上限（由信号量限制，而不是线程数）
+     */
+    private int virtualMaxConcurrency = 1000;
+
+    @Bean(destroyMethod = "shutdown")
+    public MonitoredThreadPoolExecutor threadPoolExecutor() {
+        return new MonitoredThreadPoolExecutor("bi-async", corePoolSize, maxPoolSize, keepAliveSeconds,
+                queueCapacity);
+    }
+
+    /**
+     * 图表任务执行器（异步生成图表、消息队列消费）：开启虚拟线程且运行时支持时使用虚拟线程，否则使用业务线程池
+     *
+     * @return {@link Executor}
+     */
     @Bean
-    public ThreadPoolExecutor threadPoolExecutor() {
-        ThreadFactory threadFactory = new ThreadFactory() {
-            private int count = 1;
-
-            @Override
-            public Thread newThread(@NotNull Runnable r) {
-                Thread thread = new Thread(r);
-                thread.setName("线程" + count);
-                count++;
-                return thread;
+    public Executor chartJobExecutor() {
+        if (virtualThreadEnabled) {
+            if (VirtualThreads.isAvailable()) {
+                log.info("图表任务使用虚拟线程执行，并发上限 {}", virtualMaxConcurrency);
+                return new SemaphoreBoundedExecutor(VirtualThreads.newVirtualThreadPerTaskExecutor(),
+                        virtualMaxConcurrency);
             }
-        };
-        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(2, 4, 100, TimeUnit.SECONDS,
-                new ArrayBlockingQueue<>(4), threadFactory);
-        return threadPoolExecutor;
+            log.warn("当前 JDK 不支持虚拟线程（需要 JDK 21+），图表任务使用业务线程池执行");
+        }
+        return threadPoolExecutor();
     }
 }
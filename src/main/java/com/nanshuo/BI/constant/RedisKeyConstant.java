@@ -23,4 +23,44 @@ public interface RedisKeyConstant {
      */
     String USER_LOGIN_STATE_CACHE = "user_login_cache:";
 
+    /**
+     * AI 生成结果缓存（key 为规范化 prompt 的哈希）
+     */
+    String AI_RESULT_CACHE_KEY = "ai_result_cache:";
+
+    /**
+     * AI 生成结果缓存的索引（zset，score 为写入时间，用于按数量淘汰）
+     */
+    String AI_RESULT_CACHE_INDEX_KEY = "ai_result_cache_index";
+
+    /**
+     * AI 调用合并锁（跨节点合并相同内容的并发调用）
+     */
+    String AI_SINGLE_FLIGHT_LOCK_KEY = "ai_single_flight_lock:";
+
+    /**
+     * 图表状态变更的发布订阅频道
+     */
+    String CHART_EVENT_CHANNEL = "chart_event";
+
+    /**
+     * 用户排队中（已发送未完成）的图表任务数，用于计算消息优先级
+     */
+    String CHART_JOB_USER_PENDING_KEY = "chart_job_user_pending:";
+
+    /**
+     * 图表处理令牌（同一图表同时只有一个持有者调用 AI）
+     */
+    String CHART_PROCESSING_TOKEN_KEY = "chart_processing_token:";
+
+    /**
+     * 图表提交去重（key 为用户 id 和提交内容的哈希，值为图表 id）
+     */
+    String CHART_SUBMISSION_KEY = "chart_submission:";
+
+    /**
+     * 图表回收扫描的锁（同一时间只有一个节点扫描）
+     */
+    String CHART_RECOVERY_LOCK_KEY = "chart_recovery_lock";
+
 }
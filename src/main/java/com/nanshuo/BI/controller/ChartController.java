@@ -2,6 +2,7 @@
 package com.nanshuo.BI.controller;
 
 import cn.hutool.core.io.FileUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.nanshuo.BI.annotation.Check;
@@ -10,16 +11,28 @@ import com.nanshuo.BI.common.ApiResponse;
 import com.nanshuo.BI.common.ApiResult;
 import com.nanshuo.BI.common.CommonConstant;
 import com.nanshuo.BI.common.ErrorCode;
+import com.nanshuo.BI.config.AiConfig;
+import com.nanshuo.BI.config.ThreadPoolExecutorConfig;
 import com.nanshuo.BI.constant.PageConstant;
 import com.nanshuo.BI.constant.UserConstant;
 import com.nanshuo.BI.exception.BusinessException;
 import com.nanshuo.BI.manager.AiManager;
+import com.nanshuo.BI.manager.ChartEventManager;
+import com.nanshuo.BI.manager.ChartFanOutManager;
+import com.nanshuo.BI.manager.ChartIdempotencyManager;
+import com.nanshuo.BI.manager.LocalChartManager;
 import com.nanshuo.BI.manager.RedisLimiterManager;
+import com.nanshuo.BI.manager.ai.GenResultParser;
 import com.nanshuo.BI.model.domain.Chart;
+import com.nanshuo.BI.model.vo.ChartEventVO;
 import com.nanshuo.BI.model.domain.User;
 import com.nanshuo.BI.model.dto.IdRequest;
 import com.nanshuo.BI.model.dto.chart.*;
+import com.nanshuo.BI.model.enums.chart.ChartRouteEnums;
+import com.nanshuo.BI.model.enums.chart.ChartStatusEnums;
+import com.nanshuo.BI.model.enums.chart.OverloadPolicyEnums;
 import com.nanshuo.BI.model.vo.BiResponse;
+import com.nanshuo.BI.model.vo.ChartDetailVO;
 import com.nanshuo.BI.service.ChartService;
 import com.nanshuo.BI.service.UserService;
 import com.nanshuo.BI.utils.ExcelUtils;
@@ -31,15 +44,21 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.BeanUtils;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 图表接口
@@ -53,6 +72,16 @@ import java.util.concurrent.ThreadPoolExecutor;
 @Api(tags = "图表模块")
 public class ChartController {
 
+    /**
+     * 列表不查询的大字段
+     */
+    private static final List<String> LIST_EXCLUDED_COLUMNS = Arrays.asList("chart_data", "gen_chart", "gen_result");
+
+    /**
+     * 同步生成等待时间在 AI 调用超时时间之上的余量（毫秒），用于写库
+     */
+    private static final long SYNC_TIMEOUT_MARGIN_MS = 10000;
+
     @Resource
     private UserService userService;
     @Resource
@@ -62,9 +91,21 @@ public class ChartController {
     @Resource
     private AiManager aiManager;
     @Resource
-    private ThreadPoolExecutor threadPoolExecutor;
+    private Executor chartJobExecutor;
     @Resource
     private BiMessageProducer biMessageProducer;
+    @Resource
+    private ChartEventManager chartEventManager;
+    @Resource
+    private ThreadPoolExecutorConfig threadPoolExecutorConfig;
+    @Resource
+    private ChartIdempotencyManager chartIdempotencyManager;
+    @Resource
+    private LocalChartManager localChartManager;
+    @Resource
+    private ChartFanOutManager chartFanOutManager;
+    @Resource
+    private AiConfig aiConfig;
 
 
     // region 增删改查
@@ -178,6 +219,34 @@ public class ChartController {
         return ApiResult.success(chart);
     }
 
+    /**
+     * 获取图表数据和生成结果（列表接口不返回这些大字段）
+     *
+     * @param idRequest id请求
+     * @param request   请求
+     * @return {@code ApiResponse<ChartDetailVO>}
+     */
+    @GetMapping("/get/detail")
+    @Check(checkParam = true)
+    @ApiOperation(value = "获取图表数据和生成结果", notes = "获取图表数据和生成结果")
+    public ApiResponse<ChartDetailVO> getChartDetail(IdRequest idRequest, HttpServletRequest request) {
+        if (idRequest == null || idRequest.getId() <= 0) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+        }
+        LambdaQueryWrapper<Chart> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.select(Chart::getId, Chart::getUserId, Chart::getChartData, Chart::getGenChart,
+                        Chart::getGenResult, Chart::getStatus, Chart::getExecMessage)
+                .eq(Chart::getId, idRequest.getId());
+        Chart chart = chartService.getOne(queryWrapper);
+        ThrowUtils.throwIf(chart == null, ErrorCode.NOT_FOUND_ERROR);
+        // 仅本人或管理员可查看
+        User loginUser = userService.getLoginUser(request);
+        if (!chart.getUserId().equals(loginUser.getId()) && !userService.isAdmin(request)) {
+            throw new BusinessException(ErrorCode.NO_AUTH_ERROR);
+        }
+        return ApiResult.success(ChartDetailVO.of(chart));
+    }
+
     // endregion
 
     // region 分页查询
@@ -217,6 +286,8 @@ public class ChartController {
 
     /**
      * 处理分页和验证
+     * <p>
+     * 列表只查询元数据，图表数据和生成结果（chart_data、gen_chart、gen_result）通过 /chart/get/detail 按需获取
      *
      * @param ChartQueryRequest Chart查询请求
      * @param request          请求
@@ -227,7 +298,9 @@ public class ChartController {
         long size = ChartQueryRequest.getPageSize();
         // 限制爬虫
         ThrowUtils.throwIf(size > 20, ErrorCode.PARAMS_ERROR);
-        Page<Chart> chartPage =chartService.page(new Page<>(current, size), getQueryWrapper(ChartQueryRequest));
+        QueryWrapper<Chart> queryWrapper = getQueryWrapper(ChartQueryRequest);
+        queryWrapper.select(Chart.class, field -> !LIST_EXCLUDED_COLUMNS.contains(field.getColumn()));
+        Page<Chart> chartPage =chartService.page(new Page<>(current, size), queryWrapper);
         return chartPage;
     }
 
@@ -294,8 +367,9 @@ public class ChartController {
      */
     @PostMapping("/gen")
     @ApiOperation(value = "生成图表", notes = "生成图表")
-    public ApiResponse<BiResponse> genChartByAi(@RequestPart("file") MultipartFile multipartFile,
-                                                 GenChartByAiRequest genChartByAiRequest, HttpServletRequest request) {
+    public DeferredResult<ApiResponse<BiResponse>> genChartByAi(@RequestPart("file") MultipartFile multipartFile,
+                                                                 GenChartByAiRequest genChartByAiRequest,
+                                                                 HttpServletRequest request) {
         String name = genChartByAiRequest.getName();
         String goal = genChartByAiRequest.getGoal();
         String chartType = genChartByAiRequest.getChartType();
@@ -328,52 +402,71 @@ public class ChartController {
 //                "【【【【【\n" +
 //                "{明确的数据分析结论、越详细越好，不要生成多余的注释}";
         long biModelId = CommonConstant.BI_MODEL_ID;
-        // 分析需求：
-        // 分析网站用户的增长情况
-        // 原始数据：
-        // 日期,用户数
-        // 1号,10
-        // 2号,20
-        // 3号,30
-
-        // 构造用户输入
-        StringBuilder userInput = new StringBuilder();
-        userInput.append("分析需求：").append("\n");
-
-        // 拼接分析目标
-        String userGoal = goal;
-        if (StringUtils.isNotBlank(chartType)) {
-            userGoal += "，请使用" + chartType;
-        }
-        userInput.append(userGoal).append("\n");
-        userInput.append("原始数据：").append("\n");
-        // 压缩后的数据
         String csvData = ExcelUtils.excelToCsv(multipartFile);
-        userInput.append(csvData).append("\n");
-
-        String result = aiManager.doChat(biModelId, userInput.toString());
-        String[] splits = result.split("【【【【【");
-        if (splits.length < 3) {
-            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "AI 生成错误");
-        }
-        String genChart = splits[1].trim();
-        String genResult = splits[2].trim();
-        // 插入到数据库
         Chart chart = new Chart();
         chart.setName(name);
         chart.setGoal(goal);
         chart.setChartData(csvData);
         chart.setChartType(chartType);
-        chart.setGenChart(genChart);
-        chart.setGenResult(genResult);
+        chart.setStatus(ChartStatusEnums.RUNNING.getValue());
         chart.setUserId(loginUser.getId());
+        // 构造用户输入（数据过大时只压缩发给 AI 的副本）
+        String userInput = chartService.buildUserInput(chart);
+        // 先插入到数据库（执行中），等待超时后仍可按图表 id 查询或订阅生成结果
         boolean saveResult = chartService.save(chart);
         ThrowUtils.throwIf(!saveResult, ErrorCode.SYSTEM_ERROR, "图表保存失败");
-        BiResponse biResponse = new BiResponse();
-        biResponse.setGenChart(genChart);
-        biResponse.setGenResult(genResult);
-        biResponse.setChartId(chart.getId());
-        return ApiResult.success(biResponse);
+        // 持有处理令牌期间回收任务不会把图表重新排队
+        String token = chartIdempotencyManager.tryAcquireProcessing(chart.getId());
+
+        // 能本地生成图表配置时 AI 只生成分析结论，开启并行生成且输入较长时图表配置和分析结论并发生成
+        long start = System.currentTimeMillis();
+        String localChart = localChartManager.generate(chart);
+        ChartRouteEnums route;
+        CompletableFuture<GenResultParser> genResult;
+        if (localChart != null) {
+            route = ChartRouteEnums.LOCAL;
+            genResult = localChartManager.genNarrative(biModelId, userInput, localChart);
+        } else if (chartFanOutManager.isEligible(userInput)) {
+            route = ChartRouteEnums.FAN_OUT;
+            genResult = chartFanOutManager.generate(biModelId, userInput, null, null);
+        } else {
+            route = ChartRouteEnums.AI;
+            genResult = aiManager.doChatAsync(biModelId, userInput).thenApply(GenResultParser::parse);
+        }
+        // 等待 AI 结果期间不占用 servlet 线程；等待超过 AI 调用超时时间后返回图表 id 和状态，生成结果仍会写入图表
+        long aiTimeout = aiConfig.getTimeout();
+        DeferredResult<ApiResponse<BiResponse>> result = new DeferredResult<>(
+                aiTimeout > 0 ? aiTimeout + SYNC_TIMEOUT_MARGIN_MS : -1L, () -> {
+            log.warn("同步生成图表等待超时，chartId = {}", chart.getId());
+            BiResponse biResponse = new BiResponse();
+            biResponse.setChartId(chart.getId());
+            biResponse.setStatus(ChartStatusEnums.RUNNING.getValue());
+            return ApiResult.success(biResponse);
+        });
+        localChartManager.record(route, start, genResult).whenCompleteAsync((parser, throwable) -> {
+            try {
+                handleGenChartResult(chart, parser, throwable);
+                if (throwable != null) {
+                    Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                            ? throwable.getCause() : throwable;
+                    result.setErrorResult(cause instanceof BusinessException ? cause
+                            : new BusinessException(ErrorCode.SYSTEM_ERROR, "AI 调用失败"));
+                } else if (!parser.isComplete()) {
+                    result.setErrorResult(new BusinessException(ErrorCode.SYSTEM_ERROR, "AI 生成错误"));
+                } else {
+                    chart.setGenChart(parser.getGenChart());
+                    chart.setGenResult(parser.getGenResult());
+                    chart.setStatus(ChartStatusEnums.SUCCEED.getValue());
+                    result.setResult(ApiResult.success(toBiResponse(chart)));
+                }
+            } catch (Exception e) {
+                log.error("保存图表生成结果失败，chartId = {}", chart.getId(), e);
+                result.setErrorResult(e);
+            } finally {
+                chartIdempotencyManager.releaseProcessing(chart.getId(), token);
+            }
+        }, this::executeCompletion);
+        return result;
     }
 
     /**
@@ -419,77 +512,138 @@ public class ChartController {
 //                "【【【【【\n" +
 //                "{明确的数据分析结论、越详细越好，不要生成多余的注释}";
         long biModelId = 1659171950288818178L;
-        // 分析需求：
-        // 分析网站用户的增长情况
-        // 原始数据：
-        // 日期,用户数
-        // 1号,10
-        // 2号,20
-        // 3号,30
-
-        // 构造用户输入
-        StringBuilder userInput = new StringBuilder();
-        userInput.append("分析需求：").append("\n");
-
-        // 拼接分析目标
-        String userGoal = goal;
-        if (StringUtils.isNotBlank(chartType)) {
-            userGoal += "，请使用" + chartType;
-        }
-        userInput.append(userGoal).append("\n");
-        userInput.append("原始数据：").append("\n");
-        // 压缩后的数据
         String csvData = ExcelUtils.excelToCsv(multipartFile);
-        userInput.append(csvData).append("\n");
-
-        // 插入到数据库
         Chart chart = new Chart();
         chart.setName(name);
         chart.setGoal(goal);
         chart.setChartData(csvData);
         chart.setChartType(chartType);
-        chart.setStatus("wait");
+        chart.setStatus(ChartStatusEnums.WAIT.getValue());
         chart.setUserId(loginUser.getId());
-        boolean saveResult = chartService.save(chart);
-        ThrowUtils.throwIf(!saveResult, ErrorCode.SYSTEM_ERROR, "图表保存失败");
+        // 构造用户输入（数据过大时只压缩发给 AI 的副本）
+        String userInput = chartService.buildUserInput(chart);
+        // 相同的内容已生成过，直接写入结果，无需提交任务
+        boolean cacheHit = fillFromCachedResult(chart, biModelId, userInput);
+        // 重复提交直接返回已提交的图表，不再调用 AI
+        String submissionKey = chartIdempotencyManager.submissionKey(loginUser.getId(), name, goal, chartType, csvData);
+        Chart submittedChart = findSubmittedChart(submissionKey);
+        if (submittedChart != null) {
+            return ApiResult.success(toBiResponse(submittedChart));
+        }
 
-        // todo 建议处理任务队列满了后，抛异常的情况
-        CompletableFuture.runAsync(() -> {
-            // 先修改图表任务状态为 “执行中”。等执行成功后，修改为 “已完成”、保存执行结果；执行失败后，状态修改为 “失败”，记录任务失败信息。
-            Chart updateChart = new Chart();
-            updateChart.setId(chart.getId());
-            updateChart.setStatus("running");
-            boolean b = chartService.updateById(updateChart);
-            if (!b) {
-                handleChartUpdateError(chart.getId(), "更新图表执行中状态失败");
-                return;
-            }
-            // 调用 AI
-            String result = aiManager.doChat(biModelId, userInput.toString());
-            String[] splits = result.split("【【【【【");
-            if (splits.length < 3) {
-                handleChartUpdateError(chart.getId(), "AI 生成错误");
-                return;
-            }
-            String genChart = splits[1].trim();
-            String genResult = splits[2].trim();
-            Chart updateChartResult = new Chart();
-            updateChartResult.setId(chart.getId());
-            updateChartResult.setGenChart(genChart);
-            updateChartResult.setGenResult(genResult);
-            // todo 建议定义状态为枚举值
-            updateChartResult.setStatus("succeed");
-            boolean updateResult = chartService.updateById(updateChartResult);
-            if (!updateResult) {
-                handleChartUpdateError(chart.getId(), "更新图表成功状态失败");
+        // 插入到数据库
+        saveSubmittedChart(submissionKey, chart);
+        if (cacheHit) {
+            return ApiResult.success(toBiResponse(chart));
+        }
+
+        // 图表任务执行器已满时按配置拒绝（429）或转入消息队列，图表状态与实际处理情况保持一致
+        try {
+            submitGenChartTask(chart, biModelId, userInput);
+        } catch (RejectedExecutionException e) {
+            OverloadPolicyEnums overloadPolicy =
+                    OverloadPolicyEnums.getEnumByValue(threadPoolExecutorConfig.getOverloadPolicy());
+            if (OverloadPolicyEnums.MQ.equals(overloadPolicy)) {
+                log.warn("图表任务执行器已满，转入消息队列处理，chartId = {}", chart.getId());
+                biMessageProducer.sendChartJob(chart, loginUser);
+            } else {
+                handleChartUpdateError(chart.getId(), "系统繁忙，请稍后重试");
+                throw new BusinessException(ErrorCode.TOO_MANY_REQUEST, "系统繁忙，请稍后重试");
             }
-        }, threadPoolExecutor);
+        }
 
         BiResponse biResponse = new BiResponse();
         biResponse.setChartId(chart.getId());
         return ApiResult.success(biResponse);
     }
 
+    /**
+     * 提交异步生成图表任务
+     *
+     * @param chart     图表
+     * @param biModelId 模型 id
+     * @param userInput 用户输入
+     * @throws RejectedExecutionException 图表任务执行器已满
+     */
+    private void submitGenChartTask(Chart chart, long biModelId, String userInput) {
+        // 与消息队列消费者相同，持有处理令牌期间回收任务不会把图表重新排队
+        AtomicReference<String> token = new AtomicReference<>();
+        CompletableFuture.supplyAsync(() -> {
+            token.set(chartIdempotencyManager.tryAcquireProcessing(chart.getId()));
+            if (token.get() == null) {
+                log.warn("图表正在被其他任务处理，跳过生成，chartId = {}", chart.getId());
+                return false;
+            }
+            // 先修改图表任务状态为 “执行中”（条件更新 wait -> running）。等执行成功后，修改为 “已完成”、保存执行结果；执行失败后，状态修改为 “失败”，记录任务失败信息。
+            if (!chartService.compareAndSetStatus(chart.getId(), ChartStatusEnums.WAIT, ChartStatusEnums.RUNNING)) {
+                // 图表已被其他任务处理，不再调用 AI
+                log.warn("图表不是等待状态，跳过生成，chartId = {}", chart.getId());
+                return false;
+            }
+            chartEventManager.publish(ChartEventVO.of(chart.getId(), ChartStatusEnums.RUNNING.getValue()));
+            return true;
+        }, chartJobExecutor).thenCompose(started -> started
+                        ? chartService.genChart(chart, biModelId, userInput)
+                        : CompletableFuture.<GenResultParser>completedFuture(null))
+                // 调用 AI 期间不占用业务线程，图表配置生成后先入库，全部生成后再回到业务线程池写入分析结论
+                .whenCompleteAsync((parser, throwable) -> {
+                    try {
+                        handleGenChartResult(chart, parser, throwable);
+                    } finally {
+                        chartIdempotencyManager.releaseProcessing(chart.getId(), token.get());
+                    }
+                }, this::executeCompletion);
+    }
+
+    /**
+     * 保存异步生成图表任务的结果
+     *
+     * @param chart     图表
+     * @param parser    AI 生成结果，未开始生成时为 null
+     * @param throwable 调用异常
+     */
+    private void handleGenChartResult(Chart chart, GenResultParser parser, Throwable throwable) {
+        if (throwable != null) {
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause() : throwable;
+            log.error("图表生成失败，chartId = {}", chart.getId(), cause);
+            // 熔断、排队已满等业务异常记录原因，用户可稍后重试
+            handleChartUpdateError(chart.getId(),
+                    cause instanceof BusinessException ? cause.getMessage() : "AI 调用失败");
+            return;
+        }
+        if (parser == null) {
+            return;
+        }
+        if (!parser.isComplete()) {
+            handleChartUpdateError(chart.getId(), "AI 生成错误");
+            return;
+        }
+        Chart updateChartResult = new Chart();
+        updateChartResult.setId(chart.getId());
+        updateChartResult.setGenChart(parser.getGenChart());
+        updateChartResult.setGenResult(parser.getGenResult());
+        if (!chartService.markSucceed(chart.getId(), updateChartResult)) {
+            // 图表已是终态（如已被删除），结果不再写入
+            log.warn("图表已结束，丢弃生成结果，chartId = {}", chart.getId());
+            return;
+        }
+        chartEventManager.publish(ChartEventVO.of(updateChartResult));
+    }
+
+    /**
+     * 在图表任务执行器中执行 AI 调用完成后的写库任务，已满时在当前线程执行，保证结果一定会落库
+     *
+     * @param task 任务
+     */
+    private void executeCompletion(Runnable task) {
+        try {
+            chartJobExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
     /**
      * ai async mq生成图表
      *
@@ -533,55 +687,146 @@ public class ChartController {
 //                "【【【【【\n" +
 //                "{明确的数据分析结论、越详细越好，不要生成多余的注释}";
         long biModelId = 1659171950288818178L;
-        // 分析需求：
-        // 分析网站用户的增长情况
-        // 原始数据：
-        // 日期,用户数
-        // 1号,10
-        // 2号,20
-        // 3号,30
-
-        // 构造用户输入
-        StringBuilder userInput = new StringBuilder();
-        userInput.append("分析需求：").append("\n");
-
-        // 拼接分析目标
-        String userGoal = goal;
-        if (StringUtils.isNotBlank(chartType)) {
-            userGoal += "，请使用" + chartType;
-        }
-        userInput.append(userGoal).append("\n");
-        userInput.append("原始数据：").append("\n");
-        // 压缩后的数据
         String csvData = ExcelUtils.excelToCsv(multipartFile);
-        userInput.append(csvData).append("\n");
-
         // 插入到数据库
         Chart chart = new Chart();
         chart.setName(name);
         chart.setGoal(goal);
         chart.setChartData(csvData);
         chart.setChartType(chartType);
-        chart.setStatus("wait");
+        chart.setStatus(ChartStatusEnums.WAIT.getValue());
         chart.setUserId(loginUser.getId());
-        boolean saveResult = chartService.save(chart);
-        ThrowUtils.throwIf(!saveResult, ErrorCode.SYSTEM_ERROR, "图表保存失败");
+        // 相同的内容已生成过，直接写入结果，无需发送消息
+        boolean cacheHit = fillFromCachedResult(chart, biModelId, chartService.buildUserInput(chart));
+        // 重复提交直接返回已提交的图表，不再发送消息
+        String submissionKey = chartIdempotencyManager.submissionKey(loginUser.getId(), name, goal, chartType, csvData);
+        Chart submittedChart = findSubmittedChart(submissionKey);
+        if (submittedChart != null) {
+            return ApiResult.success(toBiResponse(submittedChart));
+        }
+        saveSubmittedChart(submissionKey, chart);
+        if (cacheHit) {
+            return ApiResult.success(toBiResponse(chart));
+        }
         long newChartId = chart.getId();
-        biMessageProducer.sendMessage(String.valueOf(newChartId));
+        biMessageProducer.sendChartJob(chart, loginUser);
         BiResponse biResponse = new BiResponse();
         biResponse.setChartId(newChartId);
         return ApiResult.success(biResponse);
     }
 
+    /**
+     * 订阅异步生成的图表状态（SSE），状态变更时推送，生成结束后关闭连接，替代轮询 /chart/get
+     *
+     * @param idRequest id请求
+     * @param request   请求
+     * @return {@link SseEmitter }
+     */
+    @GetMapping(value = "/subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ApiOperation(value = "订阅图表生成状态", notes = "订阅图表生成状态")
+    public SseEmitter subscribeChart(IdRequest idRequest, HttpServletRequest request) {
+        if (idRequest == null || idRequest.getId() == null || idRequest.getId() <= 0) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR);
+        }
+        long id = idRequest.getId();
+        // 先订阅再查询当前状态，避免错过两者之间的状态变更
+        SseEmitter emitter = chartEventManager.subscribe(id);
+        Chart chart;
+        try {
+            User loginUser = userService.getLoginUser(request);
+            chart = chartService.getById(id);
+            ThrowUtils.throwIf(chart == null, ErrorCode.NOT_FOUND_ERROR);
+            if (!chart.getUserId().equals(loginUser.getId()) && !userService.isAdmin(request)) {
+                throw new BusinessException(ErrorCode.NO_AUTH_ERROR);
+            }
+        } catch (RuntimeException e) {
+            chartEventManager.removeEmitter(id, emitter);
+            throw e;
+        }
+        chartEventManager.sendSnapshot(emitter, ChartEventVO.of(chart));
+        return emitter;
+    }
+
+    /**
+     * 命中 AI 结果缓存时，直接填充生成结果并标记为成功
+     *
+     * @param chart     图表
+     * @param biModelId 模型 id
+     * @param userInput 用户输入
+     * @return 是否命中
+     */
+    private boolean fillFromCachedResult(Chart chart, long biModelId, String userInput) {
+        GenResultParser parser = GenResultParser.parse(aiManager.getCachedResult(biModelId, userInput));
+        if (!parser.isComplete()) {
+            return false;
+        }
+        chart.setGenChart(parser.getGenChart());
+        chart.setGenResult(parser.getGenResult());
+        chart.setStatus(ChartStatusEnums.SUCCEED.getValue());
+        return true;
+    }
+
+    /**
+     * 查找窗口内重复提交的图表，没有时登记本次提交；已提交的图表失败或已删除时允许重新提交
+     *
+     * @param submissionKey 提交去重的 key
+     * @return 已提交的图表，没有时返回 null
+     */
+    private Chart findSubmittedChart(String submissionKey) {
+        Long submittedChartId = chartIdempotencyManager.acquireSubmission(submissionKey);
+        if (submittedChartId == null) {
+            return null;
+        }
+        Chart submittedChart = chartService.getById(submittedChartId);
+        if (submittedChart != null && !ChartStatusEnums.FAILED.getValue().equals(submittedChart.getStatus())) {
+            return submittedChart;
+        }
+        chartIdempotencyManager.releaseSubmission(submissionKey);
+        ThrowUtils.throwIf(chartIdempotencyManager.acquireSubmission(submissionKey) != null,
+                ErrorCode.TOO_MANY_REQUEST, "请勿重复提交");
+        return null;
+    }
+
+    /**
+     * 保存提交的图表并记录提交去重的 key，保存失败（含异常）时释放 key，避免相同内容在 key 过期前无法再次提交
+     *
+     * @param submissionKey 提交去重的 key
+     * @param chart         图表
+     */
+    private void saveSubmittedChart(String submissionKey, Chart chart) {
+        try {
+            boolean saveResult = chartService.save(chart);
+            ThrowUtils.throwIf(!saveResult, ErrorCode.SYSTEM_ERROR, "图表保存失败");
+            chartIdempotencyManager.completeSubmission(submissionKey, chart.getId());
+        } catch (RuntimeException e) {
+            chartIdempotencyManager.releaseSubmission(submissionKey);
+            throw e;
+        }
+    }
+
+    /**
+     * 图表转 Bi 返回结果
+     *
+     * @param chart 图表
+     * @return {@link BiResponse }
+     */
+    private BiResponse toBiResponse(Chart chart) {
+        BiResponse biResponse = new BiResponse();
+        biResponse.setGenChart(chart.getGenChart());
+        biResponse.setGenResult(chart.getGenResult());
+        biResponse.setChartId(chart.getId());
+        biResponse.setStatus(chart.getStatus());
+        return biResponse;
+    }
+
     private void handleChartUpdateError(long chartId, String execMessage) {
-        Chart updateChartResult = new Chart();
-        updateChartResult.setId(chartId);
-        updateChartResult.setStatus("failed");
-        updateChartResult.setExecMessage("execMessage");
-        boolean updateResult = chartService.updateById(updateChartResult);
+        boolean updateResult = chartService.markFailed(chartId, execMessage);
         if (!updateResult) {
             log.error("更新图表失败状态失败" + chartId + "," + execMessage);
         }
+        ChartEventVO event = ChartEventVO.of(chartId, ChartStatusEnums.FAILED.getValue());
+        event.setExecMessage(execMessage);
+        chartEventManager.publish(event);
     }
 
 }
@@ -0,0 +1,173 @@
+package com.nanshuo.BI.controller;
+
+import com.nanshuo.BI.annotation.Check;
+import com.nanshuo.BI.bizmq.BiQueueScaler;
+import com.nanshuo.BI.common.ApiResponse;
+import com.nanshuo.BI.common.ApiResult;
+import com.nanshuo.BI.common.ErrorCode;
+import com.nanshuo.BI.constant.UserConstant;
+import com.nanshuo.BI.manager.AiBatchManager;
+import com.nanshuo.BI.manager.AiManager;
+import com.nanshuo.BI.manager.AiResultCacheManager;
+import com.nanshuo.BI.manager.ChartFanOutManager;
+import com.nanshuo.BI.manager.LocalChartManager;
+import com.nanshuo.BI.model.dto.monitor.ExecutorResizeRequest;
+import com.nanshuo.BI.utils.ThrowUtils;
+import com.nanshuo.BI.utils.concurrent.MonitoredThreadPoolExecutor;
+import com.nanshuo.BI.utils.concurrent.SemaphoreBoundedExecutor;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.*;
+
+import javax.annotation.Resource;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * 监控接口（仅管理员）
+ *
+ * @author nanshuo
+ * @date 2026/10/18 15:10:33
+ */
+@RestController
+@RequestMapping("/monitor")
+@Slf4j
+@Api(tags = "监控模块")
+public class MonitorController {
+
+    @Resource
+    private AiResultCacheManager aiResultCacheManager;
+
+    @Resource
+    private AiManager aiManager;
+
+    @Resource
+    private AiBatchManager aiBatchManager;
+
+    @Resource
+    private LocalChartManager localChartManager;
+
+    @Resource
+    private ChartFanOutManager chartFanOutManager;
+
+    @Resource
+    private MonitoredThreadPoolExecutor threadPoolExecutor;
+
+    @Resource
+    private Executor chartJobExecutor;
+
+    @Resource
+    private BiQueueScaler biQueueScaler;
+
+    /**
+     * AI 调用统计
+     *
+     * @return {@code ApiResponse<Map<String, Object>>}
+     */
+    @GetMapping("/ai")
+    @Check(checkAuth = UserConstant.ADMIN_ROLE)
+    @ApiOperation(value = "AI 调用统计（仅管理员）", notes = "AI 调用统计（仅管理员）")
+    public ApiResponse<Map<String, Object>> getAiStats() {
+        return ApiResult.success(aiManager.getStats());
+    }
+
+    /**
+     * AI 结果缓存统计
+     *
+     * @return {@code ApiResponse<Map<String, Object>>}
+     */
+    @GetMapping("/ai/cache")
+    @Check(checkAuth = UserConstant.ADMIN_ROLE)
+    @ApiOperation(value = "AI 结果缓存统计（仅管理员）", notes = "AI 结果缓存统计（仅管理员）")
+    public ApiResponse<Map<String, Object>> getAiCacheStats() {
+        return ApiResult.success(aiResultCacheManager.getStats());
+    }
+
+    /**
+     * AI 合批调用统计（批大小、批次耗时直方图）
+     *
+     * @return {@code ApiResponse<Map<String, Object>>}
+     */
+    @GetMapping("/ai/batch")
+    @Check(checkAuth = UserConstant.ADMIN_ROLE)
+    @ApiOperation(value = "AI 合批调用统计（仅管理员）", notes = "AI 合批调用统计（仅管理员）")
+    public ApiResponse<Map<String, Object>> getAiBatchStats() {
+        return ApiResult.success(aiBatchManager.getStats());
+    }
+
+    /**
+     * 图表生成路径统计（本地生成图表配置 / AI 生成）
+     *
+     * @return {@code ApiResponse<Map<String, Object>>}
+     */
+    @GetMapping("/chart/route")
+    @Check(checkAuth = UserConstant.ADMIN_ROLE)
+    @ApiOperation(value = "图表生成路径统计（仅管理员）", notes = "图表生成路径统计（仅管理员）")
+    public ApiResponse<Map<String, Object>> getChartRouteStats() {
+        return ApiResult.success(localChartManager.getStats());
+    }
+
+    /**
+     * 并行生成统计（图表配置重新生成次数、两部分各自的耗时）
+     *
+     * @return {@code ApiResponse<Map<String, Object>>}
+     */
+    @GetMapping("/chart/fan-out")
+    @Check(checkAuth = UserConstant.ADMIN_ROLE)
+    @ApiOperation(value = "并行生成统计（仅管理员）", notes = "并行生成统计（仅管理员）")
+    public ApiResponse<Map<String, Object>> getChartFanOutStats() {
+        return ApiResult.success(chartFanOutManager.getStats());
+    }
+
+    /**
+     * 业务线程池统计
+     *
+     * @return {@code ApiResponse<Map<String, Object>>}
+     */
+    @GetMapping("/executor")
+    @Check(checkAuth = UserConstant.ADMIN_ROLE)
+    @ApiOperation(value = "业务线程池统计（仅管理员）", notes = "业务线程池统计（仅管理员）")
+    public ApiResponse<Map<String, Object>> getExecutorStats() {
+        Map<String, Object> stats = threadPoolExecutor.getStats();
+        if (chartJobExecutor instanceof SemaphoreBoundedExecutor) {
+            stats.put("virtualThreads", ((SemaphoreBoundedExecutor) chartJobExecutor).getStats());
+        }
+        return ApiResult.success(stats);
+    }
+
+    /**
+     * 调整业务线程池大小（立即生效，重启后恢复为配置值）
+     *
+     * @param executorResizeRequest 线程池调整请求
+     * @return {@code ApiResponse<Map<String, Object>>}
+     */
+    @PostMapping("/executor")
+    @Check(checkAuth = UserConstant.ADMIN_ROLE)
+    @ApiOperation(value = "调整业务线程池大小（仅管理员）", notes = "调整业务线程池大小（仅管理员）")
+    public ApiResponse<Map<String, Object>> resizeExecutor(@RequestBody ExecutorResizeRequest executorResizeRequest) {
+        ThrowUtils.throwIf(executorResizeRequest == null, ErrorCode.PARAMS_ERROR);
+        int corePoolSize = executorResizeRequest.getCorePoolSize() == null
+                ? threadPoolExecutor.getCorePoolSize() : executorResizeRequest.getCorePoolSize();
+        int maxPoolSize = executorResizeRequest.getMaxPoolSize() == null
+                ? threadPoolExecutor.getMaximumPoolSize() : executorResizeRequest.getMaxPoolSize();
+        int queueCapacity = executorResizeRequest.getQueueCapacity() == null
+                ? threadPoolExecutor.getQueueCapacity() : executorResizeRequest.getQueueCapacity();
+        threadPoolExecutor.resize(corePoolSize, maxPoolSize, queueCapacity);
+        log.info("业务线程池已调整：core = {}, max = {}, queue = {}", corePoolSize, maxPoolSize, queueCapacity);
+        return ApiResult.success(threadPoolExecutor.getStats());
+    }
+
+    /**
+     * 图表生成队列消费统计（积压数、消费者数、消费速度、预计消化时间）
+     *
+     * @return {@code ApiResponse<Map<String, Object>>}
+     */
+    @GetMapping("/mq")
+    @Check(checkAuth = UserConstant.ADMIN_ROLE)
+    @ApiOperation(value = "图表生成队列消费统计（仅管理员）", notes = "图表生成队列消费统计（仅管理员）")
+    public ApiResponse<Map<String, Object>> getMqStats() {
+        return ApiResult.success(biQueueScaler.getStats());
+    }
+
+}
@@ -4,9 +4,12 @@ import com.nanshuo.BI.common.ApiResponse;
 import com.nanshuo.BI.common.ErrorCode;
 import com.nanshuo.BI.common.ApiResult;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import javax.servlet.http.HttpServletResponse;
+
 /**
  * 全局异常处理程序
  *
@@ -24,8 +27,12 @@ public class GlobalExceptionHandler {
      * @return {@code ApiResponse<?>}
      */
     @ExceptionHandler(BusinessException.class)
-    public ApiResponse<?> businessExceptionHandler(BusinessException e) {
+    public ApiResponse<?> businessExceptionHandler(BusinessException e, HttpServletResponse response) {
         log.error("BusinessException", e);
+        // 过载时返回 429，便于网关和前端按标准状态码退避重试
+        if (e.getCode() == ErrorCode.TOO_MANY_REQUEST.getCode()) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        }
         return ApiResult.fail(e.getCode(), e.getMessage());
     }
 
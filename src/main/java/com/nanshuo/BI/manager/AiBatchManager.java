@@ -0,0 +1,311 @@
+package com.nanshuo.BI.manager;
+
+import com.nanshuo.BI.common.CommonConstant;
+import com.nanshuo.BI.config.AiBatchConfig;
+import com.nanshuo.BI.manager.ai.GenResultParser;
+import com.nanshuo.BI.manager.ai.LatencyRecorder;
+import com.nanshuo.BI.model.domain.Chart;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * 小图表任务合批调用 AI
+ * <p>
+ * 同一模型的小任务最多凑 maxBatchSize 个或等待 maxWaitMs 后合成一个多段 prompt 调用一次 AI，
+ * 返回内容按分隔符（【【【【【）依次拆成每个任务的图表配置和分析结论；段数不符时退回逐个调用
+ *
+ * @author nanshuo
+ * @date 2026/10/18 21:38:05
+ */
+@Component
+@Slf4j
+public class AiBatchManager {
+
+    private static final String SEPARATOR = CommonConstant.GEN_SEPARATOR;
+
+    /**
+     * 分析结论末尾模型回显的下一个任务标题
+     */
+    private static final Pattern TRAILING_TASK_TITLE = Pattern.compile("\\s*任务\\s*\\d+\\s*[：:]?\\s*$");
+
+    /**
+     * 批次耗时直方图的桶上界（毫秒），最后一个桶为更大的耗时
+     */
+    private static final long[] LATENCY_BUCKETS = {500, 1000, 2000, 5000, 10000, 30000};
+
+    @Resource
+    private AiManager aiManager;
+
+    @Resource
+    private AiBatchConfig aiBatchConfig;
+
+    /**
+     * 按模型 id 分组的待发送批次
+     */
+    private final Map<Long, Batch> pendingBatches = new HashMap<>();
+
+    private ScheduledExecutorService batchScheduler;
+
+    private final LongAdder batches = new LongAdder();
+
+    private final LongAdder batchedJobs = new LongAdder();
+
+    private final LongAdder fallbacks = new LongAdder();
+
+    /**
+     * 批大小直方图，下标为批大小
+     */
+    private AtomicLongArray batchSizeHistogram;
+
+    /**
+     * 批次耗时直方图，下标对应 LATENCY_BUCKETS
+     */
+    private final AtomicLongArray batchLatencyHistogram = new AtomicLongArray(LATENCY_BUCKETS.length + 1);
+
+    private final LatencyRecorder batchLatency = new LatencyRecorder(1000);
+
+    @PostConstruct
+    public void init() {
+        batchSizeHistogram = new AtomicLongArray(Math.max(1, aiBatchConfig.getMaxBatchSize()) + 1);
+        batchScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ai-batch-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        batchScheduler.shutdownNow();
+    }
+
+    /**
+     * 图表是否可以合批
+     *
+     * @param chart 图表
+     * @return boolean
+     */
+    public boolean isEligible(Chart chart) {
+        return aiBatchConfig.isEnabled() && aiBatchConfig.getMaxBatchSize() > 1 && chart.getChartData() != null
+                && chart.getChartData().getBytes(StandardCharsets.UTF_8).length <= aiBatchConfig.getMaxDataBytes();
+    }
+
+    /**
+     * 提交一个任务，凑满一批或等待超时后发送
+     *
+     * @param modelId   模型 id
+     * @param userInput 用户输入
+     * @return 该任务的生成结果
+     */
+    public CompletableFuture<GenResultParser> submit(long modelId, String userInput) {
+        BatchItem item = new BatchItem(userInput);
+        Batch full = null;
+        synchronized (pendingBatches) {
+            Batch batch = pendingBatches.get(modelId);
+            if (batch == null) {
+                Batch newBatch = new Batch(modelId);
+                pendingBatches.put(modelId, newBatch);
+                newBatch.timer = batchScheduler.schedule(() -> flushIfPending(newBatch),
+                        aiBatchConfig.getMaxWaitMs(), TimeUnit.MILLISECONDS);
+                batch = newBatch;
+            }
+            batch.items.add(item);
+            if (batch.items.size() >= aiBatchConfig.getMaxBatchSize()) {
+                pendingBatches.remove(modelId);
+                batch.timer.cancel(false);
+                full = batch;
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return item.result;
+    }
+
+    /**
+     * 等待超时：批次还未发送则发送
+     *
+     * @param batch 批次
+     */
+    private void flushIfPending(Batch batch) {
+        synchronized (pendingBatches) {
+            if (!pendingBatches.remove(batch.modelId, batch)) {
+                return;
+            }
+        }
+        send(batch);
+    }
+
+    /**
+     * 发送一个批次
+     *
+     * @param batch 批次
+     */
+    private void send(Batch batch) {
+        List<BatchItem> items = batch.items;
+        int size = items.size();
+        batches.increment();
+        batchedJobs.add(size);
+        batchSizeHistogram.incrementAndGet(Math.min(size, batchSizeHistogram.length() - 1));
+        if (size == 1) {
+            callSingle(batch.modelId, items.get(0));
+            return;
+        }
+        long start = System.currentTimeMillis();
+        List<String> inputs = new ArrayList<>(size);
+        for (BatchItem item : items) {
+            inputs.add(item.userInput);
+        }
+        aiManager.doChatAsync(batch.modelId, buildBatchPrompt(inputs)).whenComplete((content, throwable) -> {
+            recordLatency(System.currentTimeMillis() - start);
+            List<GenResultParser> parsers = throwable == null ? demultiplex(content, size) : null;
+            if (parsers == null) {
+                // 合批失败不影响单个任务，退回逐个调用
+                fallbacks.increment();
+                log.warn("合批调用 AI 失败或返回段数不符，退回逐个调用，size = {}", size, throwable);
+                for (BatchItem item : items) {
+                    callSingle(batch.modelId, item);
+                }
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                items.get(i).result.complete(parsers.get(i));
+            }
+        });
+    }
+
+    private void callSingle(long modelId, BatchItem item) {
+        aiManager.doChatAsync(modelId, item.userInput).whenComplete((content, throwable) -> {
+            if (throwable != null) {
+                item.result.completeExceptionally(throwable);
+            } else {
+                item.result.complete(GenResultParser.parse(content));
+            }
+        });
+    }
+
+    private void recordLatency(long latencyMs) {
+        batchLatency.record(latencyMs);
+        int bucket = 0;
+        while (bucket < LATENCY_BUCKETS.length && latencyMs > LATENCY_BUCKETS[bucket]) {
+            bucket++;
+        }
+        batchLatencyHistogram.incrementAndGet(bucket);
+    }
+
+    /**
+     * 构造多段 prompt，每个任务按原格式输出
+     *
+     * @param userInputs 各任务的用户输入
+     * @return {@link String}
+     */
+    static String buildBatchPrompt(List<String> userInputs) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("以下共有 ").append(userInputs.size()).append(" 个相互独立的任务，请按顺序分别完成，")
+                .append("每个任务都按固定格式输出（").append(SEPARATOR).append(" 图表配置 ").append(SEPARATOR)
+                .append(" 分析结论），任务之间不要输出其他内容\n");
+        for (int i = 0; i < userInputs.size(); i++) {
+            prompt.append("任务 ").append(i + 1).append("：\n").append(userInputs.get(i)).append("\n");
+        }
+        return prompt.toString();
+    }
+
+    /**
+     * 按分隔符拆分合批结果：第一个分隔符之前的内容忽略，之后依次为每个任务的图表配置和分析结论
+     *
+     * @param content 合批结果
+     * @param count   任务数
+     * @return 每个任务的解析结果，段数不符或有任务的图表配置、分析结论为空时返回 null
+     */
+    static List<GenResultParser> demultiplex(String content, int count) {
+        if (content == null) {
+            return null;
+        }
+        String[] parts = content.split(SEPARATOR, -1);
+        if (parts.length != 1 + 2 * count) {
+            return null;
+        }
+        List<GenResultParser> parsers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String genChart = parts[1 + 2 * i];
+            String genResult = TRAILING_TASK_TITLE.matcher(parts[2 + 2 * i]).replaceFirst("");
+            GenResultParser parser = GenResultParser.parse(SEPARATOR + genChart + SEPARATOR + genResult);
+            if (StringUtils.isBlank(parser.getGenChart()) || StringUtils.isBlank(parser.getGenResult())) {
+                return null;
+            }
+            parsers.add(parser);
+        }
+        return parsers;
+    }
+
+    /**
+     * 合批统计
+     *
+     * @return {@code Map<String, Object>}
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", aiBatchConfig.isEnabled());
+        stats.put("maxBatchSize", aiBatchConfig.getMaxBatchSize());
+        stats.put("maxWaitMs", aiBatchConfig.getMaxWaitMs());
+        stats.put("batches", batches.sum());
+        stats.put("batchedJobs", batchedJobs.sum());
+        stats.put("fallbacks", fallbacks.sum());
+        Map<String, Long> sizeHistogram = new LinkedHashMap<>();
+        for (int i = 1; i < batchSizeHistogram.length(); i++) {
+            sizeHistogram.put(String.valueOf(i), batchSizeHistogram.get(i));
+        }
+        stats.put("batchSizeHistogram", sizeHistogram);
+        Map<String, Long> latencyHistogram = new LinkedHashMap<>();
+        for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+            latencyHistogram.put("<=" + LATENCY_BUCKETS[i] + "ms", batchLatencyHistogram.get(i));
+        }
+        latencyHistogram.put(">" + LATENCY_BUCKETS[LATENCY_BUCKETS.length - 1] + "ms",
+                batchLatencyHistogram.get(LATENCY_BUCKETS.length));
+        stats.put("batchLatencyHistogram", latencyHistogram);
+        stats.put("batchLatencyP50Ms", batchLatency.percentile(0.5));
+        stats.put("batchLatencyP95Ms", batchLatency.percentile(0.95));
+        return stats;
+    }
+
+    /**
+     * 同一模型的一批任务
+     */
+    private static class Batch {
+
+        private final long modelId;
+
+        private final List<BatchItem> items = new ArrayList<>();
+
+        private ScheduledFuture<?> timer;
+
+        private Batch(long modelId) {
+            this.modelId = modelId;
+        }
+    }
+
+    /**
+     * 批次中的一个任务
+     */
+    private static class BatchItem {
+
+        private final String userInput;
+
+        private final CompletableFuture<GenResultParser> result = new CompletableFuture<>();
+
+        private BatchItem(String userInput) {
+            this.userInput = userInput;
+        }
+    }
+}
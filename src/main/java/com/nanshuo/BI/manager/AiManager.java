@@ -1,39 +1,660 @@
 package com.nanshuo.BI.manager;
 
 import com.nanshuo.BI.common.ErrorCode;
+import com.nanshuo.BI.config.AiBreakerConfig;
+import com.nanshuo.BI.config.AiConfig;
+import com.nanshuo.BI.config.AiLimiterConfig;
+import com.nanshuo.BI.constant.RedisKeyConstant;
 import com.nanshuo.BI.exception.BusinessException;
-import com.yupi.yucongming.dev.client.YuCongMingClient;
-import com.yupi.yucongming.dev.common.BaseResponse;
-import com.yupi.yucongming.dev.model.DevChatRequest;
-import com.yupi.yucongming.dev.model.DevChatResponse;
+import com.nanshuo.BI.manager.ai.AdaptiveConcurrencyLimiter;
+import com.nanshuo.BI.manager.ai.AiClient;
+import com.nanshuo.BI.manager.ai.CircuitBreaker;
+import com.nanshuo.BI.manager.ai.GenResultParser;
+import com.nanshuo.BI.manager.ai.LatencyRecorder;
+import com.nanshuo.BI.utils.redis.RedissonUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 /**
  * 用于对接 AI 平台
+ * <p>
+ * 对外提供非阻塞的 {@link #doChatAsync}：缓存 -> 合并相同调用 -> 熔断 -> 自适应并发限制（超出排队）-> 超时 / 对冲请求
  */
+@Slf4j
 @Service
 public class AiManager {
 
     @Resource
-    private YuCongMingClient yuCongMingClient;
+    private AiClient aiClient;
+
+    @Resource
+    private AiResultCacheManager aiResultCacheManager;
+
+    @Resource
+    private RedissonUtils redissonUtils;
+
+    @Resource
+    private AiConfig aiConfig;
+
+    @Resource
+    private AiBreakerConfig aiBreakerConfig;
+
+    @Resource
+    private AiLimiterConfig aiLimiterConfig;
+
+    /**
+     * 执行阻塞的模型调用
+     */
+    private ThreadPoolExecutor aiExecutor;
+
+    /**
+     * 超时、对冲的定时器
+     */
+    private ScheduledExecutorService aiScheduler;
+
+    /**
+     * 熔断器，未开启时为 null
+     */
+    private CircuitBreaker circuitBreaker;
+
+    /**
+     * 自适应并发限制，未开启时为 null（并发数固定为 maxConcurrency）
+     */
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    /**
+     * 进行中的模型调用数（含对冲请求）
+     */
+    private final AtomicInteger activeCalls = new AtomicInteger();
+
+    /**
+     * 等待并发名额的调用
+     */
+    private final Queue<PendingCall> pendingCalls = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    /**
+     * 正在进行中的调用，key 为缓存 key，相同内容的并发调用共用同一个 future
+     */
+    private final Map<String, CompletableFuture<String>> inFlightCalls = new ConcurrentHashMap<>();
+
+    /**
+     * 跨节点锁的持有者 id（Redisson 按 客户端 id + 持有者 id 区分锁的持有者）
+     */
+    private final AtomicLong lockOwnerSequence = new AtomicLong();
+
+    /**
+     * 最近的调用耗时
+     */
+    private final LatencyRecorder latencyRecorder = new LatencyRecorder(256);
+
+    private final LongAdder localCoalesced = new LongAdder();
+
+    private final LongAdder remoteCoalesced = new LongAdder();
+
+    private final LongAdder modelCalls = new LongAdder();
+
+    private final LongAdder hedgedCalls = new LongAdder();
+
+    private final LongAdder hedgeWins = new LongAdder();
+
+    private final LongAdder timeouts = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder breakerRejected = new LongAdder();
+
+    private final LongAdder queueWaitTotal = new LongAdder();
+
+    private final LongAdder queueWaitCount = new LongAdder();
+
+    private final AtomicLong queueWaitMax = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        int maxConcurrency = aiConfig.getMaxConcurrency();
+        if (aiBreakerConfig.isEnabled()) {
+            circuitBreaker = new CircuitBreaker(aiBreakerConfig.getWindowSize(), aiBreakerConfig.getMinCalls(),
+                    aiBreakerConfig.getFailureRateThreshold(), aiBreakerConfig.getSlowCallThreshold(),
+                    aiBreakerConfig.getSlowCallRateThreshold(), aiBreakerConfig.getOpenDuration(),
+                    aiBreakerConfig.getHalfOpenCalls());
+        }
+        if (aiLimiterConfig.isEnabled()) {
+            concurrencyLimiter = new AdaptiveConcurrencyLimiter(aiLimiterConfig.getInitialLimit(),
+                    aiLimiterConfig.getMinLimit(), maxConcurrency, aiLimiterConfig.getBackoffRatio(),
+                    aiLimiterConfig.getTolerance(), aiLimiterConfig.getBaselineWindow());
+        }
+        // 模型调用受并发名额限制，对冲请求最多再占同样多的线程，额外的线程留给加锁、读缓存等短任务
+        int poolSize = maxConcurrency * 2 + 4;
+        AtomicInteger threadCount = new AtomicInteger();
+        aiExecutor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread thread = new Thread(r, "ai-call-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        aiExecutor.allowCoreThreadTimeOut(true);
+        aiScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ai-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        aiScheduler.shutdownNow();
+        aiExecutor.shutdown();
+    }
+
+    /**
+     * AI 对话（非阻塞），使用默认超时时间
+     *
+     * @param modelId 模型 id
+     * @param message 内容
+     * @return {@code CompletableFuture<String>}
+     */
+    public CompletableFuture<String> doChatAsync(long modelId, String message) {
+        return doChatAsync(modelId, message, aiConfig.getTimeout());
+    }
+
+    /**
+     * AI 对话（非阻塞）
+     * <p>
+     * 相同的模型 + 内容优先走缓存；并发的相同调用只会真正调用一次 AI，所有调用方拿到同一个结果；
+     * 超过截止时间（含排队时间）以 {@link BusinessException} 结束
+     *
+     * @param modelId   模型 id
+     * @param message   内容
+     * @param timeoutMs 超时时间（毫秒），小于等于 0 表示不限制
+     * @return {@code CompletableFuture<String>}
+     */
+    public CompletableFuture<String> doChatAsync(long modelId, String message, long timeoutMs) {
+        String cacheKey = aiResultCacheManager.buildKey(modelId, message);
+        String cachedResult = aiResultCacheManager.get(cacheKey);
+        if (cachedResult != null) {
+            return CompletableFuture.completedFuture(cachedResult);
+        }
+        if (!aiConfig.isSingleFlightEnabled()) {
+            return withTimeout(invokeAndCache(modelId, message, cacheKey, timeoutMs), timeoutMs);
+        }
+        CompletableFuture<String> future = new CompletableFuture<>();
+        CompletableFuture<String> inFlight = inFlightCalls.putIfAbsent(cacheKey, future);
+        if (inFlight != null) {
+            // 本机已有相同的调用在进行中，等待它的结果
+            localCoalesced.increment();
+            return withTimeout(inFlight, timeoutMs);
+        }
+        invokeWithDistributedLock(modelId, message, cacheKey, timeoutMs).whenComplete((content, throwable) -> {
+            inFlightCalls.remove(cacheKey, future);
+            if (throwable != null) {
+                future.completeExceptionally(unwrap(throwable));
+            } else {
+                future.complete(content);
+            }
+        });
+        return withTimeout(future, timeoutMs);
+    }
+
+    /**
+     * AI 对话（流式，非阻塞），每收到一段输出回调一次 onChunk，回调在 AI 调用线程中执行
+     * <p>
+     * 命中缓存时一次性回调完整内容；客户端不支持流式输出时退化为 {@link #doChatAsync}（仍可合并相同调用）；
+     * 流式调用不合并、不发对冲请求，避免多路输出交错
+     *
+     * @param modelId 模型 id
+     * @param message 内容
+     * @param onChunk 分片回调
+     * @return 完整内容
+     */
+    public CompletableFuture<String> doChatStreamAsync(long modelId, String message, Consumer<String> onChunk) {
+        if (!aiClient.supportsStreaming()) {
+            return doChatAsync(modelId, message).thenApply(content -> {
+                onChunk.accept(content);
+                return content;
+            });
+        }
+        String cacheKey = aiResultCacheManager.buildKey(modelId, message);
+        String cachedResult = aiResultCacheManager.get(cacheKey);
+        if (cachedResult != null) {
+            onChunk.accept(cachedResult);
+            return CompletableFuture.completedFuture(cachedResult);
+        }
+        long timeoutMs = aiConfig.getTimeout();
+        CompletableFuture<String> call = invoke(modelId, message, timeoutMs, onChunk).thenApply(content -> {
+            if (isValidResult(content)) {
+                aiResultCacheManager.put(cacheKey, content);
+            }
+            return content;
+        });
+        return withTimeout(call, timeoutMs);
+    }
+
+    /**
+     * 获取缓存的 AI 结果（不调用 AI）
+     *
+     * @param modelId 模型 id
+     * @param message 发送给 AI 的内容
+     * @return 未命中返回 null
+     */
+    public String getCachedResult(long modelId, String message) {
+        return aiResultCacheManager.get(aiResultCacheManager.buildKey(modelId, message));
+    }
+
+    /**
+     * 写入缓存（不调用 AI），格式不符的结果不缓存
+     *
+     * @param modelId 模型 id
+     * @param message 发送给 AI 的内容
+     * @param content 生成结果
+     */
+    public void putCachedResult(long modelId, String message, String content) {
+        if (isValidResult(content)) {
+            aiResultCacheManager.put(aiResultCacheManager.buildKey(modelId, message), content);
+        }
+    }
 
     /**
-     * AI 对话
+     * 调用统计
      *
-     * @param modelId
-     * @param message
-     * @return
+     * @return {@code Map<String, Object>}
      */
-    public String doChat(long modelId, String message) {
-        DevChatRequest devChatRequest = new DevChatRequest();
-        devChatRequest.setModelId(modelId);
-        devChatRequest.setMessage(message);
-        BaseResponse<DevChatResponse> response = yuCongMingClient.doChat(devChatRequest);
-        if (response == null) {
-            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "AI 响应错误");
+    public Map<String, Object> getStats() {
+        long waitCount = queueWaitCount.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("modelCalls", modelCalls.sum());
+        stats.put("inFlight", inFlightCalls.size());
+        stats.put("localCoalesced", localCoalesced.sum());
+        stats.put("remoteCoalesced", remoteCoalesced.sum());
+        stats.put("maxConcurrency", aiConfig.getMaxConcurrency());
+        stats.put("concurrencyLimit", currentLimit());
+        stats.put("latencyBaselineMs", concurrencyLimiter == null ? 0 : concurrencyLimiter.getBaseline());
+        stats.put("activeCalls", activeCalls.get());
+        stats.put("queued", pendingCount.get());
+        stats.put("queueWaitAvgMs", waitCount == 0 ? 0 : queueWaitTotal.sum() / waitCount);
+        stats.put("queueWaitMaxMs", queueWaitMax.get());
+        stats.put("rejected", rejected.sum());
+        stats.put("timeouts", timeouts.sum());
+        stats.put("breakerState", circuitBreaker == null ? "DISABLED" : circuitBreaker.getState().name());
+        stats.put("breakerOpenCount", circuitBreaker == null ? 0 : circuitBreaker.getOpenCount());
+        stats.put("breakerRejected", breakerRejected.sum());
+        stats.put("hedgedCalls", hedgedCalls.sum());
+        stats.put("hedgeWins", hedgeWins.sum());
+        stats.put("latencyP50Ms", latencyRecorder.percentile(0.5));
+        stats.put("latencyP95Ms", latencyRecorder.percentile(0.95));
+        return stats;
+    }
+
+    /**
+     * 结果是否包含图表配置和分析结论两部分
+     *
+     * @param content AI 生成结果
+     * @return boolean
+     */
+    public static boolean isValidResult(String content) {
+        return content != null && GenResultParser.parse(content).isComplete();
+    }
+
+    /**
+     * 持有跨节点锁调用 AI：其他节点正在调用相同内容时先等待，拿到锁后再查一次缓存
+     * <p>
+     * 等锁时间不超过调用的截止时间，拿到锁后按剩余时间调用，调用方都已超时后不再调用 AI
+     *
+     * @param modelId   模型 id
+     * @param message   内容
+     * @param cacheKey  缓存 key
+     * @param timeoutMs 超时时间（毫秒），小于等于 0 表示不限制
+     * @return {@code CompletableFuture<String>}
+     */
+    private CompletableFuture<String> invokeWithDistributedLock(long modelId, String message, String cacheKey,
+                                                                long timeoutMs) {
+        RLock lock = redissonUtils.getLock(RedisKeyConstant.AI_SINGLE_FLIGHT_LOCK_KEY + cacheKey);
+        long lockOwner = lockOwnerSequence.incrementAndGet();
+        long deadline = timeoutMs > 0 ? System.currentTimeMillis() + timeoutMs : 0;
+        long waitMs = TimeUnit.SECONDS.toMillis(aiConfig.getSingleFlightWaitTime());
+        if (timeoutMs > 0) {
+            waitMs = Math.min(waitMs, timeoutMs);
+        }
+        CompletableFuture<Boolean> lockFuture;
+        try {
+            // 不指定租期，由看门狗自动续期，节点宕机后锁会自动释放
+            lockFuture = lock.tryLockAsync(waitMs, TimeUnit.MILLISECONDS, lockOwner).toCompletableFuture();
+        } catch (Exception e) {
+            lockFuture = failed(e);
+        }
+        return lockFuture.exceptionally(throwable -> {
+            log.error("获取 AI 调用合并锁失败，直接调用 AI，key = {}", cacheKey, throwable);
+            return false;
+        }).thenComposeAsync(locked -> {
+            if (locked) {
+                String cachedResult = aiResultCacheManager.get(cacheKey);
+                if (cachedResult != null) {
+                    remoteCoalesced.increment();
+                    lock.unlockAsync(lockOwner);
+                    return CompletableFuture.completedFuture(cachedResult);
+                }
+            }
+            long remainingMs = deadline > 0 ? deadline - System.currentTimeMillis() : 0;
+            if (deadline > 0 && remainingMs <= 0) {
+                // 等锁期间已超时，调用方都已结束，不再调用 AI
+                if (locked) {
+                    lock.unlockAsync(lockOwner);
+                }
+                return failed(new BusinessException(ErrorCode.SYSTEM_ERROR, "AI 响应超时"));
+            }
+            CompletableFuture<String> call = invokeAndCache(modelId, message, cacheKey, remainingMs);
+            if (locked) {
+                call.whenComplete((content, throwable) -> lock.unlockAsync(lockOwner));
+            }
+            return call;
+        }, aiExecutor);
+    }
+
+    /**
+     * 调用 AI 并缓存结果
+     *
+     * @param modelId   模型 id
+     * @param message   内容
+     * @param cacheKey  缓存 key
+     * @param timeoutMs 超时时间（毫秒）
+     * @return {@code CompletableFuture<String>}
+     */
+    private CompletableFuture<String> invokeAndCache(long modelId, String message, String cacheKey, long timeoutMs) {
+        return invoke(modelId, message, timeoutMs, null).thenApply(content -> {
+            // 只缓存格式正确的结果，避免把错误结果反复返回
+            if (isValidResult(content)) {
+                aiResultCacheManager.put(cacheKey, content);
+            }
+            return content;
+        });
+    }
+
+    /**
+     * 在并发名额内调用 AI，名额不足时排队
+     *
+     * @param modelId   模型 id
+     * @param message   内容
+     * @param timeoutMs 超时时间（毫秒）
+     * @param onChunk   分片回调，为 null 时非流式调用
+     * @return {@code CompletableFuture<String>}
+     */
+    private CompletableFuture<String> invoke(long modelId, String message, long timeoutMs,
+                                             Consumer<String> onChunk) {
+        // 熔断期间直接失败，不再排队占用资源
+        if (circuitBreaker != null && circuitBreaker.isOpen()) {
+            breakerRejected.increment();
+            return failed(new BusinessException(ErrorCode.AI_UNAVAILABLE));
+        }
+        if (pendingCount.get() >= aiConfig.getMaxQueueSize()) {
+            rejected.increment();
+            return failed(new BusinessException(ErrorCode.TOO_MANY_REQUEST, "AI 调用排队已满，请稍后重试"));
+        }
+        PendingCall call = new PendingCall(modelId, message, timeoutMs, onChunk);
+        pendingCount.incrementAndGet();
+        pendingCalls.offer(call);
+        dispatch();
+        return call.result;
+    }
+
+    /**
+     * 有空闲名额时从队列取出调用并执行
+     */
+    private void dispatch() {
+        while (!pendingCalls.isEmpty() && tryAcquirePermit()) {
+            PendingCall call = pendingCalls.poll();
+            if (call == null) {
+                releasePermit();
+                return;
+            }
+            pendingCount.decrementAndGet();
+            long waitMs = System.currentTimeMillis() - call.enqueueTime;
+            queueWaitTotal.add(waitMs);
+            queueWaitCount.increment();
+            queueWaitMax.accumulateAndGet(waitMs, Math::max);
+            // 排队期间已经超时的不再调用
+            if (call.deadline > 0 && System.currentTimeMillis() >= call.deadline) {
+                releasePermit();
+                call.result.completeExceptionally(new BusinessException(ErrorCode.SYSTEM_ERROR, "AI 响应超时"));
+                continue;
+            }
+            // 排队期间熔断的直接失败
+            if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+                releasePermit();
+                breakerRejected.increment();
+                call.result.completeExceptionally(new BusinessException(ErrorCode.AI_UNAVAILABLE));
+                continue;
+            }
+            startAttempt(call, false);
+            if (call.onChunk == null) {
+                scheduleHedge(call);
+            }
+        }
+    }
+
+    /**
+     * 执行一次调用（调用方已持有一个并发名额和熔断器许可，结束后归还）
+     *
+     * @param call  调用
+     * @param hedge 是否为对冲请求
+     */
+    private void startAttempt(PendingCall call, boolean hedge) {
+        call.runningAttempts.incrementAndGet();
+        int inFlight = activeCalls.get();
+        long start = System.currentTimeMillis();
+        AtomicBoolean reported = new AtomicBoolean();
+        // 到截止时间仍未返回的，不等底层调用结束，立即按失败计入熔断和并发限制
+        ScheduledFuture<?> deadlineTimer = call.deadline <= 0 ? null : aiScheduler.schedule(
+                () -> reportAttempt(reported, System.currentTimeMillis() - start, false, inFlight),
+                Math.max(1, call.deadline - start), TimeUnit.MILLISECONDS);
+        try {
+            aiExecutor.execute(() -> {
+                boolean success = false;
+                try {
+                    modelCalls.increment();
+                    String content = call.onChunk == null ? aiClient.chat(call.modelId, call.message)
+                            : aiClient.chatStream(call.modelId, call.message, chunk -> {
+                        // 已超时的调用不再回调
+                        if (call.deadline <= 0 || System.currentTimeMillis() < call.deadline) {
+                            call.onChunk.accept(chunk);
+                        }
+                    });
+                    success = true;
+                    latencyRecorder.record(System.currentTimeMillis() - start);
+                    call.runningAttempts.decrementAndGet();
+                    if (call.result.complete(content) && hedge) {
+                        hedgeWins.increment();
+                    }
+                } catch (Throwable e) {
+                    // 还有其他请求在进行中时，以其他请求的结果为准
+                    if (call.runningAttempts.decrementAndGet() == 0) {
+                        call.result.completeExceptionally(e);
+                    }
+                } finally {
+                    if (deadlineTimer != null) {
+                        deadlineTimer.cancel(false);
+                    }
+                    reportAttempt(reported, System.currentTimeMillis() - start, success, inFlight);
+                    releasePermit();
+                    dispatch();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (deadlineTimer != null) {
+                deadlineTimer.cancel(false);
+            }
+            reportAttempt(reported, 0, false, inFlight);
+            releasePermit();
+            if (call.runningAttempts.decrementAndGet() == 0) {
+                call.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * 把一次调用的结果计入熔断器和并发限制（每次调用只计一次）
+     *
+     * @param reported  是否已计入
+     * @param latencyMs 耗时（毫秒）
+     * @param success   是否成功
+     * @param inFlight  调用开始时进行中的调用数
+     */
+    private void reportAttempt(AtomicBoolean reported, long latencyMs, boolean success, int inFlight) {
+        if (!reported.compareAndSet(false, true)) {
+            return;
+        }
+        if (circuitBreaker != null) {
+            circuitBreaker.onResult(latencyMs, success);
+        }
+        if (concurrencyLimiter != null) {
+            concurrencyLimiter.onSample(latencyMs, !success, inFlight);
+        }
+    }
+
+    /**
+     * 当前并发上限
+     *
+     * @return int
+     */
+    private int currentLimit() {
+        return concurrencyLimiter == null ? aiConfig.getMaxConcurrency() : concurrencyLimiter.getLimit();
+    }
+
+    /**
+     * 申请并发名额
+     *
+     * @return boolean
+     */
+    private boolean tryAcquirePermit() {
+        int limit = currentLimit();
+        while (true) {
+            int active = activeCalls.get();
+            if (active >= limit) {
+                return false;
+            }
+            if (activeCalls.compareAndSet(active, active + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void releasePermit() {
+        activeCalls.decrementAndGet();
+    }
+
+    /**
+     * 调用耗时超过 p95（样本不足时用配置值）仍未返回时，在有空闲名额且没有排队的情况下发出对冲请求
+     *
+     * @param call 调用
+     */
+    private void scheduleHedge(PendingCall call) {
+        if (!aiConfig.isHedgeEnabled()) {
+            return;
+        }
+        long delay = latencyRecorder.size() >= aiConfig.getHedgeMinSamples()
+                ? latencyRecorder.percentile(0.95) : aiConfig.getHedgeDelay();
+        aiScheduler.schedule(() -> {
+            if (call.result.isDone() || !pendingCalls.isEmpty() || !tryAcquirePermit()) {
+                return;
+            }
+            if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+                releasePermit();
+                return;
+            }
+            hedgedCalls.increment();
+            startAttempt(call, true);
+        }, Math.max(1, delay), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 给调用加上截止时间，超时不影响共用同一调用的其他调用方
+     *
+     * @param future    调用
+     * @param timeoutMs 超时时间（毫秒）
+     * @return {@code CompletableFuture<String>}
+     */
+    private CompletableFuture<String> withTimeout(CompletableFuture<String> future, long timeoutMs) {
+        if (timeoutMs <= 0 || future.isDone()) {
+            return future;
+        }
+        CompletableFuture<String> timed = new CompletableFuture<>();
+        ScheduledFuture<?> timer = aiScheduler.schedule(() -> {
+            if (timed.completeExceptionally(new BusinessException(ErrorCode.SYSTEM_ERROR, "AI 响应超时"))) {
+                timeouts.increment();
+            }
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+        future.whenComplete((content, throwable) -> {
+            timer.cancel(false);
+            if (throwable != null) {
+                timed.completeExceptionally(unwrap(throwable));
+            } else {
+                timed.complete(content);
+            }
+        });
+        return timed;
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        while ((throwable instanceof CompletionException || throwable instanceof ExecutionException)
+                && throwable.getCause() != null) {
+            throwable = throwable.getCause();
+        }
+        return throwable;
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable throwable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(throwable);
+        return future;
+    }
+
+    /**
+     * 等待并发名额的调用
+     */
+    private static class PendingCall {
+
+        private final long modelId;
+
+        private final String message;
+
+        private final long enqueueTime = System.currentTimeMillis();
+
+        /**
+         * 截止时间，0 表示不限制
+         */
+        private final long deadline;
+
+        /**
+         * 进行中的请求数（含对冲请求）
+         */
+        private final AtomicInteger runningAttempts = new AtomicInteger();
+
+        /**
+         * 分片回调，为 null 时非流式调用
+         */
+        private final Consumer<String> onChunk;
+
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+
+        private PendingCall(long modelId, String message, long timeoutMs, Consumer<String> onChunk) {
+            this.modelId = modelId;
+            this.message = message;
+            this.onChunk = onChunk;
+            this.deadline = timeoutMs > 0 ? enqueueTime + timeoutMs : 0;
         }
-        return response.getData().getContent();
     }
 }
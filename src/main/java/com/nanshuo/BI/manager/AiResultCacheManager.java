@@ -0,0 +1,178 @@
+package com.nanshuo.BI.manager;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nanshuo.BI.config.AiCacheConfig;
+import com.nanshuo.BI.constant.RedisKeyConstant;
+import com.nanshuo.BI.utils.redis.RedisUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AI 生成结果缓存（内容寻址：key 为模型 id + 规范化 prompt 的哈希）
+ * <p>
+ * 本地 Caffeine 一级缓存 + Redis 二级缓存，两级都有过期时间和条数上限；Redis 不可用时只降级为未命中
+ *
+ * @author nanshuo
+ * @date 2026/10/18 14:46:52
+ */
+@Slf4j
+@Component
+public class AiResultCacheManager {
+
+    @Resource
+    private AiCacheConfig aiCacheConfig;
+
+    @Resource
+    private RedisUtils redisUtils;
+
+    private Cache<String, String> localCache;
+
+    private final LongAdder localHits = new LongAdder();
+
+    private final LongAdder redisHits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder puts = new LongAdder();
+
+    private final LongAdder redisEvictions = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(aiCacheConfig.getLocalMaxSize())
+                .expireAfterWrite(aiCacheConfig.getLocalTtl(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 生成缓存 key
+     *
+     * @param modelId 模型 id
+     * @param message 发送给 AI 的内容
+     * @return {@code String}
+     */
+    public String buildKey(long modelId, String message) {
+        return DigestUtil.sha256Hex(modelId + "\n" + normalize(message));
+    }
+
+    /**
+     * 获取缓存，先查本地再查 Redis，Redis 命中后回填本地
+     *
+     * @param key 缓存 key
+     * @return 未命中返回 null
+     */
+    public String get(String key) {
+        if (!aiCacheConfig.isEnabled()) {
+            return null;
+        }
+        String value = localCache.getIfPresent(key);
+        if (value != null) {
+            localHits.increment();
+            return value;
+        }
+        try {
+            Object redisValue = redisUtils.get(RedisKeyConstant.AI_RESULT_CACHE_KEY + key);
+            if (redisValue instanceof String) {
+                redisHits.increment();
+                localCache.put(key, (String) redisValue);
+                return (String) redisValue;
+            }
+        } catch (Exception e) {
+            log.error("读取 AI 结果缓存失败，key = {}", key, e);
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * 写入缓存
+     *
+     * @param key   缓存 key
+     * @param value AI 生成结果
+     */
+    public void put(String key, String value) {
+        if (!aiCacheConfig.isEnabled() || value == null) {
+            return;
+        }
+        puts.increment();
+        localCache.put(key, value);
+        try {
+            redisUtils.set(RedisKeyConstant.AI_RESULT_CACHE_KEY + key, value, aiCacheConfig.getRedisTtl());
+            redisUtils.zAdd(RedisKeyConstant.AI_RESULT_CACHE_INDEX_KEY, key, System.currentTimeMillis());
+            evictRedisIfNecessary();
+        } catch (Exception e) {
+            log.error("写入 AI 结果缓存失败，key = {}", key, e);
+        }
+    }
+
+    /**
+     * 缓存统计
+     *
+     * @return {@code Map<String, Object>}
+     */
+    public Map<String, Object> getStats() {
+        long localHitCount = localHits.sum();
+        long redisHitCount = redisHits.sum();
+        long missCount = misses.sum();
+        long total = localHitCount + redisHitCount + missCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", aiCacheConfig.isEnabled());
+        stats.put("localHits", localHitCount);
+        stats.put("redisHits", redisHitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", total == 0 ? 0 : (double) (localHitCount + redisHitCount) / total);
+        stats.put("puts", puts.sum());
+        stats.put("localSize", localCache.estimatedSize());
+        stats.put("redisEvictions", redisEvictions.sum());
+        return stats;
+    }
+
+    /**
+     * Redis 中的条数超出上限时，按写入时间淘汰最早的
+     */
+    private void evictRedisIfNecessary() {
+        long excess = redisUtils.zSize(RedisKeyConstant.AI_RESULT_CACHE_INDEX_KEY) - aiCacheConfig.getRedisMaxSize();
+        if (excess <= 0) {
+            return;
+        }
+        Set<Object> oldest = redisUtils.zRange(RedisKeyConstant.AI_RESULT_CACHE_INDEX_KEY, 0, excess - 1);
+        if (oldest == null || oldest.isEmpty()) {
+            return;
+        }
+        String[] keys = oldest.stream().map(item -> RedisKeyConstant.AI_RESULT_CACHE_KEY + item).toArray(String[]::new);
+        redisUtils.del(keys);
+        redisUtils.zRemove(RedisKeyConstant.AI_RESULT_CACHE_INDEX_KEY, oldest.toArray());
+        redisEvictions.add(oldest.size());
+    }
+
+    /**
+     * 规范化 prompt：统一换行符，去掉每行首尾空白和空行，使仅有空白差异的相同内容命中同一条缓存
+     *
+     * @param message 内容
+     * @return {@code String}
+     */
+    private String normalize(String message) {
+        if (message == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(message.length());
+        for (String line : message.split("\\r?\\n|\\r")) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty()) {
+                sb.append(trimmed).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+}
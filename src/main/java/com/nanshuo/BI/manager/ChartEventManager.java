@@ -0,0 +1,160 @@
+package com.nanshuo.BI.manager;
+
+import com.nanshuo.BI.constant.RedisKeyConstant;
+import com.nanshuo.BI.model.enums.chart.ChartStatusEnums;
+import com.nanshuo.BI.model.vo.ChartEventVO;
+import com.nanshuo.BI.utils.JsonUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * 图表状态推送
+ * <p>
+ * 状态变更通过 Redis 发布订阅广播到所有节点，各节点再通过 SSE 推送给连接在本节点的前端，
+ * 前端不需要轮询 /chart/get
+ *
+ * @author nanshuo
+ * @date 2026/10/18 18:24:37
+ */
+@Slf4j
+@Service
+public class ChartEventManager implements MessageListener {
+
+    /**
+     * SSE 连接超时时间（毫秒），超时后前端 EventSource 会自动重连
+     */
+    private static final long SSE_TIMEOUT = 5 * 60 * 1000L;
+
+    /**
+     * 事件名
+     */
+    private static final String EVENT_NAME = "chart";
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    /**
+     * 本节点的订阅，key 为图表 id
+     */
+    private final Map<Long, Set<SseEmitter>> emitters = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(RedisKeyConstant.CHART_EVENT_CHANNEL));
+    }
+
+    /**
+     * 发布状态变更（所有节点都会收到）
+     *
+     * @param event 事件
+     */
+    public void publish(ChartEventVO event) {
+        try {
+            stringRedisTemplate.convertAndSend(RedisKeyConstant.CHART_EVENT_CHANNEL, JsonUtils.objToJson(event));
+        } catch (Exception e) {
+            // 推送失败不影响图表生成，前端仍可通过查询接口获取结果
+            log.error("发布图表状态失败，chartId = {}", event.getChartId(), e);
+        }
+    }
+
+    /**
+     * 订阅图表状态
+     * <p>
+     * 先订阅再由调用方查询当前状态并调用 {@link #sendSnapshot}，避免错过两者之间的状态变更
+     *
+     * @param chartId 图表 id
+     * @return {@link SseEmitter}
+     */
+    public SseEmitter subscribe(long chartId) {
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT);
+        Set<SseEmitter> chartEmitters = emitters.computeIfAbsent(chartId, k -> new CopyOnWriteArraySet<>());
+        chartEmitters.add(emitter);
+        Runnable remove = () -> removeEmitter(chartId, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        return emitter;
+    }
+
+    /**
+     * 推送当前状态，已结束时直接关闭连接
+     *
+     * @param emitter 订阅
+     * @param event   当前状态
+     */
+    public void sendSnapshot(SseEmitter emitter, ChartEventVO event) {
+        send(emitter, event);
+    }
+
+    /**
+     * 取消订阅
+     *
+     * @param chartId 图表 id
+     * @param emitter 订阅
+     */
+    public void removeEmitter(long chartId, SseEmitter emitter) {
+        emitters.computeIfPresent(chartId, (k, set) -> {
+            set.remove(emitter);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    /**
+     * 本节点的订阅数
+     *
+     * @return int
+     */
+    public int getSubscriberCount() {
+        return emitters.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        ChartEventVO event = JsonUtils.jsonToObj(new String(message.getBody(), StandardCharsets.UTF_8),
+                ChartEventVO.class);
+        if (event == null || event.getChartId() == null) {
+            return;
+        }
+        Set<SseEmitter> chartEmitters = emitters.get(event.getChartId());
+        if (chartEmitters == null) {
+            return;
+        }
+        for (SseEmitter emitter : chartEmitters) {
+            send(emitter, event);
+        }
+    }
+
+    private void send(SseEmitter emitter, ChartEventVO event) {
+        try {
+            emitter.send(SseEmitter.event().name(EVENT_NAME).data(event));
+            if (isFinished(event.getStatus())) {
+                emitter.complete();
+            }
+        } catch (Exception e) {
+            // 前端已断开
+            emitter.completeWithError(e);
+        }
+    }
+
+    private static boolean isFinished(String status) {
+        ChartStatusEnums statusEnum = ChartStatusEnums.getEnumByValue(status);
+        return statusEnum != null && statusEnum.isFinished();
+    }
+}
@@ -0,0 +1,164 @@
+package com.nanshuo.BI.manager;
+
+import com.nanshuo.BI.common.CommonConstant;
+import com.nanshuo.BI.config.ChartFanOutConfig;
+import com.nanshuo.BI.manager.ai.GenResultParser;
+import com.nanshuo.BI.manager.ai.LatencyRecorder;
+import com.nanshuo.BI.manager.chart.EChartsOptionValidator;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 并行生成图表配置和分析结论
+ * <p>
+ * 原来一次调用按顺序输出图表配置和分析结论，总耗时是两段输出之和；拆成两个并发调用（各自只输出一部分）后
+ * 总耗时接近较长的一段。每部分生成后立即回调保存，全部完成后合并为 {@link GenResultParser}
+ *
+ * @author nanshuo
+ * @date 2026/10/19 02:03:18
+ */
+@Slf4j
+@Component
+public class ChartFanOutManager {
+
+    private static final String SEPARATOR = CommonConstant.GEN_SEPARATOR;
+
+    /**
+     * 只生成图表配置时附加在用户输入后的说明
+     */
+    private static final String OPTION_ONLY_HINT = "分析结论由其他任务生成，分析结论部分只输出 无 即可；"
+            + "图表配置必须是合法的 JSON，不要包含函数和注释";
+
+    /**
+     * 图表配置不合法重新生成时附加的说明
+     */
+    private static final String RETRY_HINT = "（上次生成的图表配置不是合法的 JSON，请重新生成）";
+
+    @Resource
+    private AiManager aiManager;
+
+    @Resource
+    private ChartFanOutConfig chartFanOutConfig;
+
+    private final LongAdder fanOuts = new LongAdder();
+
+    private final LongAdder optionRetries = new LongAdder();
+
+    private final LongAdder invalidOptions = new LongAdder();
+
+    /**
+     * 图表配置部分的耗时（含重新生成）
+     */
+    private final LatencyRecorder optionLatency = new LatencyRecorder(1000);
+
+    /**
+     * 分析结论部分的耗时
+     */
+    private final LatencyRecorder resultLatency = new LatencyRecorder(1000);
+
+    /**
+     * 是否并行生成
+     *
+     * @param userInput 用户输入
+     * @return boolean
+     */
+    public boolean isEligible(String userInput) {
+        return chartFanOutConfig.isEnabled() && userInput != null
+                && userInput.length() >= chartFanOutConfig.getMinInputLength();
+    }
+
+    /**
+     * 并行生成
+     *
+     * @param modelId   模型 id
+     * @param userInput 用户输入
+     * @param onChart   图表配置生成后的回调（标准 JSON），可以为 null
+     * @param onResult  分析结论生成后的回调，可以为 null
+     * @return 解析结果，图表配置不合法或分析结论为空时未完成
+     */
+    public CompletableFuture<GenResultParser> generate(long modelId, String userInput, Consumer<String> onChart,
+                                                       Consumer<String> onResult) {
+        fanOuts.increment();
+        long start = System.currentTimeMillis();
+        CompletableFuture<String> option = genOption(modelId, userInput, 0).thenApply(genChart -> {
+            optionLatency.record(System.currentTimeMillis() - start);
+            if (genChart != null && onChart != null) {
+                onChart.accept(genChart);
+            }
+            return genChart;
+        });
+        CompletableFuture<String> result = aiManager
+                .doChatAsync(modelId, userInput + LocalChartManager.NARRATIVE_ONLY_HINT + "\n")
+                .thenApply(content -> {
+                    resultLatency.record(System.currentTimeMillis() - start);
+                    GenResultParser parser = GenResultParser.parse(content);
+                    // 格式不符时整段作为分析结论
+                    String genResult = parser.isComplete() ? parser.getGenResult() : StringUtils.trimToNull(content);
+                    if (StringUtils.isNotBlank(genResult) && onResult != null) {
+                        onResult.accept(genResult);
+                    }
+                    return genResult;
+                });
+        return CompletableFuture.allOf(option, result).thenApply(v -> {
+            String genChart = option.join();
+            String genResult = result.join();
+            if (genChart == null || StringUtils.isBlank(genResult)) {
+                return new GenResultParser();
+            }
+            return GenResultParser.parse(SEPARATOR + genChart + SEPARATOR + genResult);
+        });
+    }
+
+    /**
+     * 生成图表配置，不合法时重新生成
+     *
+     * @param modelId   模型 id
+     * @param userInput 用户输入
+     * @param attempt   第几次重新生成
+     * @return 标准 JSON 的图表配置，不合法时为 null
+     */
+    private CompletableFuture<String> genOption(long modelId, String userInput, int attempt) {
+        String input = userInput + OPTION_ONLY_HINT + (attempt > 0 ? RETRY_HINT : "") + "\n";
+        return aiManager.doChatAsync(modelId, input).thenCompose(content -> {
+            GenResultParser parser = GenResultParser.parse(content);
+            String genChart = EChartsOptionValidator.normalize(parser.isComplete() ? parser.getGenChart() : content);
+            if (genChart != null) {
+                return CompletableFuture.completedFuture(genChart);
+            }
+            if (attempt >= chartFanOutConfig.getOptionRetries()) {
+                invalidOptions.increment();
+                log.warn("并行生成的图表配置不合法，已重试 {} 次", attempt);
+                return CompletableFuture.completedFuture(null);
+            }
+            optionRetries.increment();
+            return genOption(modelId, userInput, attempt + 1);
+        });
+    }
+
+    /**
+     * 并行生成统计
+     *
+     * @return {@code Map<String, Object>}
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", chartFanOutConfig.isEnabled());
+        stats.put("minInputLength", chartFanOutConfig.getMinInputLength());
+        stats.put("fanOuts", fanOuts.sum());
+        stats.put("optionRetries", optionRetries.sum());
+        stats.put("invalidOptions", invalidOptions.sum());
+        stats.put("optionLatencyP50Ms", optionLatency.percentile(0.5));
+        stats.put("optionLatencyP95Ms", optionLatency.percentile(0.95));
+        stats.put("resultLatencyP50Ms", resultLatency.percentile(0.5));
+        stats.put("resultLatencyP95Ms", resultLatency.percentile(0.95));
+        return stats;
+    }
+}
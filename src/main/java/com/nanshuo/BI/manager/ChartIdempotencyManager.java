@@ -0,0 +1,146 @@
+package com.nanshuo.BI.manager;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.nanshuo.BI.common.ErrorCode;
+import com.nanshuo.BI.config.ChartIdempotencyConfig;
+import com.nanshuo.BI.constant.RedisKeyConstant;
+import com.nanshuo.BI.exception.BusinessException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图表任务幂等
+ * <p>
+ * 处理令牌：每个图表同一时间只有一个持有者调用 AI，消息重复投递时不会再次调用；
+ * 提交去重：相同用户短时间内重复提交相同的文件和需求，返回已提交的图表
+ *
+ * @author nanshuo
+ * @date 2026/10/18 22:03:51
+ */
+@Slf4j
+@Component
+public class ChartIdempotencyManager {
+
+    /**
+     * 提交已登记、图表还未保存
+     */
+    private static final String SUBMISSION_PENDING = "pending";
+
+    /**
+     * 只删除自己持有的令牌
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private ChartIdempotencyConfig chartIdempotencyConfig;
+
+    /**
+     * 获取图表的处理令牌
+     *
+     * @param chartId 图表 id
+     * @return 令牌，已被其他消费者持有时返回 null
+     */
+    public String tryAcquireProcessing(long chartId) {
+        String token = UUID.randomUUID().toString();
+        Boolean acquired = stringRedisTemplate.opsForValue().setIfAbsent(
+                RedisKeyConstant.CHART_PROCESSING_TOKEN_KEY + chartId, token,
+                chartIdempotencyConfig.getProcessingTtl(), TimeUnit.SECONDS);
+        return Boolean.TRUE.equals(acquired) ? token : null;
+    }
+
+    /**
+     * 释放处理令牌（令牌已过期被他人持有时不删除）
+     *
+     * @param chartId 图表 id
+     * @param token   令牌
+     */
+    public void releaseProcessing(long chartId, String token) {
+        if (token == null) {
+            return;
+        }
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT,
+                    Collections.singletonList(RedisKeyConstant.CHART_PROCESSING_TOKEN_KEY + chartId), token);
+        } catch (Exception e) {
+            // 释放失败时令牌到期自动失效
+            log.warn("释放图表处理令牌失败，chartId = {}", chartId, e);
+        }
+    }
+
+    /**
+     * 图表是否有未过期的处理令牌（持有者仍在处理）
+     *
+     * @param chartId 图表 id
+     * @return boolean
+     */
+    public boolean isProcessing(long chartId) {
+        return Boolean.TRUE.equals(stringRedisTemplate.hasKey(RedisKeyConstant.CHART_PROCESSING_TOKEN_KEY + chartId));
+    }
+
+    /**
+     * 提交去重的 key
+     *
+     * @param userId    用户 id
+     * @param name      图表名称
+     * @param goal      分析目标
+     * @param chartType 图表类型
+     * @param chartData 图表数据
+     * @return {@link String}
+     */
+    public String submissionKey(long userId, String name, String goal, String chartType, String chartData) {
+        String content = name + "\u0000" + goal + "\u0000" + chartType + "\u0000" + chartData;
+        return RedisKeyConstant.CHART_SUBMISSION_KEY + userId + ":" + DigestUtil.sha256Hex(content);
+    }
+
+    /**
+     * 登记一次提交
+     *
+     * @param key 提交去重的 key
+     * @return 窗口内已提交的图表 id；没有时登记本次提交并返回 null
+     * @throws BusinessException 相同的提交正在保存
+     */
+    public Long acquireSubmission(String key) {
+        Boolean acquired = stringRedisTemplate.opsForValue().setIfAbsent(key, SUBMISSION_PENDING,
+                chartIdempotencyConfig.getSubmissionTtl(), TimeUnit.SECONDS);
+        if (Boolean.TRUE.equals(acquired)) {
+            return null;
+        }
+        String value = stringRedisTemplate.opsForValue().get(key);
+        if (value == null || SUBMISSION_PENDING.equals(value)) {
+            throw new BusinessException(ErrorCode.TOO_MANY_REQUEST, "请勿重复提交");
+        }
+        return Long.valueOf(value);
+    }
+
+    /**
+     * 图表保存后记录图表 id
+     *
+     * @param key     提交去重的 key
+     * @param chartId 图表 id
+     */
+    public void completeSubmission(String key, long chartId) {
+        stringRedisTemplate.opsForValue().set(key, String.valueOf(chartId),
+                chartIdempotencyConfig.getSubmissionTtl(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * 取消登记（保存失败或已提交的图表失败后允许重新提交）
+     *
+     * @param key 提交去重的 key
+     */
+    public void releaseSubmission(String key) {
+        stringRedisTemplate.delete(key);
+    }
+}
@@ -1,13 +1,19 @@
 package com.nanshuo.BI.manager;
 
+import cn.hutool.core.io.IoUtil;
 import com.nanshuo.BI.config.CosClientConfig;
 import com.qcloud.cos.COSClient;
+import com.qcloud.cos.model.COSObject;
+import com.qcloud.cos.model.ObjectMetadata;
 import com.qcloud.cos.model.PutObjectRequest;
 import com.qcloud.cos.model.PutObjectResult;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * Cos 腾讯云对象存储操作
@@ -49,4 +55,41 @@ public class CosManager {
                 file);
         return cosClient.putObject(putObjectRequest);
     }
+
+    /**
+     * 上传对象
+     *
+     * @param key   唯一键
+     * @param bytes 内容
+     * @return {@link PutObjectResult}
+     */
+    public PutObjectResult putObject(String key, byte[] bytes) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(bytes.length);
+        PutObjectRequest putObjectRequest = new PutObjectRequest(cosClientConfig.getBucket(), key,
+                new ByteArrayInputStream(bytes), metadata);
+        return cosClient.putObject(putObjectRequest);
+    }
+
+    /**
+     * 读取对象内容
+     *
+     * @param key 唯一键
+     * @return byte[]
+     */
+    public byte[] getObjectBytes(String key) throws IOException {
+        try (COSObject cosObject = cosClient.getObject(cosClientConfig.getBucket(), key);
+             InputStream in = cosObject.getObjectContent()) {
+            return IoUtil.readBytes(in);
+        }
+    }
+
+    /**
+     * 删除对象
+     *
+     * @param key 唯一键
+     */
+    public void deleteObject(String key) {
+        cosClient.deleteObject(cosClientConfig.getBucket(), key);
+    }
 }
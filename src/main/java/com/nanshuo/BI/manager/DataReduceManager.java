@@ -0,0 +1,138 @@
+package com.nanshuo.BI.manager;
+
+import com.nanshuo.BI.config.DataReduceConfig;
+import com.nanshuo.BI.manager.reduce.DataReducer;
+import com.nanshuo.BI.manager.reduce.ReduceResult;
+import com.nanshuo.BI.model.enums.chart.DataReduceModeEnums;
+import com.nanshuo.BI.utils.excel.ColumnarDataset;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 数据压缩（调用 AI 前按 token / 字节预算压缩原始数据，只压缩发给 AI 的副本，不影响入库的 chart_data）
+ *
+ * @author nanshuo
+ * @date 2026/10/18 13:55:09
+ */
+@Slf4j
+@Component
+public class DataReduceManager {
+
+    /**
+     * 超出预算时最多重新压缩的次数
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Resource
+    private DataReduceConfig dataReduceConfig;
+
+    @Resource
+    private List<DataReducer> dataReducerList;
+
+    private final Map<DataReduceModeEnums, DataReducer> reducerMap = new EnumMap<>(DataReduceModeEnums.class);
+
+    @PostConstruct
+    public void init() {
+        for (DataReducer dataReducer : dataReducerList) {
+            reducerMap.put(dataReducer.getMode(), dataReducer);
+        }
+    }
+
+    /**
+     * 压缩数据
+     *
+     * @param csvData 原始 csv 数据
+     * @return {@code ReduceResult}
+     */
+    public ReduceResult reduce(String csvData) {
+        long start = System.currentTimeMillis();
+        int originalSize = estimateTokens(csvData);
+        ReduceResult reduceResult = new ReduceResult();
+        reduceResult.setData(csvData);
+        reduceResult.setOriginalSize(originalSize);
+        reduceResult.setReducedSize(originalSize);
+        reduceResult.setRatio(1);
+        if (!dataReduceConfig.isEnabled() || StringUtils.isBlank(csvData) || budgetScale(csvData) >= 1) {
+            reduceResult.setCostMs(System.currentTimeMillis() - start);
+            return reduceResult;
+        }
+        DataReduceModeEnums mode = DataReduceModeEnums.getEnumByValue(dataReduceConfig.getMode());
+        DataReducer dataReducer = reducerMap.get(mode == null ? DataReduceModeEnums.HEAD_TAIL : mode);
+        // 只解析一次，之后的采样、聚合直接读取列数组
+        ColumnarDataset dataset = ColumnarDataset.fromCsv(csvData);
+        int minRows = Math.max(1, dataReduceConfig.getMinRows());
+        String data = csvData;
+        int rowCount = dataset.getRowCount();
+        int targetRows = dataset.getRowCount();
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            double scale = budgetScale(data);
+            if (scale >= 1 || targetRows <= minRows) {
+                break;
+            }
+            // 预留 5% 余量，避免估算误差导致再次超出
+            targetRows = Math.max(minRows, (int) (targetRows * scale * 0.95));
+            ColumnarDataset reduced = dataReducer.reduce(dataset, targetRows);
+            data = reduced.toCsv();
+            rowCount = reduced.getRowCount();
+        }
+        int reducedSize = estimateTokens(data);
+        reduceResult.setData(data);
+        reduceResult.setMode(dataReducer.getMode().getValue());
+        reduceResult.setReducedSize(reducedSize);
+        reduceResult.setRatio(originalSize == 0 ? 1 : (double) reducedSize / originalSize);
+        reduceResult.setNote(String.format("（原始数据共 %d 行，因数据量过大已按%s压缩为 %d 行）",
+                dataset.getRowCount(), dataReducer.getMode().getText(), rowCount));
+        reduceResult.setCostMs(System.currentTimeMillis() - start);
+        log.info("数据压缩完成，方式：{}，{} -> {} token，耗时 {} ms", reduceResult.getMode(), originalSize, reducedSize,
+                reduceResult.getCostMs());
+        return reduceResult;
+    }
+
+    /**
+     * 预算与当前数据大小的比值，大于等于 1 表示未超出预算
+     *
+     * @param data 数据
+     * @return double
+     */
+    private double budgetScale(String data) {
+        double scale = Double.MAX_VALUE;
+        if (dataReduceConfig.getMaxTokens() > 0) {
+            scale = Math.min(scale, (double) dataReduceConfig.getMaxTokens() / Math.max(1, estimateTokens(data)));
+        }
+        if (dataReduceConfig.getMaxBytes() > 0) {
+            int bytes = data.getBytes(StandardCharsets.UTF_8).length;
+            scale = Math.min(scale, (double) dataReduceConfig.getMaxBytes() / Math.max(1, bytes));
+        }
+        return scale;
+    }
+
+    /**
+     * 估算 token 数：中日韩字符按 1 个 token，其余字符按 4 个一个 token
+     *
+     * @param text 文本
+     * @return int
+     */
+    public static int estimateTokens(String text) {
+        if (text == null) {
+            return 0;
+        }
+        int cjk = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x2E80) {
+                cjk++;
+            } else {
+                other++;
+            }
+        }
+        return cjk + (other + 3) / 4;
+    }
+}
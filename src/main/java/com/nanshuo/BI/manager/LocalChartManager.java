@@ -0,0 +1,204 @@
+package com.nanshuo.BI.manager;
+
+import com.nanshuo.BI.common.CommonConstant;
+import com.nanshuo.BI.config.LocalChartConfig;
+import com.nanshuo.BI.manager.aggregate.AggregateEngine;
+import com.nanshuo.BI.manager.aggregate.AggregateQuery;
+import com.nanshuo.BI.manager.ai.GenResultParser;
+import com.nanshuo.BI.manager.ai.LatencyRecorder;
+import com.nanshuo.BI.manager.chart.EChartsOptionGenerator;
+import com.nanshuo.BI.manager.reduce.AggregateReducer;
+import com.nanshuo.BI.model.domain.Chart;
+import com.nanshuo.BI.model.enums.chart.ChartRouteEnums;
+import com.nanshuo.BI.model.enums.chart.ChartTypeEnums;
+import com.nanshuo.BI.utils.excel.ColumnarDataset;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本地生成图表配置（折线图、柱状图、饼图且数据是明显的 x / y 结构时按模板生成，AI 只生成分析结论）
+ *
+ * @author nanshuo
+ * @date 2026/10/19 01:18:45
+ */
+@Slf4j
+@Component
+public class LocalChartManager {
+
+    private static final String SEPARATOR = CommonConstant.GEN_SEPARATOR;
+
+    /**
+     * 只生成分析结论时附加在用户输入后的说明（模型的 prompt 固定，只能通过用户输入约束输出）
+     */
+    public static final String NARRATIVE_ONLY_HINT = "图表已生成，图表配置部分只输出 {} 即可，请重点输出详细的分析结论";
+
+    @Resource
+    private LocalChartConfig localChartConfig;
+
+    @Resource
+    private AggregateEngine aggregateEngine;
+
+    @Resource
+    private AiManager aiManager;
+
+    /**
+     * 各路径的调用次数
+     */
+    private final Map<ChartRouteEnums, LongAdder> routeCounts = new EnumMap<>(ChartRouteEnums.class);
+
+    /**
+     * 各路径生成图表配置和分析结论的总耗时
+     */
+    private final Map<ChartRouteEnums, LatencyRecorder> routeLatency = new EnumMap<>(ChartRouteEnums.class);
+
+    /**
+     * 图表类型可以本地生成，但数据结构不明显而交给 AI 的次数
+     */
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * 本地生成图表配置的耗时（微秒）
+     */
+    private final LatencyRecorder optionLatency = new LatencyRecorder(1000);
+
+    public LocalChartManager() {
+        for (ChartRouteEnums route : ChartRouteEnums.values()) {
+            routeCounts.put(route, new LongAdder());
+            routeLatency.put(route, new LatencyRecorder(1000));
+        }
+    }
+
+    /**
+     * 本地生成图表配置
+     *
+     * @param chart 图表（需要 chartType、chartData）
+     * @return 图表配置 json，不能本地生成时返回 null
+     */
+    public String generate(Chart chart) {
+        ChartTypeEnums chartType = ChartTypeEnums.getEnumByText(chart.getChartType());
+        if (!localChartConfig.isEnabled() || chartType == null || StringUtils.isBlank(chart.getChartData())) {
+            return null;
+        }
+        long start = System.nanoTime();
+        String option = null;
+        try {
+            ColumnarDataset dataset = ColumnarDataset.fromCsv(chart.getChartData());
+            int limit = chartType == ChartTypeEnums.PIE ? localChartConfig.getMaxPieSlices()
+                    : localChartConfig.getMaxPoints();
+            if (dataset.getRowCount() > limit) {
+                // 行数过多时先按时间或分类聚合，聚合不了的交给 AI
+                AggregateQuery query = AggregateReducer.plan(dataset, limit);
+                if (query != null) {
+                    query.setCountRows(false);
+                    dataset = aggregateEngine.execute(dataset, query);
+                }
+            }
+            if (dataset.getRowCount() <= limit) {
+                String title = StringUtils.isNotBlank(chart.getName()) ? chart.getName() : chart.getGoal();
+                option = EChartsOptionGenerator.generate(dataset, chartType, title, localChartConfig.getMaxSeries());
+            }
+        } catch (Exception e) {
+            log.warn("本地生成图表配置失败，交给 AI 生成，chartId = {}", chart.getId(), e);
+        }
+        optionLatency.record((System.nanoTime() - start) / 1000);
+        if (option == null) {
+            rejected.increment();
+        }
+        return option;
+    }
+
+    /**
+     * 本地生成图表配置后调用 AI 生成分析结论
+     * <p>
+     * 发给 AI 的内容与原用户输入不同，合并后的结果按原用户输入再缓存一份，相同内容再次提交时可以直接命中缓存
+     *
+     * @param modelId   模型 id
+     * @param userInput 原用户输入
+     * @param genChart  本地生成的图表配置
+     * @return 解析结果，调用方需检查 {@link GenResultParser#isComplete()}
+     */
+    public CompletableFuture<GenResultParser> genNarrative(long modelId, String userInput, String genChart) {
+        return aiManager.doChatAsync(modelId, toAiInput(userInput)).thenApply(content -> {
+            GenResultParser parser = merge(genChart, content);
+            if (parser.isComplete()) {
+                aiManager.putCachedResult(modelId, userInput,
+                        SEPARATOR + parser.getGenChart() + SEPARATOR + parser.getGenResult());
+            }
+            return parser;
+        });
+    }
+
+    /**
+     * 本地生成图表配置后发给 AI 的用户输入
+     *
+     * @param userInput 原用户输入
+     * @return {@link String}
+     */
+    public String toAiInput(String userInput) {
+        return localChartConfig.isNarrativeOnly() ? userInput + NARRATIVE_ONLY_HINT + "\n" : userInput;
+    }
+
+    /**
+     * 合并本地生成的图表配置和 AI 生成的分析结论
+     *
+     * @param genChart 本地生成的图表配置
+     * @param content  AI 生成结果（格式不符时整段作为分析结论）
+     * @return {@link GenResultParser}，分析结论为空时未完成
+     */
+    public static GenResultParser merge(String genChart, String content) {
+        GenResultParser parser = GenResultParser.parse(content);
+        String genResult = parser.isComplete() ? parser.getGenResult() : StringUtils.trimToEmpty(content);
+        if (StringUtils.isBlank(genResult)) {
+            return parser;
+        }
+        return GenResultParser.parse(SEPARATOR + genChart + SEPARATOR + genResult);
+    }
+
+    /**
+     * 记录一次生成的路径和总耗时
+     *
+     * @param route   路径
+     * @param startMs 开始时间
+     * @param future  生成结果
+     * @return 与 future 结果相同的 {@code CompletableFuture}
+     */
+    public <T> CompletableFuture<T> record(ChartRouteEnums route, long startMs, CompletableFuture<T> future) {
+        routeCounts.get(route).increment();
+        return future.whenComplete((result, throwable) -> {
+            if (throwable == null) {
+                routeLatency.get(route).record(System.currentTimeMillis() - startMs);
+            }
+        });
+    }
+
+    /**
+     * 各路径统计
+     *
+     * @return {@code Map<String, Object>}
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", localChartConfig.isEnabled());
+        stats.put("narrativeOnly", localChartConfig.isNarrativeOnly());
+        for (ChartRouteEnums route : ChartRouteEnums.values()) {
+            LatencyRecorder latency = routeLatency.get(route);
+            Map<String, Object> routeStats = new LinkedHashMap<>();
+            routeStats.put("count", routeCounts.get(route).sum());
+            routeStats.put("latencyP50Ms", latency.percentile(0.5));
+            routeStats.put("latencyP95Ms", latency.percentile(0.95));
+            stats.put(route.getValue(), routeStats);
+        }
+        stats.put("rejected", rejected.sum());
+        stats.put("optionP50Us", optionLatency.percentile(0.5));
+        stats.put("optionP95Us", optionLatency.percentile(0.95));
+        return stats;
+    }
+}
@@ -0,0 +1,387 @@
+package com.nanshuo.BI.manager.aggregate;
+
+import com.nanshuo.BI.config.DataReduceConfig;
+import com.nanshuo.BI.model.enums.chart.AggregateFunctionEnums;
+import com.nanshuo.BI.model.enums.chart.TimeBucketEnums;
+import com.nanshuo.BI.utils.excel.ColumnarDataset;
+import com.nanshuo.BI.utils.excel.CsvEncoder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 进程内聚合引擎：在按列存储的表格上执行 {@link AggregateQuery}
+ * <p>
+ * 行按块拆分后由 fork-join 并行累加（每块独立的分组数组，合并时逐组相加），
+ * 字典编码的分组列只对字典中的取值计算一次分组（含时间分桶），逐行只做数组下标查找
+ *
+ * @author nanshuo
+ * @date 2026/10/19 00:21:36
+ */
+@Slf4j
+@Component
+public class AggregateEngine {
+
+    /**
+     * 截断后合并的组
+     */
+    public static final String OTHERS = "其他";
+
+    @Resource
+    private DataReduceConfig dataReduceConfig;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void init() {
+        int parallelism = dataReduceConfig.getAggregateParallelism() > 0
+                ? dataReduceConfig.getAggregateParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("bi-aggregate-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        pool.shutdown();
+    }
+
+    /**
+     * 执行聚合查询
+     *
+     * @param dataset 表格
+     * @param query   查询
+     * @return 聚合结果
+     */
+    public ColumnarDataset execute(ColumnarDataset dataset, AggregateQuery query) {
+        long start = System.currentTimeMillis();
+        ColumnarDataset result = execute(dataset, query, pool, dataReduceConfig.getAggregateChunkRows());
+        log.debug("聚合查询完成，{} 行 -> {} 行，耗时 {} ms", dataset.getRowCount(), result.getRowCount(),
+                System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * 执行聚合查询
+     *
+     * @param dataset   表格
+     * @param query     查询
+     * @param pool      并行执行的线程池
+     * @param chunkRows 每块的行数，不超过该行数时在当前线程执行
+     * @return 聚合结果
+     */
+    public static ColumnarDataset execute(ColumnarDataset dataset, AggregateQuery query, ForkJoinPool pool,
+                                          int chunkRows) {
+        GroupKeys keys = new GroupKeys(dataset, query);
+        ChunkTask task = new ChunkTask(dataset, query, keys, 0, dataset.getRowCount(), Math.max(1, chunkRows));
+        Partial total = dataset.getRowCount() <= chunkRows ? task.compute() : pool.invoke(task);
+        return toDataset(dataset, query, keys, total);
+    }
+
+    /**
+     * 累加结果转为表格：排序、截断、计算平均值
+     */
+    private static ColumnarDataset toDataset(ColumnarDataset dataset, AggregateQuery query, GroupKeys keys,
+                                             Partial total) {
+        List<AggregateMeasure> measures = query.getMeasures();
+        String[] names = keys.names();
+        List<Integer> groups = new ArrayList<>();
+        for (int group = 0; group < total.groups; group++) {
+            if (total.rows[group] > 0) {
+                groups.add(group);
+            }
+        }
+        boolean truncate = query.getTimeBucket() == null && query.getLimit() > 0 && groups.size() > query.getLimit();
+        // 只保留一组时不合并，否则结果只剩"其他"
+        boolean mergeOthers = truncate && query.isMergeOthers() && query.getLimit() > 1;
+        if (query.getTimeBucket() != null || !keys.isDictionary()) {
+            // 时间按先后，非字典列的分组编号与并行顺序有关，按名称排序保证结果稳定
+            groups.sort(Comparator.comparing(group -> names[group]));
+        }
+        if (truncate) {
+            // 按第一个指标（没有指标时按行数）从大到小，保持稳定排序
+            groups.sort(Comparator.comparingDouble((Integer group) -> -rankValue(total, measures, group)));
+        }
+        List<String> headers = new ArrayList<>();
+        String keyHeader = dataset.getHeaders().get(query.getGroupBy());
+        if (query.getTimeBucket() != null) {
+            keyHeader += "(" + query.getTimeBucket().getText() + ")";
+        }
+        headers.add(keyHeader);
+        for (AggregateMeasure measure : measures) {
+            headers.add(dataset.getHeaders().get(measure.getColumn()) + "(" + measure.getFunction().getText() + ")");
+        }
+        if (query.isCountRows()) {
+            headers.add("行数");
+        }
+        ColumnarDataset.Builder result = ColumnarDataset.builder().header(headers);
+        int keep = groups.size();
+        if (truncate) {
+            keep = mergeOthers ? query.getLimit() - 1 : query.getLimit();
+        }
+        for (int i = 0; i < keep; i++) {
+            int group = groups.get(i);
+            result.addRow(toRow(names[group], measures, query.isCountRows(), total, group));
+        }
+        if (mergeOthers) {
+            Partial others = new Partial(measures.size(), 1);
+            for (int i = keep; i < groups.size(); i++) {
+                others.add(0, total, groups.get(i));
+            }
+            result.addRow(toRow(OTHERS, measures, query.isCountRows(), others, 0));
+        }
+        return result.build();
+    }
+
+    private static double rankValue(Partial total, List<AggregateMeasure> measures, int group) {
+        if (measures.isEmpty()) {
+            return total.rows[group];
+        }
+        double value = measureValue(measures.get(0).getFunction(), total, group, 0);
+        return Double.isNaN(value) ? Double.NEGATIVE_INFINITY : value;
+    }
+
+    private static double measureValue(AggregateFunctionEnums function, Partial partial, int group, int measure) {
+        int index = group * partial.measureCount + measure;
+        long count = partial.counts[index];
+        switch (function) {
+            case COUNT:
+                return count;
+            case AVG:
+                return count == 0 ? Double.NaN : partial.sums[index] / count;
+            case SUM:
+            default:
+                return count == 0 ? Double.NaN : partial.sums[index];
+        }
+    }
+
+    private static List<String> toRow(String name, List<AggregateMeasure> measures, boolean countRows,
+                                      Partial partial, int group) {
+        List<String> row = new ArrayList<>(measures.size() + 2);
+        row.add(name);
+        for (int i = 0; i < measures.size(); i++) {
+            row.add(CsvEncoder.encodeNumber(measureValue(measures.get(i).getFunction(), partial, group, i)));
+        }
+        if (countRows) {
+            row.add(Long.toString(partial.rows[group]));
+        }
+        return row;
+    }
+
+    /**
+     * 行到分组编号的映射
+     */
+    private static class GroupKeys {
+
+        private final ColumnarDataset dataset;
+
+        private final int column;
+
+        private final TimeBucketEnums timeBucket;
+
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+        private final AtomicInteger nextId = new AtomicInteger();
+
+        /**
+         * 字典列：字典下标到分组编号
+         */
+        private final int[] codeToGroup;
+
+        /**
+         * 空单元格的分组编号
+         */
+        private final int nullGroup;
+
+        GroupKeys(ColumnarDataset dataset, AggregateQuery query) {
+            this.dataset = dataset;
+            this.column = query.getGroupBy();
+            this.timeBucket = query.getTimeBucket();
+            if (dataset.isDictionary(column)) {
+                codeToGroup = new int[dataset.getDictionarySize(column)];
+                for (int code = 0; code < codeToGroup.length; code++) {
+                    codeToGroup[code] = id(key(dataset.getDictionaryValue(column, code)));
+                }
+            } else {
+                codeToGroup = null;
+            }
+            nullGroup = id("");
+        }
+
+        boolean isDictionary() {
+            return codeToGroup != null;
+        }
+
+        int groupCount() {
+            return nextId.get();
+        }
+
+        int groupOf(int row) {
+            if (dataset.isNull(column, row)) {
+                return nullGroup;
+            }
+            if (codeToGroup != null) {
+                return codeToGroup[dataset.getCode(column, row)];
+            }
+            return id(key(dataset.getText(column, row)));
+        }
+
+        String[] names() {
+            String[] names = new String[groupCount()];
+            for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+                names[entry.getValue()] = entry.getKey();
+            }
+            return names;
+        }
+
+        private String key(String text) {
+            if (timeBucket == null) {
+                return text;
+            }
+            LocalDate date = TimeBuckets.parse(text);
+            // 不是日期的单元格按原值分组
+            return date == null ? text : TimeBuckets.bucket(date, timeBucket);
+        }
+
+        private int id(String key) {
+            return ids.computeIfAbsent(key, k -> nextId.getAndIncrement());
+        }
+    }
+
+    /**
+     * 一块行的累加结果
+     */
+    private static class Partial {
+
+        private final int measureCount;
+
+        /**
+         * 每组每个指标的合计，下标为 group * measureCount + measure
+         */
+        private double[] sums;
+
+        /**
+         * 每组每个指标参与计算的单元格数（sum / avg 为数值个数，count 为非空个数）
+         */
+        private long[] counts;
+
+        /**
+         * 每组的行数
+         */
+        private long[] rows;
+
+        private int groups;
+
+        Partial(int measureCount, int groups) {
+            this.measureCount = measureCount;
+            this.groups = groups;
+            this.sums = new double[groups * measureCount];
+            this.counts = new long[groups * measureCount];
+            this.rows = new long[groups];
+        }
+
+        void ensure(int group) {
+            if (group < groups) {
+                return;
+            }
+            groups = Math.max(group + 1, groups * 2);
+            sums = Arrays.copyOf(sums, groups * measureCount);
+            counts = Arrays.copyOf(counts, groups * measureCount);
+            rows = Arrays.copyOf(rows, groups);
+        }
+
+        /**
+         * 把 other 的一组加到本对象的一组
+         */
+        void add(int group, Partial other, int otherGroup) {
+            ensure(group);
+            rows[group] += other.rows[otherGroup];
+            for (int i = 0; i < measureCount; i++) {
+                sums[group * measureCount + i] += other.sums[otherGroup * measureCount + i];
+                counts[group * measureCount + i] += other.counts[otherGroup * measureCount + i];
+            }
+        }
+
+        void merge(Partial other) {
+            for (int group = 0; group < other.groups; group++) {
+                if (other.rows[group] > 0) {
+                    add(group, other, group);
+                }
+            }
+        }
+    }
+
+    private static class ChunkTask extends RecursiveTask<Partial> {
+
+        private final ColumnarDataset dataset;
+
+        private final AggregateQuery query;
+
+        private final GroupKeys keys;
+
+        private final int from;
+
+        private final int to;
+
+        private final int chunkRows;
+
+        ChunkTask(ColumnarDataset dataset, AggregateQuery query, GroupKeys keys, int from, int to, int chunkRows) {
+            this.dataset = dataset;
+            this.query = query;
+            this.keys = keys;
+            this.from = from;
+            this.to = to;
+            this.chunkRows = chunkRows;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > chunkRows) {
+                int mid = (from + to) >>> 1;
+                ChunkTask left = new ChunkTask(dataset, query, keys, from, mid, chunkRows);
+                left.fork();
+                Partial right = new ChunkTask(dataset, query, keys, mid, to, chunkRows).compute();
+                Partial result = left.join();
+                result.merge(right);
+                return result;
+            }
+            List<AggregateMeasure> measures = query.getMeasures();
+            int measureCount = measures.size();
+            Partial partial = new Partial(measureCount, keys.groupCount());
+            for (int row = from; row < to; row++) {
+                int group = keys.groupOf(row);
+                partial.ensure(group);
+                partial.rows[group]++;
+                for (int i = 0; i < measureCount; i++) {
+                    AggregateMeasure measure = measures.get(i);
+                    int index = group * measureCount + i;
+                    if (measure.getFunction() == AggregateFunctionEnums.COUNT) {
+                        if (!dataset.isNull(measure.getColumn(), row)) {
+                            partial.counts[index]++;
+                        }
+                        continue;
+                    }
+                    double value = dataset.getDouble(measure.getColumn(), row);
+                    if (!Double.isNaN(value)) {
+                        partial.sums[index] += value;
+                        partial.counts[index]++;
+                    }
+                }
+            }
+            return partial;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.nanshuo.BI.manager.aggregate;
+
+import com.nanshuo.BI.model.enums.chart.AggregateFunctionEnums;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 聚合指标（对某一列做 sum / avg / count）
+ *
+ * @author nanshuo
+ * @date 2026/10/19 00:13:40
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AggregateMeasure {
+
+    /**
+     * 列下标
+     */
+    private int column;
+
+    /**
+     * 聚合函数
+     */
+    private AggregateFunctionEnums function;
+}
@@ -0,0 +1,48 @@
+package com.nanshuo.BI.manager.aggregate;
+
+import com.nanshuo.BI.model.enums.chart.TimeBucketEnums;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 聚合查询：按一列（可按时间分桶）分组，计算若干指标，可只保留前 N 组
+ *
+ * @author nanshuo
+ * @date 2026/10/19 00:14:25
+ */
+@Data
+public class AggregateQuery {
+
+    /**
+     * 分组列下标
+     */
+    private int groupBy;
+
+    /**
+     * 时间分桶粒度，null 表示按原值分组
+     */
+    private TimeBucketEnums timeBucket;
+
+    /**
+     * 聚合指标
+     */
+    private List<AggregateMeasure> measures = new ArrayList<>();
+
+    /**
+     * 是否输出每组的行数
+     */
+    private boolean countRows = true;
+
+    /**
+     * 最多保留的组数（按第一个指标从大到小，没有指标时按行数），小于等于 0 表示不限制；
+     * 按时间分桶时按时间排序，不截断
+     */
+    private int limit;
+
+    /**
+     * 截断时是否把其余的组合并为一行"其他"
+     */
+    private boolean mergeOthers = true;
+}
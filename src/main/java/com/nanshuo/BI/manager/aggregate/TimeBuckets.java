@@ -0,0 +1,105 @@
+package com.nanshuo.BI.manager.aggregate;
+
+import com.nanshuo.BI.model.enums.chart.TimeBucketEnums;
+
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 日期解析与时间分桶
+ * <p>
+ * 支持 {@link com.nanshuo.BI.utils.excel.ColumnTypeDetector} 识别为日期的格式：2024-01-02、2024/1/2、2024.1（可带时间）、
+ * 2024年1月2日、2024年1月、1月2日。分桶结果是可以按字典序排序的文本，没有年份的日期不输出年份
+ *
+ * @author nanshuo
+ * @date 2026/10/19 00:16:52
+ */
+public class TimeBuckets {
+
+    private static final Pattern NUMERIC_DATE = Pattern.compile(
+            "^(\\d{4})([-/.])(\\d{1,2})(?:\\2(\\d{1,2}))?(?:[ T]\\d{1,2}:\\d{1,2}(?::\\d{1,2})?)?$");
+
+    private static final Pattern CHINESE_DATE = Pattern.compile("^(\\d{4})年(\\d{1,2})月(?:(\\d{1,2})[日号])?$");
+
+    private static final Pattern CHINESE_MONTH_DAY = Pattern.compile("^(\\d{1,2})月(\\d{1,2})[日号]$");
+
+    /**
+     * 没有年份的日期使用的年份（闰年，允许 2 月 29 日）
+     */
+    private static final int NO_YEAR = 0;
+
+    private TimeBuckets() {
+    }
+
+    /**
+     * 解析日期，不是日期时返回 null；只有年月时取当月 1 日
+     *
+     * @param text 文本
+     * @return {@code LocalDate}
+     */
+    public static LocalDate parse(String text) {
+        if (text == null) {
+            return null;
+        }
+        String value = text.trim();
+        try {
+            Matcher matcher = NUMERIC_DATE.matcher(value);
+            if (matcher.matches()) {
+                return LocalDate.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(3)),
+                        matcher.group(4) == null ? 1 : Integer.parseInt(matcher.group(4)));
+            }
+            matcher = CHINESE_DATE.matcher(value);
+            if (matcher.matches()) {
+                return LocalDate.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)),
+                        matcher.group(3) == null ? 1 : Integer.parseInt(matcher.group(3)));
+            }
+            matcher = CHINESE_MONTH_DAY.matcher(value);
+            if (matcher.matches()) {
+                return LocalDate.of(NO_YEAR, Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            }
+        } catch (DateTimeException e) {
+            return null;
+        }
+        return null;
+    }
+
+    /**
+     * 分桶
+     *
+     * @param date   日期
+     * @param bucket 粒度
+     * @return 桶的文本（如 2024-01-02、2024-01、2024-Q1、2024，按周时为周一的日期）
+     */
+    public static String bucket(LocalDate date, TimeBucketEnums bucket) {
+        String key;
+        switch (bucket) {
+            case WEEK:
+                LocalDate monday = date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                key = String.format("%04d-%02d-%02d", monday.getYear(), monday.getMonthValue(),
+                        monday.getDayOfMonth());
+                break;
+            case MONTH:
+                key = String.format("%04d-%02d", date.getYear(), date.getMonthValue());
+                break;
+            case QUARTER:
+                key = String.format("%04d-Q%d", date.getYear(), (date.getMonthValue() - 1) / 3 + 1);
+                break;
+            case YEAR:
+                key = String.format("%04d", date.getYear());
+                break;
+            case DAY:
+            default:
+                key = String.format("%04d-%02d-%02d", date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+                break;
+        }
+        if (date.getYear() == NO_YEAR && bucket != TimeBucketEnums.YEAR) {
+            // 去掉年份（按周时周一可能落在前一年）
+            return key.substring(key.indexOf('-', 1) + 1);
+        }
+        return key;
+    }
+}
@@ -0,0 +1,93 @@
+package com.nanshuo.BI.manager.ai;
+
+/**
+ * 自适应并发限制（AIMD）
+ * <p>
+ * 以最近一个窗口内的最小耗时为基准：耗时超过基准的 tolerance 倍或调用失败 / 超时时，并发数乘以 backoffRatio；
+ * 否则在并发已被用满一半以上时加 1，上下限为 [minLimit, maxLimit]
+ *
+ * @author nanshuo
+ * @date 2026/10/18 17:20:54
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double backoffRatio;
+
+    private final double tolerance;
+
+    private final int baselineWindow;
+
+    private double limit;
+
+    /**
+     * 基准耗时：上一个窗口内的最小耗时
+     */
+    private long baseline = Long.MAX_VALUE;
+
+    private long windowMin = Long.MAX_VALUE;
+
+    private int windowSamples;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio,
+                                      double tolerance, int baselineWindow) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.max(this.minLimit, Math.min(initialLimit, this.maxLimit));
+        this.backoffRatio = backoffRatio;
+        this.tolerance = tolerance;
+        this.baselineWindow = Math.max(1, baselineWindow);
+    }
+
+    /**
+     * 记录一次调用
+     *
+     * @param latencyMs 耗时（毫秒）
+     * @param dropped   是否失败或超时
+     * @param inFlight  调用开始时进行中的调用数
+     */
+    public synchronized void onSample(long latencyMs, boolean dropped, int inFlight) {
+        if (dropped) {
+            decrease();
+            return;
+        }
+        windowMin = Math.min(windowMin, latencyMs);
+        if (++windowSamples >= baselineWindow) {
+            // 定期刷新基准，避免一次偶然的极快调用让后续调用都被判定为拥塞
+            baseline = windowMin;
+            windowMin = Long.MAX_VALUE;
+            windowSamples = 0;
+        }
+        baseline = Math.min(baseline, latencyMs);
+        if (latencyMs > baseline * tolerance) {
+            decrease();
+        } else if (inFlight * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    /**
+     * 当前并发上限
+     *
+     * @return int
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * 基准耗时（毫秒），没有样本时返回 0
+     *
+     * @return long
+     */
+    public synchronized long getBaseline() {
+        return baseline == Long.MAX_VALUE ? 0 : baseline;
+    }
+
+    private void decrease() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+}
@@ -0,0 +1,44 @@
+package com.nanshuo.BI.manager.ai;
+
+import java.util.function.Consumer;
+
+/**
+ * AI 模型客户端（阻塞调用），由 {@link com.nanshuo.BI.manager.AiManager} 负责超时、并发控制等
+ *
+ * @author nanshuo
+ * @date 2026/10/18 16:05:12
+ */
+public interface AiClient {
+
+    /**
+     * 对话
+     *
+     * @param modelId 模型 id
+     * @param message 内容
+     * @return AI 生成的内容
+     */
+    String chat(long modelId, String message);
+
+    /**
+     * 是否支持流式输出，不支持时 {@link #chatStream} 在调用结束后一次性回调完整内容
+     *
+     * @return boolean
+     */
+    default boolean supportsStreaming() {
+        return false;
+    }
+
+    /**
+     * 流式对话，每收到一段输出回调一次
+     *
+     * @param modelId 模型 id
+     * @param message 内容
+     * @param onChunk 分片回调
+     * @return AI 生成的完整内容
+     */
+    default String chatStream(long modelId, String message, Consumer<String> onChunk) {
+        String content = chat(modelId, message);
+        onChunk.accept(content);
+        return content;
+    }
+}
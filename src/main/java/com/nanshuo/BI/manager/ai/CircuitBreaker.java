@@ -0,0 +1,158 @@
+package com.nanshuo.BI.manager.ai;
+
+/**
+ * 熔断器
+ * <p>
+ * 关闭：统计最近 N 次调用，失败率或慢调用比例超过阈值后打开；
+ * 打开：直接拒绝，持续一段时间后进入半开；
+ * 半开：放行少量试探调用，全部成功则关闭，任一失败重新打开
+ *
+ * @author nanshuo
+ * @date 2026/10/18 17:12:36
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int minCalls;
+
+    private final double failureRateThreshold;
+
+    private final long slowCallThreshold;
+
+    private final double slowCallRateThreshold;
+
+    private final long openDuration;
+
+    private final int halfOpenCalls;
+
+    /**
+     * 最近 N 次调用是否失败 / 是否慢调用
+     */
+    private final boolean[] failures;
+
+    private final boolean[] slowCalls;
+
+    private int size;
+
+    private int next;
+
+    private int failureCount;
+
+    private int slowCallCount;
+
+    private State state = State.CLOSED;
+
+    private long openedAt;
+
+    private int halfOpenAcquired;
+
+    private int halfOpenSucceeded;
+
+    private long openCount;
+
+    public CircuitBreaker(int windowSize, int minCalls, double failureRateThreshold, long slowCallThreshold,
+                          double slowCallRateThreshold, long openDuration, int halfOpenCalls) {
+        this.failures = new boolean[windowSize];
+        this.slowCalls = new boolean[windowSize];
+        this.minCalls = minCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallThreshold = slowCallThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.openDuration = openDuration;
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    /**
+     * 是否处于打开状态（不改变状态，用于入队前快速失败）
+     *
+     * @return boolean
+     */
+    public synchronized boolean isOpen() {
+        return state == State.OPEN && System.currentTimeMillis() - openedAt < openDuration;
+    }
+
+    /**
+     * 申请调用，放行后必须调用一次 {@link #onResult}
+     *
+     * @return 是否放行
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openDuration) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenAcquired = 0;
+            halfOpenSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenAcquired >= halfOpenCalls) {
+                return false;
+            }
+            halfOpenAcquired++;
+        }
+        return true;
+    }
+
+    /**
+     * 记录调用结果
+     *
+     * @param latencyMs 耗时（毫秒）
+     * @param success   是否成功
+     */
+    public synchronized void onResult(long latencyMs, boolean success) {
+        boolean slow = latencyMs >= slowCallThreshold;
+        if (state == State.OPEN) {
+            // 打开前发出的调用，结果不再计入
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            if (!success || slow) {
+                open();
+            } else if (++halfOpenSucceeded >= halfOpenCalls) {
+                close();
+            }
+            return;
+        }
+        if (size == failures.length) {
+            failureCount -= failures[next] ? 1 : 0;
+            slowCallCount -= slowCalls[next] ? 1 : 0;
+        } else {
+            size++;
+        }
+        failures[next] = !success;
+        slowCalls[next] = slow;
+        failureCount += success ? 0 : 1;
+        slowCallCount += slow ? 1 : 0;
+        next = (next + 1) % failures.length;
+        if (size >= minCalls && ((double) failureCount / size >= failureRateThreshold
+                || (double) slowCallCount / size >= slowCallRateThreshold)) {
+            open();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized long getOpenCount() {
+        return openCount;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        openCount++;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        size = 0;
+        next = 0;
+        failureCount = 0;
+        slowCallCount = 0;
+    }
+}
@@ -0,0 +1,203 @@
+package com.nanshuo.BI.manager.ai;
+
+import com.nanshuo.BI.common.CommonConstant;
+
+import java.util.function.Consumer;
+
+/**
+ * AI 生成结果解析器（状态机），可以边接收边解析流式输出
+ * <p>
+ * 结果格式：{@code 【【【【【 图表配置 【【【【【 分析结论}，第一个分隔符之前和第三个分隔符之后的内容忽略。
+ * 分隔符可能被拆在两个分片中，按字符逐个匹配（KMP），不需要缓存整段输出
+ *
+ * @author nanshuo
+ * @date 2026/10/18 17:48:20
+ */
+public class GenResultParser {
+
+    private enum State {
+        /**
+         * 第一个分隔符之前
+         */
+        PREAMBLE,
+        /**
+         * 图表配置
+         */
+        CHART,
+        /**
+         * 分析结论
+         */
+        RESULT,
+        /**
+         * 第三个分隔符之后
+         */
+        IGNORED
+    }
+
+    private static final String SEPARATOR = CommonConstant.GEN_SEPARATOR;
+
+    /**
+     * KMP 部分匹配表
+     */
+    private static final int[] FAILURE = buildFailure(SEPARATOR);
+
+    private State state = State.PREAMBLE;
+
+    /**
+     * 已匹配的分隔符长度
+     */
+    private int matched;
+
+    private final StringBuilder chart = new StringBuilder();
+
+    private final StringBuilder result = new StringBuilder();
+
+    /**
+     * 图表配置接收完成的回调
+     */
+    private final Consumer<String> onChart;
+
+    /**
+     * 分析结论增量的回调
+     */
+    private final Consumer<String> onResultChunk;
+
+    private String genChart;
+
+    public GenResultParser() {
+        this(null, null);
+    }
+
+    public GenResultParser(Consumer<String> onChart, Consumer<String> onResultChunk) {
+        this.onChart = onChart;
+        this.onResultChunk = onResultChunk;
+    }
+
+    /**
+     * 解析完整的结果
+     *
+     * @param content AI 生成结果
+     * @return {@link GenResultParser}
+     */
+    public static GenResultParser parse(String content) {
+        GenResultParser parser = new GenResultParser();
+        if (content != null) {
+            parser.feed(content);
+        }
+        return parser;
+    }
+
+    /**
+     * 接收一段输出
+     *
+     * @param chunk 分片
+     */
+    public void feed(CharSequence chunk) {
+        int resultStart = result.length();
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+            while (matched > 0 && c != SEPARATOR.charAt(matched)) {
+                // 失配：已匹配但不属于分隔符的部分还给当前段
+                int fallback = FAILURE[matched - 1];
+                append(SEPARATOR, 0, matched - fallback);
+                matched = fallback;
+            }
+            if (c == SEPARATOR.charAt(matched)) {
+                if (++matched == SEPARATOR.length()) {
+                    matched = 0;
+                    if (state == State.RESULT) {
+                        emitResultChunk(resultStart);
+                    }
+                    nextState();
+                    resultStart = result.length();
+                }
+                continue;
+            }
+            append(c);
+        }
+        if (state == State.RESULT) {
+            emitResultChunk(resultStart);
+        }
+    }
+
+    /**
+     * 图表配置和分析结论是否都已出现
+     *
+     * @return boolean
+     */
+    public boolean isComplete() {
+        return state == State.RESULT || state == State.IGNORED;
+    }
+
+    /**
+     * 图表配置（去除首尾空白），未接收完成时返回 null
+     *
+     * @return {@link String}
+     */
+    public String getGenChart() {
+        return genChart;
+    }
+
+    /**
+     * 分析结论（去除首尾空白），还未出现时返回 null
+     *
+     * @return {@link String}
+     */
+    public String getGenResult() {
+        return isComplete() ? result.toString().trim() : null;
+    }
+
+    private void nextState() {
+        switch (state) {
+            case PREAMBLE:
+                state = State.CHART;
+                break;
+            case CHART:
+                state = State.RESULT;
+                genChart = chart.toString().trim();
+                if (onChart != null) {
+                    onChart.accept(genChart);
+                }
+                break;
+            default:
+                state = State.IGNORED;
+                break;
+        }
+    }
+
+    private void emitResultChunk(int from) {
+        if (onResultChunk != null && result.length() > from) {
+            onResultChunk.accept(result.substring(from));
+        }
+    }
+
+    private void append(char c) {
+        if (state == State.CHART) {
+            chart.append(c);
+        } else if (state == State.RESULT) {
+            result.append(c);
+        }
+    }
+
+    private void append(CharSequence s, int start, int end) {
+        if (state == State.CHART) {
+            chart.append(s, start, end);
+        } else if (state == State.RESULT) {
+            result.append(s, start, end);
+        }
+    }
+
+    private static int[] buildFailure(String pattern) {
+        int[] failure = new int[pattern.length()];
+        for (int i = 1, k = 0; i < pattern.length(); i++) {
+            while (k > 0 && pattern.charAt(i) != pattern.charAt(k)) {
+                k = failure[k - 1];
+            }
+            if (pattern.charAt(i) == pattern.charAt(k)) {
+                k++;
+            }
+            failure[i] = k;
+        }
+        return failure;
+    }
+}
@@ -0,0 +1,63 @@
+package com.nanshuo.BI.manager.ai;
+
+import java.util.Arrays;
+
+/**
+ * 最近 N 次调用耗时的滑动窗口，用于计算 p50 / p95 等分位数
+ *
+ * @author nanshuo
+ * @date 2026/10/18 16:14:29
+ */
+public class LatencyRecorder {
+
+    private final long[] samples;
+
+    private int size;
+
+    private int next;
+
+    public LatencyRecorder(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    /**
+     * 记录一次耗时
+     *
+     * @param latencyMs 耗时（毫秒）
+     */
+    public synchronized void record(long latencyMs) {
+        samples[next] = latencyMs;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) {
+            size++;
+        }
+    }
+
+    /**
+     * 样本数
+     *
+     * @return int
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 分位数
+     *
+     * @param quantile 分位（0 ~ 1）
+     * @return 没有样本时返回 0
+     */
+    public long percentile(double quantile) {
+        long[] copy;
+        synchronized (this) {
+            if (size == 0) {
+                return 0;
+            }
+            copy = Arrays.copyOf(samples, size);
+        }
+        Arrays.sort(copy);
+        int index = (int) Math.ceil(quantile * copy.length) - 1;
+        return copy[Math.max(0, Math.min(index, copy.length - 1))];
+    }
+}
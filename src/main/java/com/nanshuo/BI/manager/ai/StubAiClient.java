@@ -0,0 +1,102 @@
+package com.nanshuo.BI.manager.ai;
+
+import com.nanshuo.BI.common.CommonConstant;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * 本地桩 AI 客户端（不访问网络），按给定延迟返回固定格式的结果，用于本地开发、测试和压测
+ *
+ * @author nanshuo
+ * @date 2026/10/18 16:10:03
+ */
+@Slf4j
+public class StubAiClient implements AiClient {
+
+    /**
+     * 固定返回的图表配置
+     */
+    public static final String STUB_CHART = "{\"title\":{\"text\":\"本地桩模型\"},"
+            + "\"xAxis\":{\"type\":\"category\",\"data\":[\"1号\",\"2号\",\"3号\"]},"
+            + "\"yAxis\":{\"type\":\"value\"},\"series\":[{\"type\":\"line\",\"data\":[10,20,30]}]}";
+
+    /**
+     * 固定返回的分析结论
+     */
+    public static final String STUB_RESULT = "这是本地桩模型生成的分析结论（未调用真实 AI）";
+
+    private static final String CONTENT = CommonConstant.GEN_SEPARATOR + "\n" + STUB_CHART + "\n"
+            + CommonConstant.GEN_SEPARATOR + "\n" + STUB_RESULT;
+
+    /**
+     * 分析结论的分片数
+     */
+    private static final int STREAM_CHUNKS = 4;
+
+    /**
+     * 每次调用的延迟（毫秒）
+     */
+    private final LongSupplier latencySupplier;
+
+    /**
+     * 调用次数
+     */
+    private final AtomicLong callCount = new AtomicLong();
+
+    public StubAiClient(LongSupplier latencySupplier) {
+        this.latencySupplier = latencySupplier;
+    }
+
+    @Override
+    public String chat(long modelId, String message) {
+        callCount.incrementAndGet();
+        sleep(latencySupplier.getAsLong());
+        return CONTENT;
+    }
+
+    @Override
+    public boolean supportsStreaming() {
+        return true;
+    }
+
+    /**
+     * 分片输出：前一半延迟内输出图表配置，后一半延迟内逐段输出分析结论（分隔符会被拆在两个分片中，便于测试解析）
+     */
+    @Override
+    public String chatStream(long modelId, String message, Consumer<String> onChunk) {
+        callCount.incrementAndGet();
+        long latency = latencySupplier.getAsLong();
+        int chartEnd = CONTENT.indexOf(CommonConstant.GEN_SEPARATOR, CommonConstant.GEN_SEPARATOR.length()) + 2;
+        sleep(latency / 2);
+        onChunk.accept(CONTENT.substring(0, chartEnd));
+        int chunkSize = Math.max(1, (CONTENT.length() - chartEnd) / STREAM_CHUNKS + 1);
+        for (int start = chartEnd; start < CONTENT.length(); start += chunkSize) {
+            sleep(latency / 2 / STREAM_CHUNKS);
+            onChunk.accept(CONTENT.substring(start, Math.min(start + chunkSize, CONTENT.length())));
+        }
+        return CONTENT;
+    }
+
+    /**
+     * 获取调用次数
+     *
+     * @return long
+     */
+    public long getCallCount() {
+        return callCount.get();
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
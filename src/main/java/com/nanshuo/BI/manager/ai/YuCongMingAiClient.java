@@ -0,0 +1,35 @@
+package com.nanshuo.BI.manager.ai;
+
+import com.nanshuo.BI.common.ErrorCode;
+import com.nanshuo.BI.exception.BusinessException;
+import com.yupi.yucongming.dev.client.YuCongMingClient;
+import com.yupi.yucongming.dev.common.BaseResponse;
+import com.yupi.yucongming.dev.model.DevChatRequest;
+import com.yupi.yucongming.dev.model.DevChatResponse;
+
+/**
+ * 鱼聪明 AI 客户端（https://www.yucongming.com）
+ *
+ * @author nanshuo
+ * @date 2026/10/18 16:07:40
+ */
+public class YuCongMingAiClient implements AiClient {
+
+    private final YuCongMingClient yuCongMingClient;
+
+    public YuCongMingAiClient(YuCongMingClient yuCongMingClient) {
+        this.yuCongMingClient = yuCongMingClient;
+    }
+
+    @Override
+    public String chat(long modelId, String message) {
+        DevChatRequest devChatRequest = new DevChatRequest();
+        devChatRequest.setModelId(modelId);
+        devChatRequest.setMessage(message);
+        BaseResponse<DevChatResponse> response = yuCongMingClient.doChat(devChatRequest);
+        if (response == null || response.getData() == null) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "AI 响应错误");
+        }
+        return response.getData().getContent();
+    }
+}
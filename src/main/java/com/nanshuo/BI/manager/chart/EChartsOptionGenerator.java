@@ -0,0 +1,168 @@
+package com.nanshuo.BI.manager.chart;
+
+import com.nanshuo.BI.model.enums.chart.ChartTypeEnums;
+import com.nanshuo.BI.model.enums.chart.ColumnTypeEnums;
+import com.nanshuo.BI.utils.JsonUtils;
+import com.nanshuo.BI.utils.excel.ColumnStats;
+import com.nanshuo.BI.utils.excel.ColumnarDataset;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按模板生成 ECharts 图表配置（不调用 AI）
+ * <p>
+ * 只处理明显的 x / y 结构：恰好一个非数值列作为 x 轴（取值不重复且不为空），其余列都是数值列作为 y 轴。
+ * 结构不明显时返回 null，交给 AI 生成
+ *
+ * @author nanshuo
+ * @date 2026/10/19 01:02:16
+ */
+public class EChartsOptionGenerator {
+
+    private EChartsOptionGenerator() {
+    }
+
+    /**
+     * 生成图表配置
+     *
+     * @param dataset   数据（行数需要调用方先控制在 x 轴 / 扇区数上限以内）
+     * @param chartType 图表类型
+     * @param title     标题，为空时不生成标题
+     * @param maxSeries 折线图、柱状图最多的系列数
+     * @return 图表配置 json，结构不明显时返回 null
+     */
+    public static String generate(ColumnarDataset dataset, ChartTypeEnums chartType, String title, int maxSeries) {
+        if (dataset == null || chartType == null || dataset.getRowCount() == 0) {
+            return null;
+        }
+        int category = -1;
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < dataset.getColumnCount(); i++) {
+            if (dataset.getColumnTypes().get(i) == ColumnTypeEnums.NUMERIC) {
+                values.add(i);
+            } else if (category < 0) {
+                category = i;
+            } else {
+                return null;
+            }
+        }
+        if (category < 0 || values.isEmpty() || !isDistinctCategory(dataset, category)) {
+            return null;
+        }
+        Map<String, Object> option = new LinkedHashMap<>();
+        if (StringUtils.isNotBlank(title)) {
+            option.put("title", singletonMap("text", title.trim()));
+        }
+        if (chartType == ChartTypeEnums.PIE) {
+            return values.size() == 1 && putPie(option, dataset, category, values.get(0))
+                    ? JsonUtils.objToJson(option) : null;
+        }
+        if (values.size() > maxSeries) {
+            return null;
+        }
+        putAxis(option, dataset, chartType, category, values);
+        return JsonUtils.objToJson(option);
+    }
+
+    /**
+     * x 轴取值不为空且不重复（重复时需要先聚合，不能直接画）
+     */
+    private static boolean isDistinctCategory(ColumnarDataset dataset, int category) {
+        ColumnStats stats = dataset.getStats(category);
+        return stats.getNullCount() == 0 && stats.getDistinctCount() != null
+                && stats.getDistinctCount() == dataset.getRowCount();
+    }
+
+    private static void putAxis(Map<String, Object> option, ColumnarDataset dataset, ChartTypeEnums chartType,
+                                int category, List<Integer> values) {
+        List<String> legend = new ArrayList<>(values.size());
+        List<Map<String, Object>> series = new ArrayList<>(values.size());
+        for (int column : values) {
+            String name = dataset.getHeaders().get(column);
+            List<Number> data = new ArrayList<>(dataset.getRowCount());
+            for (int row = 0; row < dataset.getRowCount(); row++) {
+                data.add(toNumber(dataset.getDouble(column, row)));
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("name", name);
+            item.put("type", chartType.getValue());
+            item.put("data", data);
+            legend.add(name);
+            series.add(item);
+        }
+        List<String> categories = new ArrayList<>(dataset.getRowCount());
+        for (int row = 0; row < dataset.getRowCount(); row++) {
+            categories.add(dataset.getText(category, row));
+        }
+        Map<String, Object> xAxis = new LinkedHashMap<>();
+        xAxis.put("type", "category");
+        xAxis.put("name", dataset.getHeaders().get(category));
+        xAxis.put("data", categories);
+        option.put("tooltip", singletonMap("trigger", "axis"));
+        option.put("legend", singletonMap("data", legend));
+        option.put("xAxis", xAxis);
+        option.put("yAxis", singletonMap("type", "value"));
+        option.put("series", series);
+    }
+
+    /**
+     * 饼图：数值不能为负，空值的扇区不画
+     *
+     * @return 是否可以画成饼图
+     */
+    private static boolean putPie(Map<String, Object> option, ColumnarDataset dataset, int category, int value) {
+        List<Map<String, Object>> data = new ArrayList<>(dataset.getRowCount());
+        for (int row = 0; row < dataset.getRowCount(); row++) {
+            double number = dataset.getDouble(value, row);
+            if (Double.isNaN(number)) {
+                continue;
+            }
+            if (number < 0) {
+                return false;
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("name", dataset.getText(category, row));
+            item.put("value", toNumber(number));
+            data.add(item);
+        }
+        if (data.isEmpty()) {
+            return false;
+        }
+        Map<String, Object> legend = new LinkedHashMap<>();
+        legend.put("orient", "vertical");
+        legend.put("left", "left");
+        Map<String, Object> series = new LinkedHashMap<>();
+        series.put("name", dataset.getHeaders().get(value));
+        series.put("type", ChartTypeEnums.PIE.getValue());
+        series.put("radius", "50%");
+        series.put("data", data);
+        option.put("tooltip", singletonMap("trigger", "item"));
+        option.put("legend", legend);
+        option.put("series", Collections.singletonList(series));
+        return true;
+    }
+
+    /**
+     * 整数按整数输出（避免 json 中出现 10.0），空值为 null
+     */
+    private static Number toNumber(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return null;
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return (long) value;
+        }
+        return value;
+    }
+
+    private static Map<String, Object> singletonMap(String key, Object value) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put(key, value);
+        return map;
+    }
+}
@@ -0,0 +1,72 @@
+package com.nanshuo.BI.manager.chart;
+
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.regex.Pattern;
+
+/**
+ * 校验 AI 生成的 ECharts 图表配置
+ * <p>
+ * 模型输出的常是 js 对象字面量（键不加引号、单引号、末尾多余逗号、注释），宽松解析后统一转成标准 JSON；
+ * 含函数等无法解析的内容、或没有 series 时视为不合法
+ *
+ * @author nanshuo
+ * @date 2026/10/19 01:52:37
+ */
+public class EChartsOptionValidator {
+
+    private static final ObjectMapper LENIENT_MAPPER = JsonMapper.builder()
+            .enable(JsonReadFeature.ALLOW_UNQUOTED_FIELD_NAMES)
+            .enable(JsonReadFeature.ALLOW_SINGLE_QUOTES)
+            .enable(JsonReadFeature.ALLOW_TRAILING_COMMA)
+            .enable(JsonReadFeature.ALLOW_JAVA_COMMENTS)
+            .build();
+
+    /**
+     * 代码块标记（```json）
+     */
+    private static final Pattern CODE_FENCE = Pattern.compile("^```[\\w-]*\\s*|\\s*```$");
+
+    /**
+     * 变量声明（option = {...}）
+     */
+    private static final Pattern ASSIGNMENT = Pattern.compile("^(?:(?:const|let|var)\\s+)?option\\s*=\\s*");
+
+    private EChartsOptionValidator() {
+    }
+
+    /**
+     * 校验并转成标准 JSON
+     *
+     * @param option AI 生成的图表配置
+     * @return 标准 JSON，不合法时返回 null
+     */
+    public static String normalize(String option) {
+        if (StringUtils.isBlank(option)) {
+            return null;
+        }
+        String text = CODE_FENCE.matcher(option.trim()).replaceAll("");
+        text = ASSIGNMENT.matcher(text).replaceFirst("");
+        text = StringUtils.removeEnd(text.trim(), ";");
+        try {
+            JsonNode node = LENIENT_MAPPER.readTree(text);
+            if (node == null || !node.isObject() || !hasSeries(node.get("series"))) {
+                return null;
+            }
+            return LENIENT_MAPPER.writeValueAsString(node);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static boolean hasSeries(JsonNode series) {
+        if (series == null) {
+            return false;
+        }
+        return series.isObject() || series.isArray() && series.size() > 0;
+    }
+}
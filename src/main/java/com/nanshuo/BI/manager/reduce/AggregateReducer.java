@@ -0,0 +1,144 @@
+package com.nanshuo.BI.manager.reduce;
+
+import com.nanshuo.BI.manager.aggregate.AggregateEngine;
+import com.nanshuo.BI.manager.aggregate.AggregateMeasure;
+import com.nanshuo.BI.manager.aggregate.AggregateQuery;
+import com.nanshuo.BI.manager.aggregate.TimeBuckets;
+import com.nanshuo.BI.model.enums.chart.AggregateFunctionEnums;
+import com.nanshuo.BI.model.enums.chart.ColumnTypeEnums;
+import com.nanshuo.BI.model.enums.chart.DataReduceModeEnums;
+import com.nanshuo.BI.model.enums.chart.TimeBucketEnums;
+import com.nanshuo.BI.utils.excel.ColumnarDataset;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * 聚合查询：有日期列时按日期分桶汇总（选不超过目标行数的最细粒度），否则按取值最少的文本列分组并取前 N 组，
+ * 其余合并为"其他"；数值列默认求和，表头像比率、均价的列求平均。没有可分组的列时按数值分箱
+ *
+ * @author nanshuo
+ * @date 2026/10/19 00:34:18
+ */
+@Component
+public class AggregateReducer implements DataReducer {
+
+    /**
+     * 表头包含这些字时求平均而不是求和
+     */
+    private static final List<String> AVG_KEYWORDS = Arrays.asList("率", "比", "均", "价", "分数", "评分", "%");
+
+    @Resource
+    private AggregateEngine aggregateEngine;
+
+    @Resource
+    private HeadTailReducer headTailReducer;
+
+    @Resource
+    private NumericBinReducer numericBinReducer;
+
+    @Override
+    public DataReduceModeEnums getMode() {
+        return DataReduceModeEnums.AGGREGATE;
+    }
+
+    @Override
+    public ColumnarDataset reduce(ColumnarDataset dataset, int targetRows) {
+        if (dataset.getRowCount() <= targetRows) {
+            return dataset;
+        }
+        AggregateQuery query = plan(dataset, targetRows);
+        if (query == null) {
+            return numericBinReducer.reduce(dataset, targetRows);
+        }
+        return headTailReducer.reduce(aggregateEngine.execute(dataset, query), targetRows);
+    }
+
+    /**
+     * 根据列类型生成聚合查询
+     *
+     * @param dataset    表格
+     * @param targetRows 目标行数
+     * @return 没有可分组的列时返回 null
+     */
+    public static AggregateQuery plan(ColumnarDataset dataset, int targetRows) {
+        List<ColumnTypeEnums> columnTypes = dataset.getColumnTypes();
+        AggregateQuery query = new AggregateQuery();
+        int dateIndex = columnTypes.indexOf(ColumnTypeEnums.DATE);
+        TimeBucketEnums timeBucket = dateIndex < 0 ? null : chooseTimeBucket(dataset, dateIndex, targetRows);
+        if (timeBucket != null) {
+            query.setGroupBy(dateIndex);
+            query.setTimeBucket(timeBucket);
+        } else {
+            int keyIndex = -1;
+            for (int i = 0; i < columnTypes.size(); i++) {
+                if (columnTypes.get(i) != ColumnTypeEnums.NUMERIC && dataset.isDictionary(i)
+                        && dataset.getDictionarySize(i) > 1
+                        && (keyIndex < 0 || dataset.getDictionarySize(i) < dataset.getDictionarySize(keyIndex))) {
+                    keyIndex = i;
+                }
+            }
+            if (keyIndex < 0) {
+                return null;
+            }
+            query.setGroupBy(keyIndex);
+            query.setLimit(targetRows);
+        }
+        for (int i = 0; i < columnTypes.size(); i++) {
+            if (i != query.getGroupBy() && columnTypes.get(i) == ColumnTypeEnums.NUMERIC) {
+                query.getMeasures().add(new AggregateMeasure(i, isAverage(dataset.getHeaders().get(i))
+                        ? AggregateFunctionEnums.AVG : AggregateFunctionEnums.SUM));
+            }
+        }
+        return query;
+    }
+
+    /**
+     * 选择分桶数不超过目标行数的最细粒度，都超过时按年
+     *
+     * @param dataset    表格
+     * @param column     日期列
+     * @param targetRows 目标行数
+     * @return 没有可解析的日期时返回 null
+     */
+    static TimeBucketEnums chooseTimeBucket(ColumnarDataset dataset, int column, int targetRows) {
+        if (!dataset.isDictionary(column)) {
+            return null;
+        }
+        // 只解析字典中的取值
+        List<LocalDate> dates = new ArrayList<>();
+        int unparsed = 0;
+        for (int code = 0; code < dataset.getDictionarySize(column); code++) {
+            LocalDate date = TimeBuckets.parse(dataset.getDictionaryValue(column, code));
+            if (date == null) {
+                unparsed++;
+            } else {
+                dates.add(date);
+            }
+        }
+        if (dates.isEmpty()) {
+            return null;
+        }
+        for (TimeBucketEnums timeBucket : TimeBucketEnums.values()) {
+            Set<String> buckets = new HashSet<>();
+            for (LocalDate date : dates) {
+                buckets.add(TimeBuckets.bucket(date, timeBucket));
+            }
+            if (buckets.size() + unparsed <= targetRows) {
+                return timeBucket;
+            }
+        }
+        return TimeBucketEnums.YEAR;
+    }
+
+    private static boolean isAverage(String header) {
+        for (String keyword : AVG_KEYWORDS) {
+            if (header.contains(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,29 @@
+package com.nanshuo.BI.manager.reduce;
+
+import com.nanshuo.BI.model.enums.chart.DataReduceModeEnums;
+import com.nanshuo.BI.utils.excel.ColumnarDataset;
+
+/**
+ * 数据压缩策略，注册为 Spring Bean 后即可通过 bi.reduce.mode 选用
+ *
+ * @author nanshuo
+ * @date 2026/10/18 13:30:02
+ */
+public interface DataReducer {
+
+    /**
+     * 压缩方式
+     *
+     * @return {@code DataReduceModeEnums}
+     */
+    DataReduceModeEnums getMode();
+
+    /**
+     * 压缩表格
+     *
+     * @param dataset    原始表格（按列存储）
+     * @param targetRows 目标行数（不含表头）
+     * @return 压缩后的表格，行数不超过 targetRows
+     */
+    ColumnarDataset reduce(ColumnarDataset dataset, int targetRows);
+}
@@ -0,0 +1,81 @@
+package com.nanshuo.BI.manager.reduce;
+
+import com.nanshuo.BI.model.enums.chart.ColumnTypeEnums;
+import com.nanshuo.BI.model.enums.chart.DataReduceModeEnums;
+import com.nanshuo.BI.utils.excel.ColumnarDataset;
+import com.nanshuo.BI.utils.excel.CsvEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分组聚合：按第一个非数值列分组，数值列求和并附带每组行数；分组仍然过多时再做首尾采样
+ *
+ * @author nanshuo
+ * @date 2026/10/18 13:40:55
+ */
+@Component
+public class GroupAggregateReducer implements DataReducer {
+
+    @Resource
+    private HeadTailReducer headTailReducer;
+
+    @Override
+    public DataReduceModeEnums getMode() {
+        return DataReduceModeEnums.GROUP_AGGREGATE;
+    }
+
+    @Override
+    public ColumnarDataset reduce(ColumnarDataset dataset, int targetRows) {
+        if (dataset.getRowCount() <= targetRows) {
+            return dataset;
+        }
+        List<ColumnTypeEnums> columnTypes = dataset.getColumnTypes();
+        int keyIndex = columnTypes.indexOf(ColumnTypeEnums.TEXT);
+        if (keyIndex < 0) {
+            keyIndex = columnTypes.indexOf(ColumnTypeEnums.DATE);
+        }
+        List<Integer> numericIndexes = new ArrayList<>();
+        for (int i = 0; i < columnTypes.size(); i++) {
+            if (columnTypes.get(i) == ColumnTypeEnums.NUMERIC) {
+                numericIndexes.add(i);
+            }
+        }
+        if (keyIndex < 0 || numericIndexes.isEmpty()) {
+            return headTailReducer.reduce(dataset, targetRows);
+        }
+        // 分组，保持分组首次出现的顺序
+        Map<String, double[]> groups = new LinkedHashMap<>();
+        for (int row = 0; row < dataset.getRowCount(); row++) {
+            double[] acc = groups.computeIfAbsent(dataset.getText(keyIndex, row),
+                    key -> new double[numericIndexes.size() + 1]);
+            for (int i = 0; i < numericIndexes.size(); i++) {
+                double value = dataset.getDouble(numericIndexes.get(i), row);
+                if (!Double.isNaN(value)) {
+                    acc[i] += value;
+                }
+            }
+            acc[numericIndexes.size()]++;
+        }
+        List<String> headers = new ArrayList<>();
+        headers.add(dataset.getHeaders().get(keyIndex));
+        for (Integer numericIndex : numericIndexes) {
+            headers.add(dataset.getHeaders().get(numericIndex) + "(合计)");
+        }
+        headers.add("行数");
+        ColumnarDataset.Builder result = ColumnarDataset.builder().header(headers);
+        for (Map.Entry<String, double[]> entry : groups.entrySet()) {
+            List<String> row = new ArrayList<>(headers.size());
+            row.add(entry.getKey());
+            for (double value : entry.getValue()) {
+                row.add(CsvEncoder.encodeNumber(value));
+            }
+            result.addRow(row);
+        }
+        return headTailReducer.reduce(result.build(), targetRows);
+    }
+}
@@ -0,0 +1,38 @@
+package com.nanshuo.BI.manager.reduce;
+
+import com.nanshuo.BI.model.enums.chart.DataReduceModeEnums;
+import com.nanshuo.BI.utils.excel.ColumnarDataset;
+import org.springframework.stereotype.Component;
+
+/**
+ * 首尾采样：保留前一半和后一半的行，适合按时间排列的数据
+ *
+ * @author nanshuo
+ * @date 2026/10/18 13:32:40
+ */
+@Component
+public class HeadTailReducer implements DataReducer {
+
+    @Override
+    public DataReduceModeEnums getMode() {
+        return DataReduceModeEnums.HEAD_TAIL;
+    }
+
+    @Override
+    public ColumnarDataset reduce(ColumnarDataset dataset, int targetRows) {
+        int rowCount = dataset.getRowCount();
+        if (rowCount <= targetRows) {
+            return dataset;
+        }
+        int head = (targetRows + 1) / 2;
+        int tail = targetRows - head;
+        int[] rows = new int[targetRows];
+        for (int i = 0; i < head; i++) {
+            rows[i] = i;
+        }
+        for (int i = 0; i < tail; i++) {
+            rows[head + i] = rowCount - tail + i;
+        }
+        return dataset.select(rows);
+    }
+}
@@ -0,0 +1,61 @@
+package com.nanshuo.BI.manager.reduce;
+
+import com.nanshuo.BI.model.enums.chart.ColumnTypeEnums;
+import com.nanshuo.BI.model.enums.chart.DataReduceModeEnums;
+import com.nanshuo.BI.utils.excel.ColumnarDataset;
+import com.nanshuo.BI.utils.excel.CsvEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 数值分箱：把连续的行均分为 targetRows 个箱，数值列取平均，其他列记为"首~尾"，适合折线图这类趋势数据
+ *
+ * @author nanshuo
+ * @date 2026/10/18 13:46:21
+ */
+@Component
+public class NumericBinReducer implements DataReducer {
+
+    @Override
+    public DataReduceModeEnums getMode() {
+        return DataReduceModeEnums.NUMERIC_BIN;
+    }
+
+    @Override
+    public ColumnarDataset reduce(ColumnarDataset dataset, int targetRows) {
+        int rowCount = dataset.getRowCount();
+        if (rowCount <= targetRows) {
+            return dataset;
+        }
+        List<ColumnTypeEnums> columnTypes = dataset.getColumnTypes();
+        int columnCount = dataset.getColumnCount();
+        ColumnarDataset.Builder result = ColumnarDataset.builder().header(dataset.getHeaders());
+        for (int bin = 0; bin < targetRows; bin++) {
+            int from = (int) ((long) rowCount * bin / targetRows);
+            int to = (int) ((long) rowCount * (bin + 1) / targetRows);
+            List<String> binRow = new ArrayList<>(columnCount);
+            for (int col = 0; col < columnCount; col++) {
+                if (columnTypes.get(col) == ColumnTypeEnums.NUMERIC) {
+                    double sum = 0;
+                    int count = 0;
+                    for (int i = from; i < to; i++) {
+                        double value = dataset.getDouble(col, i);
+                        if (!Double.isNaN(value)) {
+                            sum += value;
+                            count++;
+                        }
+                    }
+                    binRow.add(count == 0 ? "" : CsvEncoder.encodeNumber(sum / count));
+                } else {
+                    String first = dataset.getText(col, from);
+                    String last = dataset.getText(col, to - 1);
+                    binRow.add(first.equals(last) ? first : first + "~" + last);
+                }
+            }
+            result.addRow(binRow);
+        }
+        return result.build();
+    }
+}
@@ -0,0 +1,48 @@
+package com.nanshuo.BI.manager.reduce;
+
+import lombok.Data;
+
+/**
+ * 数据压缩结果
+ *
+ * @author nanshuo
+ * @date 2026/10/18 13:50:37
+ */
+@Data
+public class ReduceResult {
+
+    /**
+     * 发送给 AI 的数据（csv）
+     */
+    private String data;
+
+    /**
+     * 给 AI 的说明（未压缩时为空）
+     */
+    private String note;
+
+    /**
+     * 压缩方式，未压缩时为 null
+     */
+    private String mode;
+
+    /**
+     * 原始数据大小（估算 token）
+     */
+    private int originalSize;
+
+    /**
+     * 压缩后数据大小（估算 token）
+     */
+    private int reducedSize;
+
+    /**
+     * 压缩比例（压缩后 / 原始），未压缩为 1
+     */
+    private double ratio;
+
+    /**
+     * 耗时（毫秒）
+     */
+    private long costMs;
+}
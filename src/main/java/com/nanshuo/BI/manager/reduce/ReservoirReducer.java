@@ -0,0 +1,47 @@
+package com.nanshuo.BI.manager.reduce;
+
+import com.nanshuo.BI.model.enums.chart.DataReduceModeEnums;
+import com.nanshuo.BI.utils.excel.ColumnarDataset;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 蓄水池随机采样：等概率抽取 targetRows 行，并保持原有顺序
+ * <p>
+ * 随机种子取自数据本身，相同的数据总是抽到相同的行，发给 AI 的内容稳定，才能命中结果缓存
+ *
+ * @author nanshuo
+ * @date 2026/10/18 13:35:18
+ */
+@Component
+public class ReservoirReducer implements DataReducer {
+
+    @Override
+    public DataReduceModeEnums getMode() {
+        return DataReduceModeEnums.RESERVOIR;
+    }
+
+    @Override
+    public ColumnarDataset reduce(ColumnarDataset dataset, int targetRows) {
+        int rowCount = dataset.getRowCount();
+        if (rowCount <= targetRows) {
+            return dataset;
+        }
+        Random random = new Random(dataset.contentHash());
+        int[] reservoir = new int[targetRows];
+        for (int i = 0; i < rowCount; i++) {
+            if (i < targetRows) {
+                reservoir[i] = i;
+            } else {
+                int j = random.nextInt(i + 1);
+                if (j < targetRows) {
+                    reservoir[j] = i;
+                }
+            }
+        }
+        Arrays.sort(reservoir);
+        return dataset.select(reservoir);
+    }
+}
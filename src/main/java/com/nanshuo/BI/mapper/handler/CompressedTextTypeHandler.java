@@ -0,0 +1,119 @@
+package com.nanshuo.BI.mapper.handler;
+
+import com.nanshuo.BI.utils.CompressUtils;
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.MappedJdbcTypes;
+import org.apache.ibatis.type.MappedTypes;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 压缩存储的文本字段（chart.chart_data，mediumblob）
+ * <p>
+ * 格式（v1）：魔数 "BC"、版本、编码方式（0 不压缩 / 1 Deflate）、原始长度（int）、数据。
+ * 数据较小或压缩后没有变小时不压缩；没有格式头的旧数据（text 列转换而来）按 UTF-8 文本读取。
+ * 只在查询了该列时解码，列表查询不查询该列
+ *
+ * @author nanshuo
+ * @date 2026/10/18 23:26:48
+ */
+@MappedTypes(String.class)
+@MappedJdbcTypes(JdbcType.BLOB)
+public class CompressedTextTypeHandler extends BaseTypeHandler<String> {
+
+    private static final byte MAGIC_0 = 'B';
+
+    private static final byte MAGIC_1 = 'C';
+
+    private static final byte VERSION = 1;
+
+    private static final byte CODEC_NONE = 0;
+
+    private static final byte CODEC_DEFLATE = 1;
+
+    private static final int HEADER_LENGTH = 8;
+
+    /**
+     * 小于该字节数时不压缩
+     */
+    private static final int MIN_COMPRESS_LENGTH = 256;
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, String parameter, JdbcType jdbcType)
+            throws SQLException {
+        ps.setBytes(i, encode(parameter));
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return decode(rs.getBytes(columnName));
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return decode(rs.getBytes(columnIndex));
+    }
+
+    @Override
+    public String getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return decode(cs.getBytes(columnIndex));
+    }
+
+    /**
+     * 编码
+     *
+     * @param text 文本
+     * @return byte[]
+     */
+    static byte[] encode(String text) {
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        byte codec = CODEC_NONE;
+        byte[] payload = raw;
+        if (raw.length >= MIN_COMPRESS_LENGTH) {
+            byte[] compressed = CompressUtils.deflate(raw);
+            if (compressed.length < raw.length) {
+                codec = CODEC_DEFLATE;
+                payload = compressed;
+            }
+        }
+        return ByteBuffer.allocate(HEADER_LENGTH + payload.length)
+                .put(MAGIC_0).put(MAGIC_1).put(VERSION).put(codec).putInt(raw.length).put(payload)
+                .array();
+    }
+
+    /**
+     * 解码
+     *
+     * @param bytes 列值
+     * @return 文本
+     */
+    static String decode(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        if (bytes.length < HEADER_LENGTH || bytes[0] != MAGIC_0 || bytes[1] != MAGIC_1 || bytes[2] != VERSION) {
+            // 旧数据
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.position(3);
+        byte codec = buffer.get();
+        int rawLength = buffer.getInt();
+        if (codec == CODEC_NONE && rawLength == bytes.length - HEADER_LENGTH) {
+            return new String(bytes, HEADER_LENGTH, rawLength, StandardCharsets.UTF_8);
+        }
+        if (codec == CODEC_DEFLATE && rawLength >= 0) {
+            byte[] payload = new byte[bytes.length - HEADER_LENGTH];
+            buffer.get(payload);
+            return new String(CompressUtils.inflate(payload, rawLength), StandardCharsets.UTF_8);
+        }
+        // 格式头不合法，按旧数据读取
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,6 +1,7 @@
 package com.nanshuo.BI.model.domain;
 
 import com.baomidou.mybatisplus.annotation.*;
+import com.nanshuo.BI.mapper.handler.CompressedTextTypeHandler;
 import lombok.Data;
 
 import java.io.Serializable;
@@ -10,7 +11,7 @@ import java.util.Date;
  * 图表信息表
  * @TableName chart
  */
-@TableName(value ="chart")
+@TableName(value ="chart", autoResultMap = true)
 @Data
 public class Chart implements Serializable {
     /**
@@ -32,9 +33,9 @@ public class Chart implements Serializable {
     private String name;
 
     /**
-     * 图表数据
+     * 图表数据（压缩存储，读写时自动编解码）
      */
-    @TableField(value = "chart_data")
+    @TableField(value = "chart_data", typeHandler = CompressedTextTypeHandler.class)
     private String chartData;
 
     /**
@@ -67,6 +68,18 @@ public class Chart implements Serializable {
     @TableField(value = "exec_message")
     private String execMessage;
 
+    /**
+     * 发送给 AI 的数据压缩比例（压缩后 / 原始）
+     */
+    @TableField(value = "reduce_ratio")
+    private Double reduceRatio;
+
+    /**
+     * 数据压缩耗时（毫秒）
+     */
+    @TableField(value = "reduce_time")
+    private Long reduceTime;
+
     /**
      * 创建用户 id
      */
@@ -0,0 +1,29 @@
+package com.nanshuo.BI.model.dto.monitor;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 线程池调整请求
+ */
+@Data
+public class ExecutorResizeRequest implements Serializable {
+
+    /**
+     * 核心线程数
+     */
+    private Integer corePoolSize;
+
+    /**
+     * 最大线程数
+     */
+    private Integer maxPoolSize;
+
+    /**
+     * 任务队列容量
+     */
+    private Integer queueCapacity;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,59 @@
+package com.nanshuo.BI.model.enums.chart;
+
+import lombok.Getter;
+import org.apache.commons.lang3.ObjectUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 聚合函数枚举
+ *
+ * @author nanshuo
+ * @date 2026/10/19 00:10:24
+ */
+@Getter
+public enum AggregateFunctionEnums {
+
+    SUM("合计", "sum"),
+    AVG("平均", "avg"),
+    COUNT("计数", "count");
+
+    private final String text;
+
+    private final String value;
+
+    AggregateFunctionEnums(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 获取值列表
+     *
+     * @return {@code List<String>}
+     */
+    public static List<String> getValues() {
+        return Arrays.stream(values()).map(item -> item.value).collect(Collectors.toList());
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 值
+     * @return {@code AggregateFunctionEnums}
+     */
+    public static AggregateFunctionEnums getEnumByValue(String value) {
+        if (ObjectUtils.isEmpty(value)) {
+            return null;
+        }
+        for (AggregateFunctionEnums anEnum : AggregateFunctionEnums.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+
+}
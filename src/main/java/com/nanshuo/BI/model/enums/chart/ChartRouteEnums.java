@@ -0,0 +1,59 @@
+package com.nanshuo.BI.model.enums.chart;
+
+import lombok.Getter;
+import org.apache.commons.lang3.ObjectUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 图表生成路径枚举
+ *
+ * @author nanshuo
+ * @date 2026/10/19 00:53:12
+ */
+@Getter
+public enum ChartRouteEnums {
+
+    LOCAL("本地生成图表配置", "local"),
+    AI("AI 生成", "ai"),
+    FAN_OUT("AI 并行生成图表配置和分析结论", "fan_out");
+
+    private final String text;
+
+    private final String value;
+
+    ChartRouteEnums(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 获取值列表
+     *
+     * @return {@code List<String>}
+     */
+    public static List<String> getValues() {
+        return Arrays.stream(values()).map(item -> item.value).collect(Collectors.toList());
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 值
+     * @return {@code ChartRouteEnums}
+     */
+    public static ChartRouteEnums getEnumByValue(String value) {
+        if (ObjectUtils.isEmpty(value)) {
+            return null;
+        }
+        for (ChartRouteEnums anEnum : ChartRouteEnums.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.nanshuo.BI.model.enums.chart;
+
+import lombok.Getter;
+import org.apache.commons.lang3.ObjectUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 图表状态枚举
+ * <p>
+ * 状态流转：wait -> running -> succeed / failed；失败重试和执行超时回收时 running -> wait
+ *
+ * @author nanshuo
+ * @date 2026/10/18 22:31:40
+ */
+@Getter
+public enum ChartStatusEnums {
+
+    WAIT("等待中", "wait"),
+    RUNNING("执行中", "running"),
+    SUCCEED("已完成", "succeed"),
+    FAILED("失败", "failed");
+
+    private final String text;
+
+    private final String value;
+
+    ChartStatusEnums(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 是否为终态
+     *
+     * @return boolean
+     */
+    public boolean isFinished() {
+        return this == SUCCEED || this == FAILED;
+    }
+
+    /**
+     * 获取值列表
+     *
+     * @return {@code List<String>}
+     */
+    public static List<String> getValues() {
+        return Arrays.stream(values()).map(item -> item.value).collect(Collectors.toList());
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 值
+     * @return {@code ChartStatusEnums}
+     */
+    public static ChartStatusEnums getEnumByValue(String value) {
+        if (ObjectUtils.isEmpty(value)) {
+            return null;
+        }
+        for (ChartStatusEnums anEnum : ChartStatusEnums.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.nanshuo.BI.model.enums.chart;
+
+import lombok.Getter;
+import org.apache.commons.lang3.ObjectUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 可在本地生成图表配置的图表类型枚举（text 为用户选择的图表类型，value 为 ECharts 的 series.type）
+ *
+ * @author nanshuo
+ * @date 2026/10/19 00:52:30
+ */
+@Getter
+public enum ChartTypeEnums {
+
+    LINE("折线图", "line"),
+    BAR("柱状图", "bar"),
+    PIE("饼图", "pie");
+
+    private final String text;
+
+    private final String value;
+
+    ChartTypeEnums(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 获取值列表
+     *
+     * @return {@code List<String>}
+     */
+    public static List<String> getValues() {
+        return Arrays.stream(values()).map(item -> item.value).collect(Collectors.toList());
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 值
+     * @return {@code ChartTypeEnums}
+     */
+    public static ChartTypeEnums getEnumByValue(String value) {
+        if (ObjectUtils.isEmpty(value)) {
+            return null;
+        }
+        for (ChartTypeEnums anEnum : ChartTypeEnums.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 根据 text 获取枚举
+     *
+     * @param text 图表类型（如 "折线图"）
+     * @return {@code ChartTypeEnums}
+     */
+    public static ChartTypeEnums getEnumByText(String text) {
+        if (ObjectUtils.isEmpty(text)) {
+            return null;
+        }
+        for (ChartTypeEnums anEnum : ChartTypeEnums.values()) {
+            if (anEnum.text.equals(text.trim())) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.nanshuo.BI.model.enums.chart;
+
+import lombok.Getter;
+import org.apache.commons.lang3.ObjectUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 表格列类型枚举
+ *
+ * @author nanshuo
+ * @date 2026/10/18 11:02:45
+ */
+@Getter
+public enum ColumnTypeEnums {
+
+    NUMERIC("数值", "numeric"),
+    DATE("日期", "date"),
+    TEXT("文本", "text");
+
+    private final String text;
+
+    private final String value;
+
+    ColumnTypeEnums(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 获取值列表
+     *
+     * @return {@code List<String>}
+     */
+    public static List<String> getValues() {
+        return Arrays.stream(values()).map(item -> item.value).collect(Collectors.toList());
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 值
+     * @return {@code ColumnTypeEnums}
+     */
+    public static ColumnTypeEnums getEnumByValue(String value) {
+        if (ObjectUtils.isEmpty(value)) {
+            return null;
+        }
+        for (ColumnTypeEnums anEnum : ColumnTypeEnums.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.nanshuo.BI.model.enums.chart;
+
+import lombok.Getter;
+import org.apache.commons.lang3.ObjectUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 数据压缩方式枚举（发送给 AI 前对原始数据的压缩方式）
+ *
+ * @author nanshuo
+ * @date 2026/10/18 13:20:11
+ */
+@Getter
+public enum DataReduceModeEnums {
+
+    HEAD_TAIL("首尾采样", "head_tail"),
+    RESERVOIR("蓄水池随机采样", "reservoir"),
+    GROUP_AGGREGATE("分组聚合", "group_aggregate"),
+    NUMERIC_BIN("数值分箱", "numeric_bin"),
+    AGGREGATE("聚合查询", "aggregate");
+
+    private final String text;
+
+    private final String value;
+
+    DataReduceModeEnums(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 获取值列表
+     *
+     * @return {@code List<String>}
+     */
+    public static List<String> getValues() {
+        return Arrays.stream(values()).map(item -> item.value).collect(Collectors.toList());
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 值
+     * @return {@code DataReduceModeEnums}
+     */
+    public static DataReduceModeEnums getEnumByValue(String value) {
+        if (ObjectUtils.isEmpty(value)) {
+            return null;
+        }
+        for (DataReduceModeEnums anEnum : DataReduceModeEnums.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.nanshuo.BI.model.enums.chart;
+
+import lombok.Getter;
+import org.apache.commons.lang3.ObjectUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 业务线程池过载策略枚举（任务队列已满时的处理方式）
+ *
+ * @author nanshuo
+ * @date 2026/10/18 18:52:06
+ */
+@Getter
+public enum OverloadPolicyEnums {
+
+    REJECT("拒绝并返回请求过于频繁", "reject"),
+    MQ("转入消息队列处理", "mq");
+
+    private final String text;
+
+    private final String value;
+
+    OverloadPolicyEnums(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 获取值列表
+     *
+     * @return {@code List<String>}
+     */
+    public static List<String> getValues() {
+        return Arrays.stream(values()).map(item -> item.value).collect(Collectors.toList());
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 值
+     * @return {@code OverloadPolicyEnums}
+     */
+    public static OverloadPolicyEnums getEnumByValue(String value) {
+        if (ObjectUtils.isEmpty(value)) {
+            return null;
+        }
+        for (OverloadPolicyEnums anEnum : OverloadPolicyEnums.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.nanshuo.BI.model.enums.chart;
+
+import lombok.Getter;
+import org.apache.commons.lang3.ObjectUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 时间分桶粒度枚举（从细到粗）
+ *
+ * @author nanshuo
+ * @date 2026/10/19 00:11:02
+ */
+@Getter
+public enum TimeBucketEnums {
+
+    DAY("按日", "day"),
+    WEEK("按周", "week"),
+    MONTH("按月", "month"),
+    QUARTER("按季度", "quarter"),
+    YEAR("按年", "year");
+
+    private final String text;
+
+    private final String value;
+
+    TimeBucketEnums(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 获取值列表
+     *
+     * @return {@code List<String>}
+     */
+    public static List<String> getValues() {
+        return Arrays.stream(values()).map(item -> item.value).collect(Collectors.toList());
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 值
+     * @return {@code TimeBucketEnums}
+     */
+    public static TimeBucketEnums getEnumByValue(String value) {
+        if (ObjectUtils.isEmpty(value)) {
+            return null;
+        }
+        for (TimeBucketEnums anEnum : TimeBucketEnums.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+
+}
@@ -13,4 +13,9 @@ public class BiResponse {
     private String genResult;
 
     private Long chartId;
+
+    /**
+     * 图表状态（同步生成等待超时时为 running，生成结果稍后写入图表）
+     */
+    private String status;
 }
\ No newline at end of file
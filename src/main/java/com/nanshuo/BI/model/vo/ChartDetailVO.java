@@ -0,0 +1,52 @@
+package com.nanshuo.BI.model.vo;
+
+import com.nanshuo.BI.model.domain.Chart;
+import lombok.Data;
+
+/**
+ * 图表数据和生成结果（列表接口不返回这些大字段，由详情接口按需获取）
+ *
+ * @author nanshuo
+ * @date 2026/10/18 23:12:05
+ */
+@Data
+public class ChartDetailVO {
+
+    private Long id;
+
+    /**
+     * 图表数据（CSV）
+     */
+    private String chartData;
+
+    /**
+     * 图表配置
+     */
+    private String genChart;
+
+    /**
+     * 分析结论
+     */
+    private String genResult;
+
+    /**
+     * 状态：wait、running、succeed、failed
+     */
+    private String status;
+
+    /**
+     * 执行信息
+     */
+    private String execMessage;
+
+    public static ChartDetailVO of(Chart chart) {
+        ChartDetailVO detail = new ChartDetailVO();
+        detail.setId(chart.getId());
+        detail.setChartData(chart.getChartData());
+        detail.setGenChart(chart.getGenChart());
+        detail.setGenResult(chart.getGenResult());
+        detail.setStatus(chart.getStatus());
+        detail.setExecMessage(chart.getExecMessage());
+        return detail;
+    }
+}
@@ -0,0 +1,51 @@
+package com.nanshuo.BI.model.vo;
+
+import com.nanshuo.BI.model.domain.Chart;
+import lombok.Data;
+
+/**
+ * 图表状态变更事件（通过 Redis 发布订阅广播到所有节点，再通过 SSE 推送给前端）
+ *
+ * @author nanshuo
+ * @date 2026/10/18 18:20:14
+ */
+@Data
+public class ChartEventVO {
+
+    private Long chartId;
+
+    /**
+     * 状态：wait、running、succeed、failed
+     */
+    private String status;
+
+    /**
+     * 图表配置（生成后才有）
+     */
+    private String genChart;
+
+    /**
+     * 分析结论（生成后才有）
+     */
+    private String genResult;
+
+    /**
+     * 失败信息
+     */
+    private String execMessage;
+
+    public static ChartEventVO of(Long chartId, String status) {
+        ChartEventVO event = new ChartEventVO();
+        event.setChartId(chartId);
+        event.setStatus(status);
+        return event;
+    }
+
+    public static ChartEventVO of(Chart chart) {
+        ChartEventVO event = of(chart.getId(), chart.getStatus());
+        event.setGenChart(chart.getGenChart());
+        event.setGenResult(chart.getGenResult());
+        event.setExecMessage(chart.getExecMessage());
+        return event;
+    }
+}
@@ -1,8 +1,14 @@
 package com.nanshuo.BI.service;
 
+import com.nanshuo.BI.manager.ai.GenResultParser;
 import com.nanshuo.BI.model.domain.Chart;
+import com.nanshuo.BI.model.enums.chart.ChartStatusEnums;
 import com.baomidou.mybatisplus.extension.service.IService;
 
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
 * @author dell
 * @description 针对表【chart(图表信息表)】的数据库操作Service
@@ -10,4 +16,106 @@ import com.baomidou.mybatisplus.extension.service.IService;
 */
 public interface ChartService extends IService<Chart> {
 
+    /**
+     * 构造发送给 AI 的用户输入
+     * <p>
+     * 数据超出预算时只压缩发给 AI 的副本，chart_data 保持不变，压缩比例和耗时记录到 chart 上
+     *
+     * @param chart 图表（需包含 goal、chartType、chartData）
+     * @return {@code String}
+     */
+    String buildUserInput(Chart chart);
+
+    /**
+     * 流式生成图表
+     * <p>
+     * 图表配置一接收完成就保存到图表（状态不变），便于前端先展示图表；分析结论在生成结束后由调用方保存
+     *
+     * @param chartId   图表 id
+     * @param modelId   模型 id
+     * @param userInput 用户输入
+     * @return 解析结果，调用方需检查 {@link GenResultParser#isComplete()}
+     */
+    CompletableFuture<GenResultParser> genChartStream(long chartId, long modelId, String userInput);
+
+    /**
+     * 生成图表：能本地生成图表配置时先保存图表配置，AI 只生成分析结论；开启并行生成且输入较长时图表配置和分析结论
+     * 并发生成，各自生成后先保存；否则与 {@link #genChartStream} 相同
+     *
+     * @param chart     图表（需要 id、chartType、chartData）
+     * @param modelId   模型 id
+     * @param userInput 用户输入
+     * @return 解析结果，调用方需检查 {@link GenResultParser#isComplete()}
+     */
+    CompletableFuture<GenResultParser> genChart(Chart chart, long modelId, String userInput);
+
+    /**
+     * 生成图表（已尝试过本地生成图表配置）
+     *
+     * @param chart      图表（需要 id）
+     * @param modelId    模型 id
+     * @param userInput  用户输入
+     * @param localChart 本地生成的图表配置，为 null 时由 AI 生成
+     * @return 解析结果，调用方需检查 {@link GenResultParser#isComplete()}
+     */
+    CompletableFuture<GenResultParser> genChart(Chart chart, long modelId, String userInput, String localChart);
+
+    /**
+     * 条件更新图表状态（UPDATE ... WHERE status = expectedStatus），并发时只有一个调用方成功
+     *
+     * @param chartId        图表 id
+     * @param expectedStatus 当前状态
+     * @param newStatus      新状态
+     * @return 是否更新成功
+     */
+    boolean compareAndSetStatus(long chartId, ChartStatusEnums expectedStatus, ChartStatusEnums newStatus);
+
+    /**
+     * 标记成功并保存生成结果（等待中或执行中 -> 已完成），已是终态时不更新
+     *
+     * @param chartId 图表 id
+     * @param result  生成结果（genChart、genResult 等非空字段），status 由本方法设置
+     * @return 是否更新成功
+     */
+    boolean markSucceed(long chartId, Chart result);
+
+    /**
+     * 标记失败（等待中或执行中 -> 失败），已是终态时不更新
+     *
+     * @param chartId     图表 id
+     * @param execMessage 失败信息
+     * @return 是否更新成功
+     */
+    boolean markFailed(long chartId, String execMessage);
+
+    /**
+     * 回到等待状态等待重试（执行中 -> 等待中）
+     *
+     * @param chartId     图表 id
+     * @param execMessage 失败信息
+     * @return 是否更新成功
+     */
+    boolean markRetry(long chartId, String execMessage);
+
+    /**
+     * 查询长时间没有更新的图表（只查询 id 和更新时间，走 status + update_time 索引）
+     *
+     * @param status 状态
+     * @param before 更新时间早于该时间
+     * @param limit  最大条数
+     * @return {@code List<Chart>}
+     */
+    List<Chart> listStale(ChartStatusEnums status, Date before, int limit);
+
+    /**
+     * 回收长时间没有更新的图表（-> 等待中，并刷新更新时间），状态和更新时间都作为条件，查询后有进展则不回收
+     *
+     * @param chartId     图表 id
+     * @param status      查询到的状态
+     * @param updateTime  查询到的更新时间
+     * @param execMessage 回收原因
+     * @return 是否回收成功
+     */
+    boolean requeueStale(long chartId, ChartStatusEnums status, Date updateTime, String execMessage);
+
 }
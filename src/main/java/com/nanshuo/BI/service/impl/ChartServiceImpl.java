@@ -1,22 +1,325 @@
 package com.nanshuo.BI.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.nanshuo.BI.manager.AiManager;
+import com.nanshuo.BI.manager.ChartEventManager;
+import com.nanshuo.BI.manager.ChartFanOutManager;
+import com.nanshuo.BI.manager.DataReduceManager;
+import com.nanshuo.BI.manager.LocalChartManager;
+import com.nanshuo.BI.manager.ai.GenResultParser;
+import com.nanshuo.BI.manager.reduce.ReduceResult;
 import com.nanshuo.BI.model.domain.Chart;
+import com.nanshuo.BI.model.enums.chart.ChartRouteEnums;
+import com.nanshuo.BI.model.enums.chart.ChartStatusEnums;
+import com.nanshuo.BI.model.vo.ChartEventVO;
 import com.nanshuo.BI.service.ChartService;
 import com.nanshuo.BI.mapper.ChartMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.Resource;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
 /**
 * @author dell
 * @description 针对表【chart(图表信息表)】的数据库操作Service实现
 * @createDate 2024-05-31 20:46:55
 */
+@Slf4j
 @Service
 public class ChartServiceImpl extends ServiceImpl<ChartMapper, Chart>
     implements ChartService{
 
-}
+    /**
+     * 未结束的状态
+     */
+    private static final List<ChartStatusEnums> ACTIVE_STATUSES =
+            Arrays.asList(ChartStatusEnums.WAIT, ChartStatusEnums.RUNNING);
+
+    @Resource
+    private DataReduceManager dataReduceManager;
+
+    @Resource
+    private AiManager aiManager;
+
+    @Resource
+    private ChartEventManager chartEventManager;
+
+    @Resource
+    private LocalChartManager localChartManager;
+
+    @Resource
+    private ChartFanOutManager chartFanOutManager;
+
+    /**
+     * 构造发送给 AI 的用户输入
+     *
+     * @param chart 图表
+     * @return {@code String}
+     */
+    @Override
+    public String buildUserInput(Chart chart) {
+        // 分析需求：
+        // 分析网站用户的增长情况
+        // 原始数据：
+        // 日期,用户数
+        // 1号,10
+        // 2号,20
+        // 3号,30
+        String goal = chart.getGoal();
+        String chartType = chart.getChartType();
+        ReduceResult reduceResult = dataReduceManager.reduce(chart.getChartData());
+        chart.setReduceRatio(reduceResult.getRatio());
+        chart.setReduceTime(reduceResult.getCostMs());
+
+        // 构造用户输入
+        StringBuilder userInput = new StringBuilder();
+        userInput.append("分析需求：").append("\n");
+
+        // 拼接分析目标
+        String userGoal = goal;
+        if (StringUtils.isNotBlank(chartType)) {
+            userGoal += "，请使用" + chartType;
+        }
+        userInput.append(userGoal).append("\n");
+        userInput.append("原始数据：").append("\n");
+        // 压缩后的数据
+        userInput.append(reduceResult.getData()).append("\n");
+        if (StringUtils.isNotBlank(reduceResult.getNote())) {
+            userInput.append(reduceResult.getNote()).append("\n");
+        }
+        return userInput.toString();
+    }
 
+    /**
+     * 流式生成图表
+     *
+     * @param chartId   图表 id
+     * @param modelId   模型 id
+     * @param userInput 用户输入
+     * @return {@code CompletableFuture<GenResultParser>}
+     */
+    @Override
+    public CompletableFuture<GenResultParser> genChartStream(long chartId, long modelId, String userInput) {
+        GenResultParser parser = new GenResultParser(genChart -> saveGenChart(chartId, genChart), null);
+        return aiManager.doChatStreamAsync(modelId, userInput, parser::feed).thenApply(content -> parser);
+    }
 
+    /**
+     * 生成图表
+     *
+     * @param chart     图表
+     * @param modelId   模型 id
+     * @param userInput 用户输入
+     * @return {@code CompletableFuture<GenResultParser>}
+     */
+    @Override
+    public CompletableFuture<GenResultParser> genChart(Chart chart, long modelId, String userInput) {
+        return genChart(chart, modelId, userInput, localChartManager.generate(chart));
+    }
 
+    /**
+     * 生成图表（已尝试过本地生成图表配置）
+     *
+     * @param chart      图表
+     * @param modelId    模型 id
+     * @param userInput  用户输入
+     * @param localChart 本地生成的图表配置，为 null 时由 AI 生成
+     * @return {@code CompletableFuture<GenResultParser>}
+     */
+    @Override
+    public CompletableFuture<GenResultParser> genChart(Chart chart, long modelId, String userInput,
+                                                       String localChart) {
+        long start = System.currentTimeMillis();
+        if (localChart == null && chartFanOutManager.isEligible(userInput)) {
+            // 图表配置和分析结论并行生成，各自生成后先入库
+            return localChartManager.record(ChartRouteEnums.FAN_OUT, start, chartFanOutManager.generate(modelId,
+                    userInput, genChart -> saveGenChart(chart.getId(), genChart),
+                    genResult -> saveGenResult(chart.getId(), genResult)));
+        }
+        if (localChart == null) {
+            return localChartManager.record(ChartRouteEnums.AI, start,
+                    genChartStream(chart.getId(), modelId, userInput));
+        }
+        // 图表配置本地生成，不用等 AI
+        saveGenChart(chart.getId(), localChart);
+        return localChartManager.record(ChartRouteEnums.LOCAL, start,
+                localChartManager.genNarrative(modelId, userInput, localChart));
+    }
 
+    /**
+     * 图表配置先入库（状态不变，只写入执行中的图表），分析结论还在生成中
+     *
+     * @param chartId  图表 id
+     * @param genChart 图表配置
+     */
+    private void saveGenChart(long chartId, String genChart) {
+        Chart updateChart = new Chart();
+        updateChart.setGenChart(genChart);
+        if (!updateIfRunning(chartId, updateChart)) {
+            // 图表已结束或已被重新排队（本次生成已被取代），不再写入
+            log.warn("图表不是执行中，丢弃图表配置，chartId = {}", chartId);
+            return;
+        }
+        ChartEventVO event = ChartEventVO.of(chartId, ChartStatusEnums.RUNNING.getValue());
+        event.setGenChart(genChart);
+        chartEventManager.publish(event);
+    }
+
+    /**
+     * 分析结论先入库（状态不变，只写入执行中的图表），图表配置还在生成中
+     *
+     * @param chartId   图表 id
+     * @param genResult 分析结论
+     */
+    private void saveGenResult(long chartId, String genResult) {
+        Chart updateChart = new Chart();
+        updateChart.setGenResult(genResult);
+        if (!updateIfRunning(chartId, updateChart)) {
+            // 图表已结束或已被重新排队（本次生成已被取代），不再写入
+            log.warn("图表不是执行中，丢弃分析结论，chartId = {}", chartId);
+            return;
+        }
+        ChartEventVO event = ChartEventVO.of(chartId, ChartStatusEnums.RUNNING.getValue());
+        event.setGenResult(genResult);
+        chartEventManager.publish(event);
+    }
+
+    /**
+     * 条件更新图表状态
+     *
+     * @param chartId        图表 id
+     * @param expectedStatus 当前状态
+     * @param newStatus      新状态
+     * @return boolean
+     */
+    @Override
+    public boolean compareAndSetStatus(long chartId, ChartStatusEnums expectedStatus, ChartStatusEnums newStatus) {
+        return transitStatus(chartId, Collections.singletonList(expectedStatus), newStatus, new Chart());
+    }
+
+    /**
+     * 标记成功并保存生成结果
+     *
+     * @param chartId 图表 id
+     * @param result  生成结果
+     * @return boolean
+     */
+    @Override
+    public boolean markSucceed(long chartId, Chart result) {
+        return transitStatus(chartId, ACTIVE_STATUSES, ChartStatusEnums.SUCCEED, result);
+    }
+
+    /**
+     * 标记失败
+     *
+     * @param chartId     图表 id
+     * @param execMessage 失败信息
+     * @return boolean
+     */
+    @Override
+    public boolean markFailed(long chartId, String execMessage) {
+        Chart fields = new Chart();
+        fields.setExecMessage(execMessage);
+        return transitStatus(chartId, ACTIVE_STATUSES, ChartStatusEnums.FAILED, fields);
+    }
+
+    /**
+     * 回到等待状态等待重试
+     *
+     * @param chartId     图表 id
+     * @param execMessage 失败信息
+     * @return boolean
+     */
+    @Override
+    public boolean markRetry(long chartId, String execMessage) {
+        Chart fields = new Chart();
+        fields.setExecMessage(execMessage);
+        return transitStatus(chartId, Collections.singletonList(ChartStatusEnums.RUNNING), ChartStatusEnums.WAIT,
+                fields);
+    }
+
+    /**
+     * 查询长时间没有更新的图表
+     *
+     * @param status 状态
+     * @param before 更新时间早于该时间
+     * @param limit  最大条数
+     * @return {@code List<Chart>}
+     */
+    @Override
+    public List<Chart> listStale(ChartStatusEnums status, Date before, int limit) {
+        LambdaQueryWrapper<Chart> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.select(Chart::getId, Chart::getUpdateTime)
+                .eq(Chart::getStatus, status.getValue())
+                .lt(Chart::getUpdateTime, before)
+                .orderByAsc(Chart::getUpdateTime)
+                .last("limit " + limit);
+        return this.list(queryWrapper);
+    }
+
+    /**
+     * 回收长时间没有更新的图表
+     *
+     * @param chartId     图表 id
+     * @param status      查询到的状态
+     * @param updateTime  查询到的更新时间
+     * @param execMessage 回收原因
+     * @return boolean
+     */
+    @Override
+    public boolean requeueStale(long chartId, ChartStatusEnums status, Date updateTime, String execMessage) {
+        Chart fields = new Chart();
+        fields.setStatus(ChartStatusEnums.WAIT.getValue());
+        fields.setExecMessage(execMessage);
+        // 显式刷新更新时间（字段值不变时 on update 不会生效），避免下次扫描再次回收
+        fields.setUpdateTime(new Date());
+        LambdaUpdateWrapper<Chart> updateWrapper = new LambdaUpdateWrapper<>();
+        updateWrapper.eq(Chart::getId, chartId)
+                .eq(Chart::getStatus, status.getValue())
+                .eq(Chart::getUpdateTime, updateTime);
+        return this.update(fields, updateWrapper);
+    }
+
+    /**
+     * 条件更新状态：UPDATE chart SET status = ?, ... WHERE id = ? AND status IN (...)，单行原子操作
+     *
+     * @param chartId          图表 id
+     * @param expectedStatuses 允许的当前状态
+     * @param newStatus        新状态
+     * @param fields           同时更新的非空字段
+     * @return 是否更新成功
+     */
+    private boolean transitStatus(long chartId, List<ChartStatusEnums> expectedStatuses, ChartStatusEnums newStatus,
+                                  Chart fields) {
+        // 主键不会出现在 SET 中
+        fields.setStatus(newStatus.getValue());
+        LambdaUpdateWrapper<Chart> updateWrapper = new LambdaUpdateWrapper<>();
+        updateWrapper.eq(Chart::getId, chartId)
+                .in(Chart::getStatus, expectedStatuses.stream().map(ChartStatusEnums::getValue)
+                        .collect(Collectors.toList()));
+        return this.update(fields, updateWrapper);
+    }
+
+    /**
+     * 条件更新执行中的图表（UPDATE ... WHERE status = 'running'），不改变状态
+     *
+     * @param chartId 图表 id
+     * @param fields  要更新的字段
+     * @return 是否更新成功
+     */
+    private boolean updateIfRunning(long chartId, Chart fields) {
+        LambdaUpdateWrapper<Chart> updateWrapper = new LambdaUpdateWrapper<>();
+        updateWrapper.eq(Chart::getId, chartId)
+                .eq(Chart::getStatus, ChartStatusEnums.RUNNING.getValue());
+        return this.update(fields, updateWrapper);
+    }
+}
@@ -0,0 +1,85 @@
+package com.nanshuo.BI.utils;
+
+import com.nanshuo.BI.common.ErrorCode;
+import com.nanshuo.BI.exception.BusinessException;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 压缩工具类（Deflate）
+ *
+ * @author nanshuo
+ * @date 2026/10/18 20:52:44
+ */
+public class CompressUtils {
+
+    /**
+     * 解压后的最大长度（MEDIUMBLOB 的上限 16MB），长度来自数据头，先校验再分配，避免错误或恶意数据导致内存溢出
+     */
+    public static final int MAX_INFLATE_LENGTH = (1 << 24) - 1;
+
+    private CompressUtils() {
+    }
+
+    /**
+     * 压缩
+     *
+     * @param data 原始数据
+     * @return 压缩后的数据
+     */
+    public static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * 解压
+     *
+     * @param data           压缩后的数据
+     * @param originalLength 原始长度（用于预分配和校验，不能超过 {@link #MAX_INFLATE_LENGTH}）
+     * @return 原始数据
+     */
+    public static byte[] inflate(byte[] data, int originalLength) {
+        if (originalLength < 0 || originalLength > MAX_INFLATE_LENGTH) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "解压失败：原始长度不合法：" + originalLength);
+        }
+        if (originalLength == 0) {
+            return new byte[0];
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            byte[] result = new byte[originalLength];
+            int length = 0;
+            while (length < originalLength && !inflater.finished()) {
+                int n = inflater.inflate(result, length, originalLength - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != originalLength) {
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "解压失败：数据长度不一致");
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "解压失败：" + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+}
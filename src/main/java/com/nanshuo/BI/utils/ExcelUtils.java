@@ -1,18 +1,16 @@
 package com.nanshuo.BI.utils;
 
-import cn.hutool.core.collection.CollUtil;
 import com.alibaba.excel.EasyExcel;
 import com.alibaba.excel.support.ExcelTypeEnum;
+import com.nanshuo.BI.utils.excel.ColumnarDataset;
+import com.nanshuo.BI.utils.excel.CsvMeta;
+import com.nanshuo.BI.utils.excel.CsvWriteListener;
+import com.nanshuo.BI.utils.excel.DatasetReadListener;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.ObjectUtils;
-import org.apache.commons.lang3.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Excel 相关工具类
@@ -21,39 +19,87 @@ import java.util.stream.Collectors;
 public class ExcelUtils {
 
     /**
-     * excel 转 csv
+     * excel 转 csv（保留列位置，空单元格输出为空字段）
      *
      * @param multipartFile
      * @return
      */
     public static String excelToCsv(MultipartFile multipartFile) {
-        // 读取数据
-        List<Map<Integer, String>> list = null;
-        try {
-            list = EasyExcel.read(multipartFile.getInputStream())
-                    .excelType(ExcelTypeEnum.XLSX)
-                    .sheet()
-                    .headRowNumber(0)
-                    .doReadSync();
+        StringWriter stringWriter = new StringWriter();
+        try (InputStream inputStream = multipartFile.getInputStream()) {
+            excelToCsv(inputStream, stringWriter);
         } catch (IOException e) {
             log.error("表格处理错误", e);
         }
-        if (CollUtil.isEmpty(list)) {
-            return "";
-        }
-        // 转换为 csv
-        StringBuilder stringBuilder = new StringBuilder();
-        // 读取表头
-        LinkedHashMap<Integer, String> headerMap = (LinkedHashMap) list.get(0);
-        List<String> headerList = headerMap.values().stream().filter(ObjectUtils::isNotEmpty).collect(Collectors.toList());
-        stringBuilder.append(StringUtils.join(headerList, ",")).append("\n");
-        // 读取数据
-        for (int i = 1; i < list.size(); i++) {
-            LinkedHashMap<Integer, String> dataMap = (LinkedHashMap) list.get(i);
-            List<String> dataList = dataMap.values().stream().filter(ObjectUtils::isNotEmpty).collect(Collectors.toList());
-            stringBuilder.append(StringUtils.join(dataList, ",")).append("\n");
-        }
-        return stringBuilder.toString();
+        return stringWriter.toString();
+    }
+
+    /**
+     * excel 流式转 csv，边解析边写出，不在内存中保留整张表
+     *
+     * @param inputStream excel 输入流
+     * @param writer      csv 输出
+     * @return 表头、列类型、行数等转换结果
+     */
+    public static CsvMeta excelToCsv(InputStream inputStream, Writer writer) {
+        return excelToCsv(inputStream, writer, 0);
+    }
+
+    /**
+     * excel 流式转 csv，边解析边写出，不在内存中保留整张表
+     *
+     * @param inputStream excel 输入流
+     * @param writer      csv 输出
+     * @param maxChars    最多写出的字符数，超过则抛出异常，小于等于 0 表示不限制
+     * @return 表头、列类型、行数等转换结果
+     */
+    public static CsvMeta excelToCsv(InputStream inputStream, Writer writer, long maxChars) {
+        CsvWriteListener listener = new CsvWriteListener(writer, maxChars);
+        EasyExcel.read(inputStream, listener)
+                .excelType(ExcelTypeEnum.XLSX)
+                .sheet()
+                .headRowNumber(0)
+                .doRead();
+        return listener.getMeta();
+    }
+
+    /**
+     * excel 流式转 csv 并写入输出流（UTF-8）
+     *
+     * @param inputStream  excel 输入流
+     * @param outputStream csv 输出流
+     * @return 表头、列类型、行数等转换结果
+     */
+    public static CsvMeta excelToCsv(InputStream inputStream, OutputStream outputStream) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        return excelToCsv(inputStream, writer);
+    }
+
+    /**
+     * excel 读取为按列存储的表格，数值列直接存为 long[] / double[]，不经过 csv 文本
+     *
+     * @param inputStream excel 输入流
+     * @return {@code ColumnarDataset}
+     */
+    public static ColumnarDataset excelToDataset(InputStream inputStream) {
+        return excelToDataset(inputStream, 0);
+    }
+
+    /**
+     * excel 读取为按列存储的表格，数值列直接存为 long[] / double[]，不经过 csv 文本
+     *
+     * @param inputStream excel 输入流
+     * @param maxRows     最多读取的数据行数，超过则抛出异常，小于等于 0 表示不限制
+     * @return {@code ColumnarDataset}
+     */
+    public static ColumnarDataset excelToDataset(InputStream inputStream, long maxRows) {
+        DatasetReadListener listener = new DatasetReadListener(maxRows);
+        EasyExcel.read(inputStream, listener)
+                .excelType(ExcelTypeEnum.XLSX)
+                .sheet()
+                .headRowNumber(0)
+                .doRead();
+        return listener.getDataset();
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,95 @@
+package com.nanshuo.BI.utils.concurrent;
+
+import com.nanshuo.BI.common.ErrorCode;
+import com.nanshuo.BI.exception.BusinessException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 可观测、可在运行时调整大小的线程池
+ * <p>
+ * 队列已满时抛出 {@link RejectedExecutionException}（与默认策略一致），由提交方决定拒绝还是转移任务
+ *
+ * @author nanshuo
+ * @date 2026/10/18 18:58:13
+ */
+public class MonitoredThreadPoolExecutor extends ThreadPoolExecutor {
+
+    private final String name;
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public MonitoredThreadPoolExecutor(String name, int corePoolSize, int maximumPoolSize, long keepAliveSeconds,
+                                       int queueCapacity) {
+        super(corePoolSize, maximumPoolSize, keepAliveSeconds, TimeUnit.SECONDS,
+                new ResizableBlockingQueue<>(queueCapacity), namedThreadFactory(name));
+        this.name = name;
+        setRejectedExecutionHandler((r, executor) -> {
+            rejectedCount.increment();
+            throw new RejectedExecutionException("线程池 " + name + " 已满");
+        });
+    }
+
+    /**
+     * 调整线程数和队列容量
+     *
+     * @param corePoolSize    核心线程数
+     * @param maximumPoolSize 最大线程数
+     * @param queueCapacity   队列容量
+     */
+    public synchronized void resize(int corePoolSize, int maximumPoolSize, int queueCapacity) {
+        if (corePoolSize < 1 || maximumPoolSize < corePoolSize || queueCapacity < 1) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "线程池参数错误");
+        }
+        // 先调大的一方，保证任意时刻 core <= max
+        if (maximumPoolSize >= getMaximumPoolSize()) {
+            setMaximumPoolSize(maximumPoolSize);
+            setCorePoolSize(corePoolSize);
+        } else {
+            setCorePoolSize(corePoolSize);
+            setMaximumPoolSize(maximumPoolSize);
+        }
+        ((ResizableBlockingQueue<Runnable>) getQueue()).setCapacity(queueCapacity);
+    }
+
+    /**
+     * 线程池统计
+     *
+     * @return {@code Map<String, Object>}
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("name", name);
+        stats.put("corePoolSize", getCorePoolSize());
+        stats.put("maximumPoolSize", getMaximumPoolSize());
+        stats.put("poolSize", getPoolSize());
+        stats.put("largestPoolSize", getLargestPoolSize());
+        stats.put("activeCount", getActiveCount());
+        stats.put("queueSize", getQueue().size());
+        stats.put("queueCapacity", getQueueCapacity());
+        stats.put("taskCount", getTaskCount());
+        stats.put("completedTaskCount", getCompletedTaskCount());
+        stats.put("rejectedCount", rejectedCount.sum());
+        return stats;
+    }
+
+    public int getQueueCapacity() {
+        return ((ResizableBlockingQueue<Runnable>) getQueue()).getCapacity();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private static ThreadFactory namedThreadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> new Thread(r, name + "-" + count.incrementAndGet());
+    }
+}
@@ -0,0 +1,48 @@
+package com.nanshuo.BI.utils.concurrent;
+
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * 容量可在运行时调整的阻塞队列（供线程池使用，只限制 offer）
+ *
+ * @author nanshuo
+ * @date 2026/10/18 18:55:40
+ */
+public class ResizableBlockingQueue<E> extends LinkedBlockingQueue<E> {
+
+    private volatile int capacity;
+
+    public ResizableBlockingQueue(int capacity) {
+        super();
+        this.capacity = capacity;
+    }
+
+    /**
+     * 线程池提交任务时调用，超过容量返回 false（交给拒绝策略）
+     */
+    @Override
+    public boolean offer(E e) {
+        if (size() >= capacity) {
+            return false;
+        }
+        return super.offer(e);
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, capacity - size());
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 调整容量，调小时已在队列中的任务不受影响
+     *
+     * @param capacity 容量
+     */
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+}
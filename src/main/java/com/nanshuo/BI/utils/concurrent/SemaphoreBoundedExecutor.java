@@ -0,0 +1,76 @@
+package com.nanshuo.BI.utils.concurrent;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 用信号量限制并发任务数的执行器（配合虚拟线程使用，并发上限不再由线程数决定）
+ * <p>
+ * 名额不足时抛出 {@link RejectedExecutionException}，与线程池队列已满的行为一致
+ *
+ * @author nanshuo
+ * @date 2026/10/18 19:39:17
+ */
+public class SemaphoreBoundedExecutor implements Executor {
+
+    private final ExecutorService delegate;
+
+    private final int maxConcurrency;
+
+    private final Semaphore permits;
+
+    private final LongAdder completedCount = new LongAdder();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public SemaphoreBoundedExecutor(ExecutorService delegate, int maxConcurrency) {
+        this.delegate = delegate;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (!permits.tryAcquire()) {
+            rejectedCount.increment();
+            throw new RejectedExecutionException("并发任务数已达上限 " + maxConcurrency);
+        }
+        try {
+            delegate.execute(() -> {
+                try {
+                    command.run();
+                } finally {
+                    completedCount.increment();
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            rejectedCount.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * 执行器统计
+     *
+     * @return {@code Map<String, Object>}
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxConcurrency", maxConcurrency);
+        stats.put("activeCount", maxConcurrency - permits.availablePermits());
+        stats.put("completedTaskCount", completedCount.sum());
+        stats.put("rejectedCount", rejectedCount.sum());
+        return stats;
+    }
+
+    public void shutdown() {
+        delegate.shutdown();
+    }
+}
@@ -0,0 +1,56 @@
+package com.nanshuo.BI.utils.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 虚拟线程工具（JDK 21+），项目按 Java 8 编译，通过反射调用
+ *
+ * @author nanshuo
+ * @date 2026/10/18 19:35:52
+ */
+public class VirtualThreads {
+
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findFactoryMethod();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * 当前运行时是否支持虚拟线程
+     *
+     * @return boolean
+     */
+    public static boolean isAvailable() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * 每个任务一个虚拟线程的执行器
+     *
+     * @return {@link ExecutorService}
+     * @throws IllegalStateException 运行时不支持虚拟线程
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (!isAvailable()) {
+            throw new IllegalStateException("当前 JDK 不支持虚拟线程，需要 JDK 21+");
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch (Exception e) {
+            throw new IllegalStateException("创建虚拟线程执行器失败", e);
+        }
+    }
+
+    private static Method findFactoryMethod() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            // JDK 19 / 20 中为预览特性，未开启预览时调用会失败
+            ((ExecutorService) method.invoke(null)).shutdown();
+            return method;
+        } catch (Exception | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.nanshuo.BI.utils.excel;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 单列统计结果
+ *
+ * @author nanshuo
+ * @date 2026/10/18 23:41:27
+ */
+@Data
+public class ColumnStats implements Serializable {
+
+    /**
+     * 非空单元格数
+     */
+    private int count;
+
+    /**
+     * 空单元格数
+     */
+    private int nullCount;
+
+    /**
+     * 可解析为数值的单元格数
+     */
+    private int numericCount;
+
+    /**
+     * 不同取值的个数（只统计字典编码的列，数值列为 null）
+     */
+    private Integer distinctCount;
+
+    /**
+     * 最小值，没有数值时为 null
+     */
+    private Double min;
+
+    /**
+     * 最大值，没有数值时为 null
+     */
+    private Double max;
+
+    /**
+     * 合计，没有数值时为 null
+     */
+    private Double sum;
+
+    /**
+     * 平均值，没有数值时为 null
+     */
+    private Double mean;
+
+    private static final long serialVersionUID = 1L;
+}
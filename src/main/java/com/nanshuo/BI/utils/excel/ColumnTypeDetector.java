@@ -0,0 +1,111 @@
+package com.nanshuo.BI.utils.excel;
+
+import com.nanshuo.BI.model.enums.chart.ColumnTypeEnums;
+
+import java.util.regex.Pattern;
+
+/**
+ * 单列类型推断，按单元格逐个喂入，一次遍历得出结果
+ * <p>
+ * 全部非空单元格都是数值则为 {@link ColumnTypeEnums#NUMERIC}，都是日期则为 {@link ColumnTypeEnums#DATE}，否则为文本
+ *
+ * @author nanshuo
+ * @date 2026/10/18 11:12:08
+ */
+public class ColumnTypeDetector {
+
+    private static final Pattern NUMERIC_PATTERN = Pattern.compile("^[-+]?(\\d+|\\d{1,3}(,\\d{3})+)?(\\.\\d+)?([eE][-+]?\\d+)?%?$");
+
+    private static final Pattern DATE_PATTERN = Pattern.compile(
+            "^\\d{4}([-/.])\\d{1,2}(\\1\\d{1,2})?([ T]\\d{1,2}:\\d{1,2}(:\\d{1,2})?)?$"
+                    + "|^\\d{4}年\\d{1,2}月(\\d{1,2}[日号])?$"
+                    + "|^\\d{1,2}月\\d{1,2}[日号]$");
+
+    private boolean maybeNumeric = true;
+
+    private boolean maybeDate = true;
+
+    private long nonEmptyCount;
+
+    /**
+     * 喂入一个单元格
+     *
+     * @param cell 单元格
+     */
+    public void accept(String cell) {
+        if (cell == null) {
+            return;
+        }
+        String value = cell.trim();
+        if (value.isEmpty()) {
+            return;
+        }
+        nonEmptyCount++;
+        if (maybeNumeric) {
+            maybeNumeric = isNumeric(value);
+        }
+        if (maybeDate) {
+            maybeDate = DATE_PATTERN.matcher(value).matches();
+        }
+    }
+
+    /**
+     * 推断结果
+     *
+     * @return {@code ColumnTypeEnums}
+     */
+    public ColumnTypeEnums getType() {
+        if (nonEmptyCount == 0) {
+            return ColumnTypeEnums.TEXT;
+        }
+        if (maybeNumeric) {
+            return ColumnTypeEnums.NUMERIC;
+        }
+        if (maybeDate) {
+            return ColumnTypeEnums.DATE;
+        }
+        return ColumnTypeEnums.TEXT;
+    }
+
+    /**
+     * 是否为数值（允许千分位、科学计数法、百分号）
+     *
+     * @param value 值
+     * @return boolean
+     */
+    public static boolean isNumeric(String value) {
+        if (value == null || value.isEmpty()) {
+            return false;
+        }
+        // 至少包含一个数字，排除 "-"、"."、"%" 这类单独的符号
+        boolean hasDigit = false;
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.isDigit(value.charAt(i))) {
+                hasDigit = true;
+                break;
+            }
+        }
+        return hasDigit && NUMERIC_PATTERN.matcher(value).matches();
+    }
+
+    /**
+     * 解析数值（去掉千分位和百分号），非数值返回 null
+     *
+     * @param value 值
+     * @return {@code Double}
+     */
+    public static Double parseNumeric(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        if (!isNumeric(trimmed)) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(trimmed.replace(",", "").replace("%", ""));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,993 @@
+package com.nanshuo.BI.utils.excel;
+
+import com.nanshuo.BI.common.ErrorCode;
+import com.nanshuo.BI.exception.BusinessException;
+import com.nanshuo.BI.model.enums.chart.ColumnTypeEnums;
+import lombok.Getter;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 按列存储的表格数据
+ * <p>
+ * 整数列存为 long[]，小数列存为 double[]，其他列按字典编码（去重后的字符串 + int[] 下标），空单元格记在每列的位图里。
+ * 只有能原样还原为单元格文本的列才按数值存储（如 "1,234"、"12%"、"3.0" 仍按字典编码），因此 {@link #toCsv()}
+ * 与 {@link CsvTable#toCsv()} 的结果完全一致；采样、聚合、统计直接读取数组，不再解析文本。
+ * <p>
+ * 二进制格式（v1）：魔数 "BD"、版本、列数、行数，之后每一列依次为表头、列类型、编码方式、空值位图和数据，
+ * 整数按 zigzag 变长编码，空单元格不占数据位
+ *
+ * @author nanshuo
+ * @date 2026/10/18 23:38:52
+ */
+public class ColumnarDataset {
+
+    private static final byte[] MAGIC = {'B', 'D'};
+
+    public static final byte VERSION = 1;
+
+    public static final byte ENCODING_LONG = 0;
+
+    public static final byte ENCODING_DOUBLE = 1;
+
+    public static final byte ENCODING_DICTIONARY = 2;
+
+    /**
+     * 绝对值小于该值的整数可以无损地转为 double
+     */
+    private static final long DOUBLE_EXACT_LIMIT = 1_000_000_000_000_000L;
+
+    /**
+     * 表头
+     */
+    @Getter
+    private final List<String> headers;
+
+    /**
+     * 每一列推断出的类型
+     */
+    @Getter
+    private final List<ColumnTypeEnums> columnTypes;
+
+    private final Column[] columns;
+
+    /**
+     * 行数（不含表头）
+     */
+    @Getter
+    private final int rowCount;
+
+    private ColumnarDataset(List<String> headers, List<ColumnTypeEnums> columnTypes, Column[] columns, int rowCount) {
+        this.headers = Collections.unmodifiableList(headers);
+        this.columnTypes = Collections.unmodifiableList(columnTypes);
+        this.columns = columns;
+        this.rowCount = rowCount;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 列数
+     *
+     * @return int
+     */
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * 获取列
+     *
+     * @param column 列下标
+     * @return {@code Column}
+     */
+    public Column getColumn(int column) {
+        return columns[column];
+    }
+
+    /**
+     * 单元格是否为空
+     *
+     * @param column 列下标
+     * @param row    行下标
+     * @return boolean
+     */
+    public boolean isNull(int column, int row) {
+        return columns[column].isNull(row);
+    }
+
+    /**
+     * 单元格文本，空单元格为 ""
+     *
+     * @param column 列下标
+     * @param row    行下标
+     * @return {@code String}
+     */
+    public String getText(int column, int row) {
+        return columns[column].getText(row);
+    }
+
+    /**
+     * 单元格数值，空单元格或非数值为 NaN
+     *
+     * @param column 列下标
+     * @param row    行下标
+     * @return double
+     */
+    public double getDouble(int column, int row) {
+        return columns[column].getDouble(row);
+    }
+
+    /**
+     * 是否为字典编码的列
+     *
+     * @param column 列下标
+     * @return boolean
+     */
+    public boolean isDictionary(int column) {
+        return columns[column] instanceof DictionaryColumn;
+    }
+
+    /**
+     * 字典编码列的取值个数（含未被当前行引用的取值）
+     *
+     * @param column 列下标
+     * @return int
+     */
+    public int getDictionarySize(int column) {
+        return ((DictionaryColumn) columns[column]).dictionary.length;
+    }
+
+    /**
+     * 字典编码列的取值
+     *
+     * @param column 列下标
+     * @param code   字典下标
+     * @return {@code String}
+     */
+    public String getDictionaryValue(int column, int code) {
+        return ((DictionaryColumn) columns[column]).dictionary[code];
+    }
+
+    /**
+     * 字典编码列单元格的字典下标，空单元格为 -1
+     *
+     * @param column 列下标
+     * @param row    行下标
+     * @return int
+     */
+    public int getCode(int column, int row) {
+        DictionaryColumn dictionaryColumn = (DictionaryColumn) columns[column];
+        return dictionaryColumn.isNull(row) ? -1 : dictionaryColumn.codes[row];
+    }
+
+    /**
+     * 按行下标取出若干行（采样），字典列共享原字典
+     *
+     * @param rows 行下标
+     * @return {@code ColumnarDataset}
+     */
+    public ColumnarDataset select(int[] rows) {
+        Column[] selected = new Column[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            selected[i] = columns[i].select(rows);
+        }
+        return new ColumnarDataset(headers, columnTypes, selected, rows.length);
+    }
+
+    /**
+     * 取出连续的若干行
+     *
+     * @param from 起始行（包含）
+     * @param to   结束行（不包含）
+     * @return {@code ColumnarDataset}
+     */
+    public ColumnarDataset slice(int from, int to) {
+        int[] rows = new int[to - from];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = from + i;
+        }
+        return select(rows);
+    }
+
+    /**
+     * 单列统计
+     *
+     * @param column 列下标
+     * @return {@code ColumnStats}
+     */
+    public ColumnStats getStats(int column) {
+        Column col = columns[column];
+        int nullCount = 0;
+        int numericCount = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum = 0;
+        BitSet codes = col instanceof DictionaryColumn ? new BitSet() : null;
+        for (int row = 0; row < rowCount; row++) {
+            if (col.isNull(row)) {
+                nullCount++;
+                continue;
+            }
+            if (codes != null) {
+                codes.set(((DictionaryColumn) col).codes[row]);
+            }
+            double value = col.getDouble(row);
+            if (!Double.isNaN(value)) {
+                numericCount++;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+                sum += value;
+            }
+        }
+        ColumnStats stats = new ColumnStats();
+        stats.setCount(rowCount - nullCount);
+        stats.setNullCount(nullCount);
+        stats.setNumericCount(numericCount);
+        stats.setDistinctCount(codes == null ? null : codes.cardinality());
+        if (numericCount > 0) {
+            stats.setMin(min);
+            stats.setMax(max);
+            stats.setSum(sum);
+            stats.setMean(sum / numericCount);
+        }
+        return stats;
+    }
+
+    /**
+     * 内容摘要，相同的数据总是得到相同的结果（用作采样的随机种子）
+     *
+     * @return int
+     */
+    public int contentHash() {
+        int hash = headers.hashCode();
+        for (int row = 0; row < rowCount; row++) {
+            for (Column column : columns) {
+                hash = 31 * hash + (column.isNull(row) ? 0 : column.hashAt(row));
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * 编码为 csv（与 {@link CsvTable#toCsv()} 一致）
+     *
+     * @return {@code String}
+     */
+    public String toCsv() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(CsvEncoder.encodeRow(headers)).append(CsvEncoder.LINE_SEPARATOR);
+        for (int row = 0; row < rowCount; row++) {
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    sb.append(CsvEncoder.SEPARATOR);
+                }
+                String text = columns[i].getText(row);
+                // 数值不需要转义
+                sb.append(columns[i] instanceof DictionaryColumn ? CsvEncoder.encodeCell(text) : text);
+            }
+            sb.append(CsvEncoder.LINE_SEPARATOR);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 转为按行存储的表格
+     *
+     * @return {@code CsvTable}
+     */
+    public CsvTable toCsvTable() {
+        List<List<String>> rows = new ArrayList<>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            List<String> cells = new ArrayList<>(columns.length);
+            for (Column column : columns) {
+                cells.add(column.getText(row));
+            }
+            rows.add(cells);
+        }
+        return new CsvTable(new ArrayList<>(headers), rows);
+    }
+
+    /**
+     * 解析 csv，第一行为表头；短行补空字段
+     *
+     * @param csv csv 文本
+     * @return {@code ColumnarDataset}
+     */
+    public static ColumnarDataset fromCsv(String csv) {
+        Builder builder = new Builder();
+        CsvTable.parseRecords(csv, record -> {
+            if (builder.hasHeader()) {
+                builder.addRow(record);
+            } else {
+                builder.header(record);
+            }
+        });
+        return builder.build();
+    }
+
+    /**
+     * 序列化
+     *
+     * @return byte[]
+     */
+    public byte[] toBytes() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + rowCount * columns.length * 2);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            writeVarLong(out, columns.length);
+            writeVarLong(out, rowCount);
+            for (int i = 0; i < columns.length; i++) {
+                Column column = columns[i];
+                writeString(out, headers.get(i));
+                writeString(out, columnTypes.get(i).getValue());
+                out.writeByte(column.getEncoding());
+                boolean hasNulls = column.hasNulls(rowCount);
+                out.writeBoolean(hasNulls);
+                if (hasNulls) {
+                    for (int w = 0; w < bitmapWords(rowCount); w++) {
+                        out.writeLong(column.nulls[w]);
+                    }
+                }
+                column.writeValues(out, rowCount);
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "表格数据序列化失败");
+        }
+    }
+
+    /**
+     * 反序列化
+     *
+     * @param bytes {@link #toBytes()} 的结果
+     * @return {@code ColumnarDataset}
+     */
+    public static ColumnarDataset fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length < MAGIC.length + 1 || bytes[0] != MAGIC[0] || bytes[1] != MAGIC[1]
+                || bytes[2] != VERSION) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "表格数据格式错误");
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, MAGIC.length + 1,
+                    bytes.length - MAGIC.length - 1));
+            int columnCount = (int) readVarLong(in);
+            int rowCount = (int) readVarLong(in);
+            List<String> headers = new ArrayList<>(columnCount);
+            List<ColumnTypeEnums> columnTypes = new ArrayList<>(columnCount);
+            Column[] columns = new Column[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                headers.add(readString(in));
+                ColumnTypeEnums columnType = ColumnTypeEnums.getEnumByValue(readString(in));
+                columnTypes.add(columnType == null ? ColumnTypeEnums.TEXT : columnType);
+                byte encoding = in.readByte();
+                long[] nulls = new long[bitmapWords(rowCount)];
+                if (in.readBoolean()) {
+                    for (int w = 0; w < nulls.length; w++) {
+                        nulls[w] = in.readLong();
+                    }
+                }
+                columns[i] = readColumn(in, encoding, nulls, rowCount);
+            }
+            return new ColumnarDataset(headers, columnTypes, columns, rowCount);
+        } catch (IOException | RuntimeException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "表格数据格式错误");
+        }
+    }
+
+    private static Column readColumn(DataInputStream in, byte encoding, long[] nulls, int rowCount)
+            throws IOException {
+        if (encoding == ENCODING_LONG) {
+            long[] values = new long[rowCount];
+            for (int row = 0; row < rowCount; row++) {
+                if (!getBit(nulls, row)) {
+                    values[row] = zigzagDecode(readVarLong(in));
+                }
+            }
+            return new LongColumn(values, nulls);
+        }
+        if (encoding == ENCODING_DOUBLE) {
+            double[] values = new double[rowCount];
+            for (int row = 0; row < rowCount; row++) {
+                if (!getBit(nulls, row)) {
+                    values[row] = in.readDouble();
+                }
+            }
+            return new DoubleColumn(values, nulls);
+        }
+        if (encoding == ENCODING_DICTIONARY) {
+            String[] dictionary = new String[(int) readVarLong(in)];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = readString(in);
+            }
+            int[] codes = new int[rowCount];
+            for (int row = 0; row < rowCount; row++) {
+                if (!getBit(nulls, row)) {
+                    codes[row] = (int) readVarLong(in);
+                    if (codes[row] < 0 || codes[row] >= dictionary.length) {
+                        throw new IllegalArgumentException("dictionary code out of range");
+                    }
+                }
+            }
+            return new DictionaryColumn(dictionary, codes, nulls, null);
+        }
+        throw new IllegalArgumentException("unknown encoding " + encoding);
+    }
+
+    /**
+     * 数值的文本形式：整数不带小数点，小数去掉末尾的 0
+     *
+     * @param value 数值
+     * @return {@code String}
+     */
+    static String formatDouble(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < DOUBLE_EXACT_LIMIT) {
+            return Long.toString((long) value);
+        }
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * 解析整数，只有文本能原样还原时才返回
+     *
+     * @param cell 单元格
+     * @return {@code Long}
+     */
+    static Long parseExactLong(String cell) {
+        if (cell.length() > 20 || !isPlainNumber(cell, false)) {
+            return null;
+        }
+        try {
+            long value = Long.parseLong(cell);
+            return Long.toString(value).equals(cell) ? value : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 解析小数，只有文本能原样还原时才返回
+     *
+     * @param cell 单元格
+     * @return {@code Double}
+     */
+    static Double parseExactDouble(String cell) {
+        if (!isPlainNumber(cell, true)) {
+            return null;
+        }
+        try {
+            double value = Double.parseDouble(cell);
+            if (Double.isInfinite(value)) {
+                return null;
+            }
+            return formatDouble(value).equals(cell) ? value : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 只包含可选的负号、数字和（允许时）小数点
+     */
+    private static boolean isPlainNumber(String cell, boolean allowDot) {
+        boolean hasDigit = false;
+        for (int i = 0; i < cell.length(); i++) {
+            char c = cell.charAt(i);
+            if (c >= '0' && c <= '9') {
+                hasDigit = true;
+            } else if (!(c == '-' && i == 0) && !(c == '.' && allowDot)) {
+                return false;
+            }
+        }
+        return hasDigit;
+    }
+
+    static int bitmapWords(int size) {
+        return (size + 63) >>> 6;
+    }
+
+    static boolean getBit(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    static void setBit(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    private static long zigzagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long zigzagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 一列数据
+     */
+    public abstract static class Column {
+
+        /**
+         * 空值位图
+         */
+        final long[] nulls;
+
+        Column(long[] nulls) {
+            this.nulls = nulls;
+        }
+
+        /**
+         * 编码方式
+         *
+         * @return {@link #ENCODING_LONG}、{@link #ENCODING_DOUBLE} 或 {@link #ENCODING_DICTIONARY}
+         */
+        public abstract byte getEncoding();
+
+        /**
+         * 单元格是否为空
+         *
+         * @param row 行下标
+         * @return boolean
+         */
+        public boolean isNull(int row) {
+            return getBit(nulls, row);
+        }
+
+        /**
+         * 单元格文本，空单元格为 ""
+         *
+         * @param row 行下标
+         * @return {@code String}
+         */
+        public abstract String getText(int row);
+
+        /**
+         * 单元格数值，空单元格或非数值为 NaN
+         *
+         * @param row 行下标
+         * @return double
+         */
+        public abstract double getDouble(int row);
+
+        abstract Column select(int[] rows);
+
+        abstract int hashAt(int row);
+
+        abstract void writeValues(DataOutputStream out, int rowCount) throws IOException;
+
+        boolean hasNulls(int rowCount) {
+            for (int w = 0; w < bitmapWords(rowCount); w++) {
+                if (nulls[w] != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        long[] selectNulls(int[] rows) {
+            long[] selected = new long[bitmapWords(rows.length)];
+            for (int i = 0; i < rows.length; i++) {
+                if (isNull(rows[i])) {
+                    setBit(selected, i);
+                }
+            }
+            return selected;
+        }
+    }
+
+    static final class LongColumn extends Column {
+
+        private final long[] values;
+
+        LongColumn(long[] values, long[] nulls) {
+            super(nulls);
+            this.values = values;
+        }
+
+        @Override
+        public byte getEncoding() {
+            return ENCODING_LONG;
+        }
+
+        @Override
+        public String getText(int row) {
+            return isNull(row) ? "" : Long.toString(values[row]);
+        }
+
+        @Override
+        public double getDouble(int row) {
+            return isNull(row) ? Double.NaN : values[row];
+        }
+
+        @Override
+        Column select(int[] rows) {
+            long[] selected = new long[rows.length];
+            for (int i = 0; i < rows.length; i++) {
+                selected[i] = values[rows[i]];
+            }
+            return new LongColumn(selected, selectNulls(rows));
+        }
+
+        @Override
+        int hashAt(int row) {
+            return Long.hashCode(values[row]);
+        }
+
+        @Override
+        void writeValues(DataOutputStream out, int rowCount) throws IOException {
+            for (int row = 0; row < rowCount; row++) {
+                if (!isNull(row)) {
+                    writeVarLong(out, zigzagEncode(values[row]));
+                }
+            }
+        }
+    }
+
+    static final class DoubleColumn extends Column {
+
+        private final double[] values;
+
+        DoubleColumn(double[] values, long[] nulls) {
+            super(nulls);
+            this.values = values;
+        }
+
+        @Override
+        public byte getEncoding() {
+            return ENCODING_DOUBLE;
+        }
+
+        @Override
+        public String getText(int row) {
+            return isNull(row) ? "" : formatDouble(values[row]);
+        }
+
+        @Override
+        public double getDouble(int row) {
+            return isNull(row) ? Double.NaN : values[row];
+        }
+
+        @Override
+        Column select(int[] rows) {
+            double[] selected = new double[rows.length];
+            for (int i = 0; i < rows.length; i++) {
+                selected[i] = values[rows[i]];
+            }
+            return new DoubleColumn(selected, selectNulls(rows));
+        }
+
+        @Override
+        int hashAt(int row) {
+            return Double.hashCode(values[row]);
+        }
+
+        @Override
+        void writeValues(DataOutputStream out, int rowCount) throws IOException {
+            for (int row = 0; row < rowCount; row++) {
+                if (!isNull(row)) {
+                    out.writeDouble(values[row]);
+                }
+            }
+        }
+    }
+
+    static final class DictionaryColumn extends Column {
+
+        private final String[] dictionary;
+
+        private final int[] codes;
+
+        /**
+         * 字典中每个取值解析出的数值（如 "1,234"、"12%"），按需计算
+         */
+        private volatile double[] numbers;
+
+        DictionaryColumn(String[] dictionary, int[] codes, long[] nulls, double[] numbers) {
+            super(nulls);
+            this.dictionary = dictionary;
+            this.codes = codes;
+            this.numbers = numbers;
+        }
+
+        @Override
+        public byte getEncoding() {
+            return ENCODING_DICTIONARY;
+        }
+
+        @Override
+        public String getText(int row) {
+            return isNull(row) ? "" : dictionary[codes[row]];
+        }
+
+        @Override
+        public double getDouble(int row) {
+            if (isNull(row)) {
+                return Double.NaN;
+            }
+            return numbers()[codes[row]];
+        }
+
+        @Override
+        Column select(int[] rows) {
+            int[] selected = new int[rows.length];
+            for (int i = 0; i < rows.length; i++) {
+                selected[i] = codes[rows[i]];
+            }
+            return new DictionaryColumn(dictionary, selected, selectNulls(rows), numbers);
+        }
+
+        @Override
+        int hashAt(int row) {
+            return dictionary[codes[row]].hashCode();
+        }
+
+        @Override
+        void writeValues(DataOutputStream out, int rowCount) throws IOException {
+            writeVarLong(out, dictionary.length);
+            for (String value : dictionary) {
+                writeString(out, value);
+            }
+            for (int row = 0; row < rowCount; row++) {
+                if (!isNull(row)) {
+                    writeVarLong(out, codes[row]);
+                }
+            }
+        }
+
+        private double[] numbers() {
+            double[] parsed = numbers;
+            if (parsed == null) {
+                parsed = new double[dictionary.length];
+                for (int i = 0; i < dictionary.length; i++) {
+                    Double value = ColumnTypeDetector.parseNumeric(dictionary[i]);
+                    parsed[i] = value == null ? Double.NaN : value;
+                }
+                numbers = parsed;
+            }
+            return parsed;
+        }
+    }
+
+    /**
+     * 逐行构建，每一列先按整数存储，出现不能无损存储的单元格时依次降级为小数、字典编码
+     */
+    public static class Builder {
+
+        private final List<String> headers = new ArrayList<>();
+
+        private final List<ColumnBuilder> columns = new ArrayList<>();
+
+        private boolean hasHeader;
+
+        private int rowCount;
+
+        /**
+         * 设置表头
+         *
+         * @param cells 表头
+         * @return {@code Builder}
+         */
+        public Builder header(List<String> cells) {
+            hasHeader = true;
+            ensureWidth(cells.size());
+            for (int i = 0; i < cells.size(); i++) {
+                headers.set(i, cells.get(i) == null ? "" : cells.get(i));
+            }
+            return this;
+        }
+
+        /**
+         * 追加一行，比已有列宽时补齐表头和之前的行，比已有列窄时补空单元格
+         *
+         * @param cells 单元格，null 或 "" 视为空
+         * @return {@code Builder}
+         */
+        public Builder addRow(List<String> cells) {
+            ensureWidth(cells.size());
+            for (int i = 0; i < columns.size(); i++) {
+                columns.get(i).add(i < cells.size() ? cells.get(i) : null);
+            }
+            rowCount++;
+            return this;
+        }
+
+        public boolean hasHeader() {
+            return hasHeader;
+        }
+
+        public int getColumnCount() {
+            return columns.size();
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        public ColumnarDataset build() {
+            List<ColumnTypeEnums> columnTypes = new ArrayList<>(columns.size());
+            Column[] built = new Column[columns.size()];
+            for (int i = 0; i < columns.size(); i++) {
+                columnTypes.add(columns.get(i).detector.getType());
+                built[i] = columns.get(i).build();
+            }
+            return new ColumnarDataset(new ArrayList<>(headers), columnTypes, built, rowCount);
+        }
+
+        private void ensureWidth(int width) {
+            while (columns.size() < width) {
+                headers.add("");
+                columns.add(new ColumnBuilder(rowCount));
+            }
+        }
+    }
+
+    private static class ColumnBuilder {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        private final ColumnTypeDetector detector = new ColumnTypeDetector();
+
+        private byte encoding = ENCODING_LONG;
+
+        private long[] longs = new long[INITIAL_CAPACITY];
+
+        private double[] doubles;
+
+        private int[] codes;
+
+        private Map<String, Integer> dictionaryIndex;
+
+        private List<String> dictionary;
+
+        private long[] nulls = new long[bitmapWords(INITIAL_CAPACITY)];
+
+        private int capacity = INITIAL_CAPACITY;
+
+        private int size;
+
+        ColumnBuilder(int leadingNulls) {
+            for (int i = 0; i < leadingNulls; i++) {
+                add(null);
+            }
+        }
+
+        void add(String cell) {
+            if (size == capacity) {
+                grow();
+            }
+            if (cell == null || cell.isEmpty()) {
+                setBit(nulls, size++);
+                return;
+            }
+            detector.accept(cell);
+            if (encoding == ENCODING_LONG) {
+                Long value = parseExactLong(cell);
+                if (value != null) {
+                    longs[size++] = value;
+                    return;
+                }
+                Double decimal = parseExactDouble(cell);
+                if (decimal != null && longsFitDouble()) {
+                    toDoubles();
+                    doubles[size++] = decimal;
+                    return;
+                }
+                toDictionary();
+            } else if (encoding == ENCODING_DOUBLE) {
+                Double decimal = parseExactDouble(cell);
+                if (decimal != null) {
+                    doubles[size++] = decimal;
+                    return;
+                }
+                toDictionary();
+            }
+            codes[size++] = code(cell);
+        }
+
+        Column build() {
+            long[] builtNulls = Arrays.copyOf(nulls, bitmapWords(size));
+            if (encoding == ENCODING_LONG) {
+                return new LongColumn(Arrays.copyOf(longs, size), builtNulls);
+            }
+            if (encoding == ENCODING_DOUBLE) {
+                return new DoubleColumn(Arrays.copyOf(doubles, size), builtNulls);
+            }
+            return new DictionaryColumn(dictionary.toArray(new String[0]), Arrays.copyOf(codes, size), builtNulls,
+                    null);
+        }
+
+        private void grow() {
+            capacity = capacity + (capacity >> 1);
+            nulls = Arrays.copyOf(nulls, bitmapWords(capacity));
+            if (encoding == ENCODING_LONG) {
+                longs = Arrays.copyOf(longs, capacity);
+            } else if (encoding == ENCODING_DOUBLE) {
+                doubles = Arrays.copyOf(doubles, capacity);
+            } else {
+                codes = Arrays.copyOf(codes, capacity);
+            }
+        }
+
+        private boolean longsFitDouble() {
+            for (int i = 0; i < size; i++) {
+                if (!getBit(nulls, i) && Math.abs(longs[i]) >= DOUBLE_EXACT_LIMIT) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void toDoubles() {
+            doubles = new double[capacity];
+            for (int i = 0; i < size; i++) {
+                doubles[i] = longs[i];
+            }
+            longs = null;
+            encoding = ENCODING_DOUBLE;
+        }
+
+        private void toDictionary() {
+            codes = new int[capacity];
+            dictionaryIndex = new HashMap<>();
+            dictionary = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                if (!getBit(nulls, i)) {
+                    codes[i] = code(encoding == ENCODING_LONG ? Long.toString(longs[i]) : formatDouble(doubles[i]));
+                }
+            }
+            longs = null;
+            doubles = null;
+            encoding = ENCODING_DICTIONARY;
+        }
+
+        private int code(String value) {
+            Integer code = dictionaryIndex.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionaryIndex.put(value, code);
+                dictionary.add(value);
+            }
+            return code;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.nanshuo.BI.utils.excel;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+/**
+ * csv 编码（RFC 4180）
+ * <p>
+ * 空单元格保留为空字段，保证每一列的位置不变；含分隔符、引号或换行的字段用双引号包裹，内部引号转义为两个双引号
+ *
+ * @author nanshuo
+ * @date 2026/10/18 11:05:20
+ */
+public class CsvEncoder {
+
+    public static final char SEPARATOR = ',';
+
+    public static final char QUOTE = '"';
+
+    public static final String LINE_SEPARATOR = "\n";
+
+    /**
+     * 编码一行
+     *
+     * @param cells 单元格，null 视为空
+     * @return 不含换行符的一行 csv
+     */
+    public static String encodeRow(List<String> cells) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < cells.size(); i++) {
+            if (i > 0) {
+                sb.append(SEPARATOR);
+            }
+            appendCell(sb, cells.get(i));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 编码单个单元格
+     *
+     * @param cell 单元格
+     * @return 编码后的字段
+     */
+    public static String encodeCell(String cell) {
+        StringBuilder sb = new StringBuilder();
+        appendCell(sb, cell);
+        return sb.toString();
+    }
+
+    /**
+     * 编码数值，最多保留 4 位小数并去掉末尾的 0
+     *
+     * @param value 数值
+     * @return {@code String}
+     */
+    public static String encodeNumber(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return "";
+        }
+        return BigDecimal.valueOf(value).setScale(4, RoundingMode.HALF_UP).stripTrailingZeros().toPlainString();
+    }
+
+    private static void appendCell(StringBuilder sb, String cell) {
+        if (cell == null || cell.isEmpty()) {
+            return;
+        }
+        if (!needQuote(cell)) {
+            sb.append(cell);
+            return;
+        }
+        sb.append(QUOTE);
+        for (int i = 0; i < cell.length(); i++) {
+            char c = cell.charAt(i);
+            if (c == QUOTE) {
+                sb.append(QUOTE);
+            }
+            sb.append(c);
+        }
+        sb.append(QUOTE);
+    }
+
+    private static boolean needQuote(String cell) {
+        for (int i = 0; i < cell.length(); i++) {
+            char c = cell.charAt(i);
+            if (c == SEPARATOR || c == QUOTE || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
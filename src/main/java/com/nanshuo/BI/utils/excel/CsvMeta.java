@@ -0,0 +1,39 @@
+package com.nanshuo.BI.utils.excel;
+
+import com.nanshuo.BI.model.enums.chart.ColumnTypeEnums;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * excel 转 csv 的结果描述（表头、列类型、行数）
+ *
+ * @author nanshuo
+ * @date 2026/10/18 11:20:41
+ */
+@Data
+public class CsvMeta implements Serializable {
+
+    /**
+     * 表头，下标即列位置
+     */
+    private List<String> headers;
+
+    /**
+     * 每一列推断出的类型，与表头一一对应
+     */
+    private List<ColumnTypeEnums> columnTypes;
+
+    /**
+     * 数据行数（不含表头）
+     */
+    private long rowCount;
+
+    /**
+     * 写出的字符数
+     */
+    private long charCount;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,172 @@
+package com.nanshuo.BI.utils.excel;
+
+import com.nanshuo.BI.model.enums.chart.ColumnTypeEnums;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 已解析的 csv 表格（表头 + 数据行 + 列类型）
+ * <p>
+ * 与 {@link CsvEncoder} 互逆：{@link #parse(String)} 解析 RFC 4180 格式，{@link #toCsv()} 重新编码
+ *
+ * @author nanshuo
+ * @date 2026/10/18 13:05:47
+ */
+@Getter
+public class CsvTable {
+
+    /**
+     * 表头
+     */
+    private final List<String> headers;
+
+    /**
+     * 数据行（不含表头），每一行与表头等宽
+     */
+    private final List<List<String>> rows;
+
+    /**
+     * 每一列推断出的类型
+     */
+    private final List<ColumnTypeEnums> columnTypes;
+
+    public CsvTable(List<String> headers, List<List<String>> rows) {
+        this.headers = headers;
+        this.rows = rows;
+        List<ColumnTypeDetector> detectors = new ArrayList<>(headers.size());
+        for (int i = 0; i < headers.size(); i++) {
+            detectors.add(new ColumnTypeDetector());
+        }
+        for (List<String> row : rows) {
+            for (int i = 0; i < headers.size(); i++) {
+                detectors.get(i).accept(row.get(i));
+            }
+        }
+        List<ColumnTypeEnums> types = new ArrayList<>(headers.size());
+        for (ColumnTypeDetector detector : detectors) {
+            types.add(detector.getType());
+        }
+        this.columnTypes = Collections.unmodifiableList(types);
+    }
+
+    /**
+     * 以当前表头构造新的表格（用于压缩、聚合后的结果）
+     *
+     * @param newRows 新的数据行
+     * @return {@code CsvTable}
+     */
+    public CsvTable withRows(List<List<String>> newRows) {
+        return new CsvTable(headers, newRows);
+    }
+
+    /**
+     * 列数
+     *
+     * @return int
+     */
+    public int getColumnCount() {
+        return headers.size();
+    }
+
+    /**
+     * 行数（不含表头）
+     *
+     * @return int
+     */
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    /**
+     * 编码为 csv
+     *
+     * @return {@code String}
+     */
+    public String toCsv() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(CsvEncoder.encodeRow(headers)).append(CsvEncoder.LINE_SEPARATOR);
+        for (List<String> row : rows) {
+            sb.append(CsvEncoder.encodeRow(row)).append(CsvEncoder.LINE_SEPARATOR);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 解析 csv，第一行为表头；短行补空字段，保证每一行与表头等宽
+     *
+     * @param csv csv 文本
+     * @return {@code CsvTable}
+     */
+    public static CsvTable parse(String csv) {
+        List<List<String>> records = new ArrayList<>();
+        parseRecords(csv, records::add);
+        if (records.isEmpty()) {
+            return new CsvTable(new ArrayList<>(), new ArrayList<>());
+        }
+        List<String> headers = records.get(0);
+        int width = headers.size();
+        for (List<String> row : records) {
+            width = Math.max(width, row.size());
+        }
+        for (List<String> row : records) {
+            while (row.size() < width) {
+                row.add("");
+            }
+        }
+        return new CsvTable(headers, new ArrayList<>(records.subList(1, records.size())));
+    }
+
+    /**
+     * 逐条解析 csv 记录（含表头），不补齐宽度，供不需要整表保留字符串的调用方使用
+     *
+     * @param csv      csv 文本
+     * @param consumer 每一条记录
+     */
+    public static void parseRecords(String csv, Consumer<List<String>> consumer) {
+        if (csv == null || csv.isEmpty()) {
+            return;
+        }
+        List<String> record = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int length = csv.length();
+        for (int i = 0; i < length; i++) {
+            char c = csv.charAt(i);
+            if (quoted) {
+                if (c == CsvEncoder.QUOTE) {
+                    if (i + 1 < length && csv.charAt(i + 1) == CsvEncoder.QUOTE) {
+                        field.append(c);
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == CsvEncoder.QUOTE) {
+                quoted = true;
+            } else if (c == CsvEncoder.SEPARATOR) {
+                record.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && i + 1 < length && csv.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                record.add(field.toString());
+                field.setLength(0);
+                consumer.accept(record);
+                record = new ArrayList<>();
+            } else {
+                field.append(c);
+            }
+        }
+        if (field.length() > 0 || !record.isEmpty()) {
+            record.add(field.toString());
+            consumer.accept(record);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.nanshuo.BI.utils.excel;
+
+import com.alibaba.excel.context.AnalysisContext;
+import com.alibaba.excel.event.AnalysisEventListener;
+import com.nanshuo.BI.common.ErrorCode;
+import com.nanshuo.BI.exception.BusinessException;
+import com.nanshuo.BI.model.enums.chart.ColumnTypeEnums;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 流式 excel 转 csv 监听器
+ * <p>
+ * EasyExcel 每解析一行就直接写入 {@link Writer}，不在内存中保留整张表，堆占用与表格大小无关。
+ * 第一行作为表头，之后每一行都按列下标输出，空单元格保留为空字段，列不会错位；同时顺带推断每一列的类型
+ *
+ * @author nanshuo
+ * @date 2026/10/18 10:12:36
+ */
+@Slf4j
+public class CsvWriteListener extends AnalysisEventListener<Map<Integer, String>> {
+
+    /**
+     * 输出
+     */
+    private final Writer writer;
+
+    /**
+     * 最多写出的字符数，小于等于 0 表示不限制
+     */
+    private final long maxChars;
+
+    /**
+     * 表头
+     */
+    private final List<String> headers = new ArrayList<>();
+
+    /**
+     * 每一列的类型推断器
+     */
+    private final List<ColumnTypeDetector> detectors = new ArrayList<>();
+
+    /**
+     * 已写出的字符数
+     */
+    private long writtenChars;
+
+    /**
+     * 已写出的数据行数（不含表头）
+     */
+    private long rowCount;
+
+    public CsvWriteListener(Writer writer) {
+        this(writer, 0);
+    }
+
+    public CsvWriteListener(Writer writer, long maxChars) {
+        this.writer = writer;
+        this.maxChars = maxChars;
+    }
+
+    @Override
+    public void invoke(Map<Integer, String> data, AnalysisContext context) {
+        int width = headers.size();
+        for (Integer columnIndex : data.keySet()) {
+            if (StringUtils.isNotBlank(data.get(columnIndex))) {
+                width = Math.max(width, columnIndex + 1);
+            }
+        }
+        // 整行为空直接跳过
+        if (width == 0) {
+            return;
+        }
+        List<String> cells = new ArrayList<>(width);
+        for (int i = 0; i < width; i++) {
+            String cell = data.get(i);
+            cells.add(cell == null ? "" : cell.trim());
+        }
+        if (headers.isEmpty()) {
+            headers.addAll(cells);
+        } else {
+            // 数据行比表头宽时补齐表头，保证列位置对齐
+            while (headers.size() < width) {
+                headers.add("");
+            }
+            if (isBlankRow(cells)) {
+                return;
+            }
+            for (int i = 0; i < width; i++) {
+                detector(i).accept(cells.get(i));
+            }
+            rowCount++;
+        }
+        write(CsvEncoder.encodeRow(cells) + CsvEncoder.LINE_SEPARATOR);
+    }
+
+    @Override
+    public void doAfterAllAnalysed(AnalysisContext context) {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.debug("excel 转 csv 完成，共 {} 行，{} 个字符", rowCount, writtenChars);
+    }
+
+    /**
+     * 获取转换结果描述
+     *
+     * @return {@code CsvMeta}
+     */
+    public CsvMeta getMeta() {
+        List<ColumnTypeEnums> columnTypes = new ArrayList<>(headers.size());
+        for (int i = 0; i < headers.size(); i++) {
+            columnTypes.add(detector(i).getType());
+        }
+        CsvMeta csvMeta = new CsvMeta();
+        csvMeta.setHeaders(Collections.unmodifiableList(new ArrayList<>(headers)));
+        csvMeta.setColumnTypes(Collections.unmodifiableList(columnTypes));
+        csvMeta.setRowCount(rowCount);
+        csvMeta.setCharCount(writtenChars);
+        return csvMeta;
+    }
+
+    private ColumnTypeDetector detector(int columnIndex) {
+        while (detectors.size() <= columnIndex) {
+            detectors.add(new ColumnTypeDetector());
+        }
+        return detectors.get(columnIndex);
+    }
+
+    private boolean isBlankRow(List<String> cells) {
+        for (String cell : cells) {
+            if (!cell.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 写出一行，超过上限时直接中断解析
+     *
+     * @param line 行
+     */
+    private void write(String line) {
+        writtenChars += line.length();
+        if (maxChars > 0 && writtenChars > maxChars) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "表格数据过大");
+        }
+        try {
+            writer.write(line);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
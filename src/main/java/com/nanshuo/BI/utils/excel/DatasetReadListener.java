@@ -0,0 +1,87 @@
+package com.nanshuo.BI.utils.excel;
+
+import com.alibaba.excel.context.AnalysisContext;
+import com.alibaba.excel.event.AnalysisEventListener;
+import com.nanshuo.BI.common.ErrorCode;
+import com.nanshuo.BI.exception.BusinessException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * excel 直接读取为按列存储的表格
+ * <p>
+ * 行的处理规则与 {@link CsvWriteListener} 一致（第一行为表头、保留列位置、跳过空行），
+ * 单元格直接写入 {@link ColumnarDataset.Builder} 的列数组，不生成中间的 csv 文本
+ *
+ * @author nanshuo
+ * @date 2026/10/18 23:52:16
+ */
+@Slf4j
+public class DatasetReadListener extends AnalysisEventListener<Map<Integer, String>> {
+
+    private final ColumnarDataset.Builder builder = ColumnarDataset.builder();
+
+    /**
+     * 最多读取的数据行数，小于等于 0 表示不限制
+     */
+    private final long maxRows;
+
+    public DatasetReadListener() {
+        this(0);
+    }
+
+    public DatasetReadListener(long maxRows) {
+        this.maxRows = maxRows;
+    }
+
+    @Override
+    public void invoke(Map<Integer, String> data, AnalysisContext context) {
+        int width = builder.getColumnCount();
+        for (Integer columnIndex : data.keySet()) {
+            if (StringUtils.isNotBlank(data.get(columnIndex))) {
+                width = Math.max(width, columnIndex + 1);
+            }
+        }
+        // 整行为空直接跳过
+        if (width == 0) {
+            return;
+        }
+        List<String> cells = new ArrayList<>(width);
+        boolean blank = true;
+        for (int i = 0; i < width; i++) {
+            String cell = data.get(i);
+            cell = cell == null ? "" : cell.trim();
+            blank &= cell.isEmpty();
+            cells.add(cell);
+        }
+        if (!builder.hasHeader()) {
+            builder.header(cells);
+            return;
+        }
+        if (blank) {
+            return;
+        }
+        if (maxRows > 0 && builder.getRowCount() >= maxRows) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "表格数据过大");
+        }
+        builder.addRow(cells);
+    }
+
+    @Override
+    public void doAfterAllAnalysed(AnalysisContext context) {
+        log.debug("excel 读取完成，共 {} 行，{} 列", builder.getRowCount(), builder.getColumnCount());
+    }
+
+    /**
+     * 获取读取结果
+     *
+     * @return {@code ColumnarDataset}
+     */
+    public ColumnarDataset getDataset() {
+        return builder.build();
+    }
+}
@@ -249,7 +249,7 @@ public final class RedisUtils {
         if (delta < 0) {
             throw new RuntimeException("递减因子必须大于0");
         }
-        Long increment = redisTemplate.opsForValue().increment(key, delta);
+        Long increment = redisTemplate.opsForValue().increment(key, -delta);
         return increment != null ? increment : 0L;
     }
 
@@ -782,6 +782,76 @@ public final class RedisUtils {
         }
     }
 
+    //=============================ZSet===================================
+
+    /**
+     * 向有序集合添加元素
+     *
+     * @param key   键
+     * @param value 值
+     * @param score 分数
+     * @return whether true or false
+     */
+    public boolean zAdd(String key, Object value, double score) {
+        try {
+            Boolean flag = redisTemplate.opsForZSet().add(key, value, score);
+            return Boolean.TRUE.equals(flag);
+        } catch (Exception e) {
+            log.error("redis zAdd error", e);
+            return false;
+        }
+    }
+
+    /**
+     * 获取有序集合的大小
+     *
+     * @param key 键
+     * @return the size of the sorted set
+     */
+    public long zSize(String key) {
+        try {
+            Long size = redisTemplate.opsForZSet().zCard(key);
+            return size != null ? size : 0L;
+        } catch (Exception e) {
+            log.error("redis zSize error", e);
+            return 0L;
+        }
+    }
+
+    /**
+     * 按分数从小到大获取有序集合的元素
+     *
+     * @param key   键
+     * @param start 开始下标
+     * @param end   结束下标(包含)，-1代表所有值
+     * @return the elements in range
+     */
+    public Set<Object> zRange(String key, long start, long end) {
+        try {
+            return redisTemplate.opsForZSet().range(key, start, end);
+        } catch (Exception e) {
+            log.error("redis zRange error", e);
+            return null;
+        }
+    }
+
+    /**
+     * 移除有序集合中的元素
+     *
+     * @param key    键
+     * @param values 值,可以是多个
+     * @return the number of removed elements
+     */
+    public long zRemove(String key, Object... values) {
+        try {
+            Long count = redisTemplate.opsForZSet().remove(key, values);
+            return count != null ? count : 0L;
+        } catch (Exception e) {
+            log.error("redis zRemove error", e);
+            return 0L;
+        }
+    }
+
     //=============================Lock===================================
 
     /**
@@ -0,0 +1,194 @@
+package com.nanshuo.BI.bizmq;
+
+import com.nanshuo.BI.common.CommonConstant;
+import com.nanshuo.BI.config.BiMqConfig;
+import com.nanshuo.BI.manager.AiBatchManager;
+import com.nanshuo.BI.manager.ChartEventManager;
+import com.nanshuo.BI.manager.ChartIdempotencyManager;
+import com.nanshuo.BI.manager.LocalChartManager;
+import com.nanshuo.BI.model.domain.Chart;
+import com.nanshuo.BI.model.enums.chart.ChartStatusEnums;
+import com.nanshuo.BI.service.ChartService;
+import com.rabbitmq.client.Channel;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BiMessageConsumerTest {
+
+    private static final long CHART_ID = 1L;
+
+    private static final long USER_ID = 2L;
+
+    private static final long DELIVERY_TAG = 7L;
+
+    /**
+     * 图表已结束时重复投递的消息直接确认，同时释放用户的排队任务数
+     */
+    @Test
+    void duplicateOfFinishedChartReleasesUserJob() throws Exception {
+        ChartService chartService = Mockito.mock(ChartService.class);
+        ChartIdempotencyManager chartIdempotencyManager = Mockito.mock(ChartIdempotencyManager.class);
+        BiMessageProducer biMessageProducer = Mockito.mock(BiMessageProducer.class);
+        BiQueueScaler biQueueScaler = Mockito.mock(BiQueueScaler.class);
+        Executor chartJobExecutor = Runnable::run;
+        BiMessageConsumer consumer = new BiMessageConsumer();
+        ReflectionTestUtils.setField(consumer, "chartService", chartService);
+        ReflectionTestUtils.setField(consumer, "chartIdempotencyManager", chartIdempotencyManager);
+        ReflectionTestUtils.setField(consumer, "biMessageProducer", biMessageProducer);
+        ReflectionTestUtils.setField(consumer, "biQueueScaler", biQueueScaler);
+        ReflectionTestUtils.setField(consumer, "chartJobExecutor", chartJobExecutor);
+
+        Chart finishedChart = new Chart();
+        finishedChart.setId(CHART_ID);
+        finishedChart.setStatus(ChartStatusEnums.SUCCEED.getValue());
+        when(chartIdempotencyManager.tryAcquireProcessing(CHART_ID)).thenReturn("token");
+        when(chartService.getById(CHART_ID)).thenReturn(finishedChart);
+
+        ChartJobMessage jobMessage = ChartJobMessage.ofId(CHART_ID);
+        jobMessage.setUserId(USER_ID);
+        jobMessage.setGoal("分析用户增长");
+        jobMessage.setChartType("折线图");
+        jobMessage.setInlineData("日期,用户数\n1号,10\n");
+        MessageProperties properties = new MessageProperties();
+        properties.setDeliveryTag(DELIVERY_TAG);
+        Channel channel = Mockito.mock(Channel.class);
+        consumer.receiveMessage(new Message(jobMessage.toBytes(), properties), channel);
+
+        verify(channel).basicAck(DELIVERY_TAG, false);
+        verify(chartIdempotencyManager).releaseProcessing(CHART_ID, "token");
+        verify(biMessageProducer).releaseUserJob(USER_ID);
+        verify(biQueueScaler).recordConsumed();
+        verify(chartService, never()).buildUserInput(Mockito.any());
+    }
+
+    /**
+     * 可以本地生成图表配置的图表不合批，直接走本地生成路径（AI 只生成分析结论）
+     */
+    @Test
+    void localChartSkipsBatch() throws Exception {
+        ChartService chartService = Mockito.mock(ChartService.class);
+        ChartIdempotencyManager chartIdempotencyManager = Mockito.mock(ChartIdempotencyManager.class);
+        AiBatchManager aiBatchManager = Mockito.mock(AiBatchManager.class);
+        LocalChartManager localChartManager = Mockito.mock(LocalChartManager.class);
+        BiMessageConsumer consumer = new BiMessageConsumer();
+        ReflectionTestUtils.setField(consumer, "chartService", chartService);
+        ReflectionTestUtils.setField(consumer, "chartIdempotencyManager", chartIdempotencyManager);
+        ReflectionTestUtils.setField(consumer, "aiBatchManager", aiBatchManager);
+        ReflectionTestUtils.setField(consumer, "localChartManager", localChartManager);
+        ReflectionTestUtils.setField(consumer, "chartEventManager", Mockito.mock(ChartEventManager.class));
+        ReflectionTestUtils.setField(consumer, "biQueueScaler", Mockito.mock(BiQueueScaler.class));
+        ReflectionTestUtils.setField(consumer, "chartJobExecutor", (Executor) Runnable::run);
+
+        when(chartIdempotencyManager.tryAcquireProcessing(CHART_ID)).thenReturn("token");
+        when(chartService.compareAndSetStatus(CHART_ID, ChartStatusEnums.WAIT, ChartStatusEnums.RUNNING))
+                .thenReturn(true);
+        when(chartService.buildUserInput(any())).thenReturn("userInput");
+        when(localChartManager.generate(any())).thenReturn("{\"series\":[]}");
+        when(aiBatchManager.isEligible(any())).thenReturn(true);
+        // 不完成，只验证路由
+        when(chartService.genChart(any(), anyLong(), anyString(), anyString())).thenReturn(new CompletableFuture<>());
+
+        ChartJobMessage jobMessage = ChartJobMessage.ofId(CHART_ID);
+        jobMessage.setUserId(USER_ID);
+        jobMessage.setGoal("分析用户增长");
+        jobMessage.setChartType("折线图");
+        jobMessage.setInlineData("日期,用户数\n1号,10\n");
+        MessageProperties properties = new MessageProperties();
+        properties.setDeliveryTag(DELIVERY_TAG);
+        consumer.receiveMessage(new Message(jobMessage.toBytes(), properties), Mockito.mock(Channel.class));
+
+        verify(chartService).genChart(any(), eq(CommonConstant.BI_MODEL_ID), eq("userInput"), eq("{\"series\":[]}"));
+        verify(aiBatchManager, never()).submit(anyLong(), anyString());
+    }
+
+    /**
+     * 处理过程中抛出异常时结束这次投递：拒绝消息（没有重试次数），释放令牌、用户排队任务数，记录已消费
+     */
+    @Test
+    void exceptionBeforeGenerationSettlesDelivery() throws Exception {
+        ChartService chartService = Mockito.mock(ChartService.class);
+        ChartIdempotencyManager chartIdempotencyManager = Mockito.mock(ChartIdempotencyManager.class);
+        BiMessageProducer biMessageProducer = Mockito.mock(BiMessageProducer.class);
+        BiQueueScaler biQueueScaler = Mockito.mock(BiQueueScaler.class);
+        BiMessageConsumer consumer = new BiMessageConsumer();
+        ReflectionTestUtils.setField(consumer, "chartService", chartService);
+        ReflectionTestUtils.setField(consumer, "chartIdempotencyManager", chartIdempotencyManager);
+        ReflectionTestUtils.setField(consumer, "biMessageProducer", biMessageProducer);
+        ReflectionTestUtils.setField(consumer, "biQueueScaler", biQueueScaler);
+        ReflectionTestUtils.setField(consumer, "biMqConfig", Mockito.mock(BiMqConfig.class));
+        ReflectionTestUtils.setField(consumer, "chartEventManager", Mockito.mock(ChartEventManager.class));
+        ReflectionTestUtils.setField(consumer, "chartJobExecutor", (Executor) Runnable::run);
+
+        when(chartIdempotencyManager.tryAcquireProcessing(CHART_ID)).thenReturn("token");
+        when(chartService.compareAndSetStatus(CHART_ID, ChartStatusEnums.WAIT, ChartStatusEnums.RUNNING))
+                .thenReturn(true);
+        when(chartService.buildUserInput(any())).thenThrow(new IllegalStateException("构造输入失败"));
+
+        ChartJobMessage jobMessage = ChartJobMessage.ofId(CHART_ID);
+        jobMessage.setUserId(USER_ID);
+        jobMessage.setGoal("分析用户增长");
+        jobMessage.setChartType("折线图");
+        jobMessage.setInlineData("日期,用户数\n1号,10\n");
+        MessageProperties properties = new MessageProperties();
+        properties.setDeliveryTag(DELIVERY_TAG);
+        Channel channel = Mockito.mock(Channel.class);
+        consumer.receiveMessage(new Message(jobMessage.toBytes(), properties), channel);
+
+        verify(channel).basicNack(DELIVERY_TAG, false, false);
+        verify(chartService).markFailed(eq(CHART_ID), anyString());
+        verify(biMessageProducer).releaseUserJob(USER_ID);
+        verify(chartIdempotencyManager).releaseProcessing(CHART_ID, "token");
+        verify(biQueueScaler).recordReceived();
+        verify(biQueueScaler).recordConsumed();
+    }
+
+    /**
+     * 其他消费者正在处理且没有延迟队列时丢弃重复消息，同时释放用户的排队任务数
+     */
+    @Test
+    void droppedDuplicateReleasesUserJob() throws Exception {
+        ChartService chartService = Mockito.mock(ChartService.class);
+        ChartIdempotencyManager chartIdempotencyManager = Mockito.mock(ChartIdempotencyManager.class);
+        BiMessageProducer biMessageProducer = Mockito.mock(BiMessageProducer.class);
+        BiQueueScaler biQueueScaler = Mockito.mock(BiQueueScaler.class);
+        BiMessageConsumer consumer = new BiMessageConsumer();
+        ReflectionTestUtils.setField(consumer, "chartService", chartService);
+        ReflectionTestUtils.setField(consumer, "chartIdempotencyManager", chartIdempotencyManager);
+        ReflectionTestUtils.setField(consumer, "biMessageProducer", biMessageProducer);
+        ReflectionTestUtils.setField(consumer, "biQueueScaler", biQueueScaler);
+        ReflectionTestUtils.setField(consumer, "biMqConfig", Mockito.mock(BiMqConfig.class));
+        ReflectionTestUtils.setField(consumer, "chartJobExecutor", (Executor) Runnable::run);
+
+        // 令牌被其他消费者持有
+        when(chartIdempotencyManager.tryAcquireProcessing(CHART_ID)).thenReturn(null);
+
+        ChartJobMessage jobMessage = ChartJobMessage.ofId(CHART_ID);
+        jobMessage.setUserId(USER_ID);
+        jobMessage.setGoal("分析用户增长");
+        jobMessage.setChartType("折线图");
+        jobMessage.setInlineData("日期,用户数\n1号,10\n");
+        MessageProperties properties = new MessageProperties();
+        properties.setDeliveryTag(DELIVERY_TAG);
+        Channel channel = Mockito.mock(Channel.class);
+        consumer.receiveMessage(new Message(jobMessage.toBytes(), properties), channel);
+
+        verify(channel).basicAck(DELIVERY_TAG, false);
+        verify(biMessageProducer).releaseUserJob(USER_ID);
+        verify(biQueueScaler).recordConsumed();
+        verify(chartService, never()).buildUserInput(Mockito.any());
+    }
+}
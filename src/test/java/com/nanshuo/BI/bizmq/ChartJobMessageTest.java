@@ -0,0 +1,79 @@
+package com.nanshuo.BI.bizmq;
+
+import com.nanshuo.BI.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChartJobMessageTest {
+
+    private static final String CSV = "日期,用户数\n1号,10\n2号,20\n3号,30\n";
+
+    @Test
+    void inlineRoundTrip() {
+        ChartJobMessage message = ChartJobMessage.ofId(1L);
+        message.setUserId(2L);
+        message.setGoal("分析用户增长");
+        message.setChartType("折线图");
+        message.setInlineData(CSV);
+
+        ChartJobMessage decoded = ChartJobMessage.fromBytes(message.toBytes());
+        assertEquals(ChartJobMessage.DATA_INLINE, decoded.getDataType());
+        assertEquals(1L, decoded.getChartId());
+        assertEquals(2L, decoded.getUserId());
+        assertEquals("分析用户增长", decoded.getGoal());
+        assertEquals("折线图", decoded.getChartType());
+        assertEquals(CSV, decoded.decodeData(decoded.getCompressedData()));
+    }
+
+    @Test
+    void idOnlyAndLegacyMessage() {
+        ChartJobMessage decoded = ChartJobMessage.fromBytes(ChartJobMessage.ofId(3L).toBytes());
+        assertEquals(ChartJobMessage.DATA_NONE, decoded.getDataType());
+        assertEquals(3L, decoded.getChartId());
+        assertNull(decoded.getUserId());
+
+        // 旧版本只有图表 id 字符串
+        ChartJobMessage legacy = ChartJobMessage.fromBytes("42".getBytes(StandardCharsets.UTF_8));
+        assertEquals(42L, legacy.getChartId());
+        assertEquals(ChartJobMessage.DATA_NONE, legacy.getDataType());
+
+        assertThrows(BusinessException.class, () -> ChartJobMessage.fromBytes("abc".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * 数据被篡改或长度字段错误时拒绝
+     */
+    @Test
+    void rejectCorruptedData() {
+        ChartJobMessage message = ChartJobMessage.ofId(1L);
+        message.setInlineData(CSV);
+        ChartJobMessage other = ChartJobMessage.ofId(1L);
+        other.setInlineData(CSV.replace("30", "31"));
+        assertThrows(BusinessException.class, () -> message.decodeData(other.getCompressedData()));
+
+        byte[] bytes = message.toBytes();
+        byte[] truncated = new byte[bytes.length - 5];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        assertThrows(BusinessException.class, () -> ChartJobMessage.fromBytes(truncated));
+    }
+
+    /**
+     * 原始数据长度超过上限时拒绝，不按该长度分配内存
+     */
+    @Test
+    void rejectOversizedRawLength() {
+        ChartJobMessage message = ChartJobMessage.ofId(1L);
+        message.setInlineData(CSV);
+        byte[] bytes = message.toBytes();
+        // 魔数 2 + 版本 1 + 数据类型 1 + chartId 8 + userId 8 + goal 4 + chartType 4 + 摘要 32
+        ByteBuffer.wrap(bytes).putInt(60, Integer.MAX_VALUE);
+        assertThrows(BusinessException.class, () -> ChartJobMessage.fromBytes(bytes));
+
+        message.setRawLength(Integer.MAX_VALUE);
+        assertThrows(BusinessException.class, () -> message.decodeData(message.getCompressedData()));
+    }
+}
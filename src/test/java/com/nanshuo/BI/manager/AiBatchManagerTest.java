@@ -0,0 +1,45 @@
+package com.nanshuo.BI.manager;
+
+import com.nanshuo.BI.common.CommonConstant;
+import com.nanshuo.BI.manager.ai.GenResultParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AiBatchManagerTest {
+
+    private static final String SEPARATOR = CommonConstant.GEN_SEPARATOR;
+
+    @Test
+    void demultiplex() {
+        String content = "好的\n" + SEPARATOR + "\n{option1}\n" + SEPARATOR + "\n结论1\n任务 2：\n"
+                + SEPARATOR + "\n{option2}\n" + SEPARATOR + "\n结论2\n";
+        List<GenResultParser> parsers = AiBatchManager.demultiplex(content, 2);
+        assertNotNull(parsers);
+        assertEquals("{option1}", parsers.get(0).getGenChart());
+        assertEquals("结论1", parsers.get(0).getGenResult());
+        assertEquals("{option2}", parsers.get(1).getGenChart());
+        assertEquals("结论2", parsers.get(1).getGenResult());
+    }
+
+    /**
+     * 段数不符或有任务结果为空时整批退回逐个调用
+     */
+    @Test
+    void demultiplexMismatch() {
+        String content = SEPARATOR + "{option1}" + SEPARATOR + "结论1";
+        assertNull(AiBatchManager.demultiplex(content, 2));
+        assertNull(AiBatchManager.demultiplex(content + SEPARATOR + "{option2}" + SEPARATOR, 2));
+        assertNull(AiBatchManager.demultiplex(null, 1));
+    }
+
+    @Test
+    void buildBatchPrompt() {
+        String prompt = AiBatchManager.buildBatchPrompt(Arrays.asList("分析需求：\nA\n", "分析需求：\nB\n"));
+        assertTrue(prompt.contains("2 个相互独立的任务"));
+        assertTrue(prompt.indexOf("任务 1：\n分析需求：\nA") < prompt.indexOf("任务 2：\n分析需求：\nB"));
+    }
+}
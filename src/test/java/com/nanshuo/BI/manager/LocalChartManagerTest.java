@@ -0,0 +1,67 @@
+package com.nanshuo.BI.manager;
+
+import com.nanshuo.BI.common.CommonConstant;
+import com.nanshuo.BI.config.AiCacheConfig;
+import com.nanshuo.BI.config.LocalChartConfig;
+import com.nanshuo.BI.manager.ai.GenResultParser;
+import com.nanshuo.BI.model.domain.Chart;
+import com.nanshuo.BI.utils.redis.RedisUtils;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class LocalChartManagerTest {
+
+    private static final String SEPARATOR = CommonConstant.GEN_SEPARATOR;
+
+    private static final long MODEL_ID = 1L;
+
+    /**
+     * 本地生成图表配置的结果按原用户输入缓存，相同内容再次提交时直接命中缓存，不再调用 AI
+     */
+    @Test
+    void narrativeCachedUnderUserInput() {
+        AiResultCacheManager aiResultCacheManager = new AiResultCacheManager();
+        ReflectionTestUtils.setField(aiResultCacheManager, "aiCacheConfig", new AiCacheConfig());
+        ReflectionTestUtils.setField(aiResultCacheManager, "redisUtils", Mockito.mock(RedisUtils.class));
+        aiResultCacheManager.init();
+        AiManager aiManager = Mockito.spy(new AiManager());
+        ReflectionTestUtils.setField(aiManager, "aiResultCacheManager", aiResultCacheManager);
+        doReturn(CompletableFuture.completedFuture(SEPARATOR + "\n{}\n" + SEPARATOR + "\n用户数持续增长"))
+                .when(aiManager).doChatAsync(anyLong(), anyString());
+        LocalChartManager localChartManager = new LocalChartManager();
+        ReflectionTestUtils.setField(localChartManager, "localChartConfig", new LocalChartConfig());
+        ReflectionTestUtils.setField(localChartManager, "aiManager", aiManager);
+
+        Chart chart = new Chart();
+        chart.setGoal("分析用户增长");
+        chart.setChartType("折线图");
+        chart.setChartData("月份,用户数\n1月,10\n2月,20\n");
+        String userInput = "分析需求：\n分析用户增长，请使用折线图\n原始数据：\n" + chart.getChartData();
+
+        // 第一次提交：缓存未命中，本地生成图表配置，AI 生成分析结论
+        assertNull(aiManager.getCachedResult(MODEL_ID, userInput));
+        String genChart = localChartManager.generate(chart);
+        assertNotNull(genChart);
+        GenResultParser parser = localChartManager.genNarrative(MODEL_ID, userInput, genChart).join();
+        assertTrue(parser.isComplete());
+        assertEquals(genChart, parser.getGenChart());
+        assertEquals("用户数持续增长", parser.getGenResult());
+
+        // 第二次相同提交：按原用户输入命中缓存（与 ChartController.fillFromCachedResult 相同的查询）
+        GenResultParser cached = GenResultParser.parse(aiManager.getCachedResult(MODEL_ID, userInput));
+        assertTrue(cached.isComplete());
+        assertEquals(genChart, cached.getGenChart());
+        assertEquals("用户数持续增长", cached.getGenResult());
+        verify(aiManager, times(1)).doChatAsync(anyLong(), anyString());
+    }
+}
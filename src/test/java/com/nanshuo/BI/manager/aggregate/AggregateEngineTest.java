@@ -0,0 +1,111 @@
+package com.nanshuo.BI.manager.aggregate;
+
+import com.nanshuo.BI.manager.reduce.AggregateReducer;
+import com.nanshuo.BI.model.enums.chart.AggregateFunctionEnums;
+import com.nanshuo.BI.model.enums.chart.TimeBucketEnums;
+import com.nanshuo.BI.utils.excel.ColumnarDataset;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AggregateEngineTest {
+
+    private static final String CSV = "日期,地区,用户数,转化率\n"
+            + "2024-01-01,华东,10,0.1\n"
+            + "2024-01-15,华北,20,0.3\n"
+            + "2024-02-03,华东,30,\n"
+            + "2024-02-20,华南,40,0.5\n"
+            + "2024-03-01,华东,,0.2\n"
+            + "2024-03-09,西北,5,0.4\n";
+
+    @Test
+    void timeBucket() {
+        ColumnarDataset dataset = ColumnarDataset.fromCsv(CSV);
+        AggregateQuery query = new AggregateQuery();
+        query.setGroupBy(0);
+        query.setTimeBucket(TimeBucketEnums.MONTH);
+        query.getMeasures().add(new AggregateMeasure(2, AggregateFunctionEnums.SUM));
+        query.getMeasures().add(new AggregateMeasure(3, AggregateFunctionEnums.AVG));
+        ColumnarDataset result = AggregateEngine.execute(dataset, query, ForkJoinPool.commonPool(), 1024);
+        assertEquals("日期(按月),用户数(合计),转化率(平均),行数\n"
+                + "2024-01,30,0.2,2\n"
+                + "2024-02,70,0.5,2\n"
+                + "2024-03,5,0.3,2\n", result.toCsv());
+    }
+
+    @Test
+    void groupTopN() {
+        ColumnarDataset dataset = ColumnarDataset.fromCsv(CSV);
+        AggregateQuery query = new AggregateQuery();
+        query.setGroupBy(1);
+        query.setLimit(3);
+        query.getMeasures().add(new AggregateMeasure(2, AggregateFunctionEnums.SUM));
+        query.getMeasures().add(new AggregateMeasure(3, AggregateFunctionEnums.COUNT));
+        ColumnarDataset result = AggregateEngine.execute(dataset, query, ForkJoinPool.commonPool(), 1024);
+        assertEquals("地区,用户数(合计),转化率(计数),行数\n"
+                + "华东,40,2,3\n"
+                + "华南,40,1,1\n"
+                + "其他,25,2,2\n", result.toCsv());
+    }
+
+    /**
+     * 拆分成很多块并行执行的结果与单块执行一致
+     */
+    @Test
+    void parallelChunks() {
+        StringBuilder csv = new StringBuilder("日期,渠道,销量,单价\n");
+        for (int i = 0; i < 5000; i++) {
+            csv.append(LocalDate.of(2024, 1, 1).plusDays(i % 365)).append(",渠道").append(i % 17).append(',')
+                    .append(i % 13 == 0 ? "" : String.valueOf(i % 100)).append(',').append(i % 7).append(".5\n");
+        }
+        ColumnarDataset dataset = ColumnarDataset.fromCsv(csv.toString());
+        for (int groupBy = 0; groupBy < 3; groupBy++) {
+            AggregateQuery query = new AggregateQuery();
+            query.setGroupBy(groupBy);
+            query.setTimeBucket(groupBy == 0 ? TimeBucketEnums.WEEK : null);
+            query.setLimit(groupBy == 0 ? 0 : 10);
+            query.getMeasures().add(new AggregateMeasure(2, AggregateFunctionEnums.SUM));
+            query.getMeasures().add(new AggregateMeasure(3, AggregateFunctionEnums.AVG));
+            String single = AggregateEngine.execute(dataset, query, ForkJoinPool.commonPool(), Integer.MAX_VALUE)
+                    .toCsv();
+            String parallel = AggregateEngine.execute(dataset, query, ForkJoinPool.commonPool(), 37).toCsv();
+            assertEquals(single, parallel);
+        }
+    }
+
+    @Test
+    void plan() {
+        ColumnarDataset dataset = ColumnarDataset.fromCsv(CSV);
+        AggregateQuery query = AggregateReducer.plan(dataset, 3);
+        assertNotNull(query);
+        assertEquals(0, query.getGroupBy());
+        assertEquals(TimeBucketEnums.MONTH, query.getTimeBucket());
+        assertEquals(AggregateFunctionEnums.SUM, query.getMeasures().get(0).getFunction());
+        assertEquals(AggregateFunctionEnums.AVG, query.getMeasures().get(1).getFunction());
+
+        query = AggregateReducer.plan(ColumnarDataset.fromCsv("地区,用户数\n华东,1\n华北,2\n华东,3\n"), 1);
+        assertNotNull(query);
+        assertEquals(0, query.getGroupBy());
+        assertNull(query.getTimeBucket());
+        assertEquals(1, query.getLimit());
+
+        assertNull(AggregateReducer.plan(ColumnarDataset.fromCsv("x,y\n1,2\n3,4\n"), 1));
+    }
+
+    @Test
+    void timeBuckets() {
+        assertEquals(LocalDate.of(2024, 1, 2), TimeBuckets.parse("2024/1/2 10:30"));
+        assertEquals(LocalDate.of(2024, 3, 1), TimeBuckets.parse("2024年3月"));
+        assertEquals("03-05", TimeBuckets.bucket(TimeBuckets.parse("3月5日"), TimeBucketEnums.DAY));
+        assertNull(TimeBuckets.parse("2024-13-01"));
+        assertNull(TimeBuckets.parse("一月"));
+        LocalDate date = LocalDate.of(2024, 5, 16);
+        assertEquals("2024-05-13", TimeBuckets.bucket(date, TimeBucketEnums.WEEK));
+        assertEquals("2024-05", TimeBuckets.bucket(date, TimeBucketEnums.MONTH));
+        assertEquals("2024-Q2", TimeBuckets.bucket(date, TimeBucketEnums.QUARTER));
+        assertEquals("2024", TimeBuckets.bucket(date, TimeBucketEnums.YEAR));
+    }
+}
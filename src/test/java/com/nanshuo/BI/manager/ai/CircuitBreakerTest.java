@@ -0,0 +1,69 @@
+package com.nanshuo.BI.manager.ai;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    /**
+     * 失败率达到阈值后打开，熔断时间过后半开，试探成功后关闭
+     */
+    @Test
+    void openAndRecover() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(10, 4, 0.5, 1000, 0.8, 50, 2);
+        breaker.onResult(10, true);
+        breaker.onResult(10, false);
+        breaker.onResult(10, true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.onResult(10, false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertTrue(breaker.isOpen());
+        assertFalse(breaker.tryAcquire());
+
+        Thread.sleep(60);
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        // 半开状态只放行配置的试探次数
+        assertFalse(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onResult(10, true);
+        breaker.onResult(10, true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    /**
+     * 慢调用比例过高也会打开，半开试探失败重新打开
+     */
+    @Test
+    void openOnSlowCalls() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(10, 5, 0.5, 100, 0.8, 50, 1);
+        for (int i = 0; i < 5; i++) {
+            breaker.onResult(200, true);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Thread.sleep(60);
+        assertTrue(breaker.tryAcquire());
+        breaker.onResult(10, false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2, breaker.getOpenCount());
+    }
+
+    /**
+     * 耗时正常时并发数增加，耗时超过基准的 tolerance 倍或失败时按比例下降
+     */
+    @Test
+    void adaptiveLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 8, 0.5, 2.0, 100);
+        for (int i = 0; i < 10; i++) {
+            limiter.onSample(100, false, limiter.getLimit());
+        }
+        assertEquals(8, limiter.getLimit());
+        limiter.onSample(300, false, 8);
+        assertEquals(4, limiter.getLimit());
+        limiter.onSample(0, true, 4);
+        limiter.onSample(0, true, 2);
+        limiter.onSample(0, true, 1);
+        assertEquals(1, limiter.getLimit());
+    }
+}
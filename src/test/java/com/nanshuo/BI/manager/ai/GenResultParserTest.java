@@ -0,0 +1,52 @@
+package com.nanshuo.BI.manager.ai;
+
+import com.nanshuo.BI.common.CommonConstant;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenResultParserTest {
+
+    private static final String SEPARATOR = CommonConstant.GEN_SEPARATOR;
+
+    /**
+     * 与原来按分隔符 split 的结果一致
+     */
+    @Test
+    void parseFullContent() {
+        GenResultParser parser = GenResultParser.parse("开头" + SEPARATOR + "\n{option}\n" + SEPARATOR + "\n结论\n");
+        assertTrue(parser.isComplete());
+        assertEquals("{option}", parser.getGenChart());
+        assertEquals("结论", parser.getGenResult());
+
+        assertFalse(GenResultParser.parse(SEPARATOR + "{option}").isComplete());
+        assertFalse(GenResultParser.parse(null).isComplete());
+    }
+
+    /**
+     * 逐字符输入（分隔符被拆开），图表配置在分析结论之前回调
+     */
+    @Test
+    void parseStreamingChunks() {
+        String content = SEPARATOR + "{a:【1】}" + SEPARATOR + "结论【【一】" + SEPARATOR + "多余内容";
+        List<String> events = new ArrayList<>();
+        StringBuilder result = new StringBuilder();
+        GenResultParser parser = new GenResultParser(chart -> events.add("chart:" + chart), chunk -> {
+            if (result.length() == 0) {
+                events.add("result");
+            }
+            result.append(chunk);
+        });
+        for (int i = 0; i < content.length(); i++) {
+            parser.feed(content.substring(i, i + 1));
+        }
+        assertEquals("{a:【1】}", parser.getGenChart());
+        assertEquals("结论【【一】", parser.getGenResult());
+        assertEquals("结论【【一】", result.toString());
+        assertEquals("chart:{a:【1】}", events.get(0));
+        assertEquals("result", events.get(1));
+    }
+}
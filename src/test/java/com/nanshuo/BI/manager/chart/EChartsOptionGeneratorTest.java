@@ -0,0 +1,76 @@
+package com.nanshuo.BI.manager.chart;
+
+import com.nanshuo.BI.manager.LocalChartManager;
+import com.nanshuo.BI.manager.ai.GenResultParser;
+import com.nanshuo.BI.model.enums.chart.ChartTypeEnums;
+import com.nanshuo.BI.utils.excel.ColumnarDataset;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EChartsOptionGeneratorTest {
+
+    private static final String CSV = "月份,用户数,收入\n1月,10,1.5\n2月,,2\n3月,30,3.25\n";
+
+    @Test
+    void lineAndBar() {
+        ColumnarDataset dataset = ColumnarDataset.fromCsv(CSV);
+        assertEquals("{\"title\":{\"text\":\"用户增长\"},\"tooltip\":{\"trigger\":\"axis\"},"
+                        + "\"legend\":{\"data\":[\"用户数\",\"收入\"]},"
+                        + "\"xAxis\":{\"type\":\"category\",\"name\":\"月份\",\"data\":[\"1月\",\"2月\",\"3月\"]},"
+                        + "\"yAxis\":{\"type\":\"value\"},"
+                        + "\"series\":[{\"name\":\"用户数\",\"type\":\"line\",\"data\":[10,null,30]},"
+                        + "{\"name\":\"收入\",\"type\":\"line\",\"data\":[1.5,2,3.25]}]}",
+                EChartsOptionGenerator.generate(dataset, ChartTypeEnums.LINE, " 用户增长 ", 5));
+        assertTrue(EChartsOptionGenerator.generate(dataset, ChartTypeEnums.BAR, null, 5)
+                .startsWith("{\"tooltip\":{\"trigger\":\"axis\"}"));
+        // 系列数超出上限
+        assertNull(EChartsOptionGenerator.generate(dataset, ChartTypeEnums.BAR, null, 1));
+    }
+
+    @Test
+    void pie() {
+        ColumnarDataset dataset = ColumnarDataset.fromCsv("地区,销量\n华东,3\n华北,\n华南,1.5\n");
+        assertEquals("{\"tooltip\":{\"trigger\":\"item\"},\"legend\":{\"orient\":\"vertical\",\"left\":\"left\"},"
+                        + "\"series\":[{\"name\":\"销量\",\"type\":\"pie\",\"radius\":\"50%\","
+                        + "\"data\":[{\"name\":\"华东\",\"value\":3},{\"name\":\"华南\",\"value\":1.5}]}]}",
+                EChartsOptionGenerator.generate(dataset, ChartTypeEnums.PIE, "", 5));
+        // 多个数值列、负数不能画成饼图
+        assertNull(EChartsOptionGenerator.generate(ColumnarDataset.fromCsv(CSV), ChartTypeEnums.PIE, null, 5));
+        assertNull(EChartsOptionGenerator.generate(ColumnarDataset.fromCsv("地区,销量\n华东,3\n华北,-1\n"),
+                ChartTypeEnums.PIE, null, 5));
+    }
+
+    /**
+     * 结构不明显时交给 AI
+     */
+    @Test
+    void notObviousShape() {
+        // x 轴取值重复
+        assertNull(generate("月份,用户数\n1月,10\n1月,20\n"));
+        // x 轴有空值
+        assertNull(generate("月份,用户数\n1月,10\n,20\n"));
+        // 两个非数值列
+        assertNull(generate("月份,地区,用户数\n1月,华东,10\n2月,华北,20\n"));
+        // 没有非数值列、没有数值列、没有数据
+        assertNull(generate("x,y\n1,2\n3,4\n"));
+        assertNull(generate("月份,备注\n1月,a\n2月,b\n"));
+        assertNull(generate("月份,用户数\n"));
+    }
+
+    @Test
+    void merge() {
+        GenResultParser parser = LocalChartManager.merge("{\"a\":1}", "【【【【【\n{}\n【【【【【\n用户数持续增长");
+        assertTrue(parser.isComplete());
+        assertEquals("{\"a\":1}", parser.getGenChart());
+        assertEquals("用户数持续增长", parser.getGenResult());
+        // 格式不符时整段作为分析结论
+        assertEquals("用户数持续增长", LocalChartManager.merge("{}", " 用户数持续增长\n").getGenResult());
+        assertFalse(LocalChartManager.merge("{}", "  ").isComplete());
+        assertFalse(LocalChartManager.merge("{}", null).isComplete());
+    }
+
+    private static String generate(String csv) {
+        return EChartsOptionGenerator.generate(ColumnarDataset.fromCsv(csv), ChartTypeEnums.LINE, null, 5);
+    }
+}
@@ -0,0 +1,33 @@
+package com.nanshuo.BI.manager.chart;
+
+import com.nanshuo.BI.model.enums.chart.ChartTypeEnums;
+import com.nanshuo.BI.utils.excel.ColumnarDataset;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EChartsOptionValidatorTest {
+
+    @Test
+    void normalize() {
+        assertEquals("{\"xAxis\":{\"type\":\"category\"},\"series\":[{\"type\":\"line\",\"data\":[1,2]}]}",
+                EChartsOptionValidator.normalize("```json\n{\n  // 折线图\n  xAxis: {type: 'category'},\n"
+                        + "  series: [{type: 'line', data: [1, 2],}],\n}\n```"));
+        assertEquals("{\"series\":{\"type\":\"pie\"}}",
+                EChartsOptionValidator.normalize("const option = {series: {type: \"pie\"}};"));
+        String option = EChartsOptionGenerator.generate(ColumnarDataset.fromCsv("月份,用户数\n1月,10\n2月,20\n"),
+                ChartTypeEnums.BAR, "用户数", 5);
+        assertEquals(option, EChartsOptionValidator.normalize(option));
+    }
+
+    @Test
+    void invalid() {
+        assertNull(EChartsOptionValidator.normalize(null));
+        assertNull(EChartsOptionValidator.normalize(" "));
+        assertNull(EChartsOptionValidator.normalize("无"));
+        assertNull(EChartsOptionValidator.normalize("[{\"series\":[]}]"));
+        assertNull(EChartsOptionValidator.normalize("{\"xAxis\":{}}"));
+        assertNull(EChartsOptionValidator.normalize("{\"series\":[]}"));
+        assertNull(EChartsOptionValidator.normalize("{series: [{label: {formatter: function (p) { return p; }}}]}"));
+    }
+}
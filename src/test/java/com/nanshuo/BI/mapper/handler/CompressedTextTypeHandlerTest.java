@@ -0,0 +1,54 @@
+package com.nanshuo.BI.mapper.handler;
+
+import com.nanshuo.BI.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedTextTypeHandlerTest {
+
+    @Test
+    void roundTrip() {
+        StringBuilder csv = new StringBuilder("日期,地区,销量\n");
+        for (int i = 0; i < 1000; i++) {
+            csv.append("2024-01-").append(i % 28 + 1).append(",华东,").append(i * 7 % 1000).append('\n');
+        }
+        byte[] encoded = CompressedTextTypeHandler.encode(csv.toString());
+        assertTrue(encoded.length < csv.toString().getBytes(StandardCharsets.UTF_8).length / 2);
+        assertEquals(csv.toString(), CompressedTextTypeHandler.decode(encoded));
+
+        // 较小的数据不压缩
+        String small = "日期,用户数\n1号,10\n";
+        assertEquals(small, CompressedTextTypeHandler.decode(CompressedTextTypeHandler.encode(small)));
+        assertEquals("", CompressedTextTypeHandler.decode(CompressedTextTypeHandler.encode("")));
+        assertNull(CompressedTextTypeHandler.decode(null));
+    }
+
+    /**
+     * text 列转换而来的旧数据按文本读取
+     */
+    @Test
+    void legacyText() {
+        String legacy = "日期,用户数\n1号,10\n2号,20\n";
+        assertEquals(legacy, CompressedTextTypeHandler.decode(legacy.getBytes(StandardCharsets.UTF_8)));
+        assertEquals("BC", CompressedTextTypeHandler.decode("BC".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * 格式头中的原始长度超过上限时拒绝，不按该长度分配内存
+     */
+    @Test
+    void rejectOversizedRawLength() {
+        StringBuilder csv = new StringBuilder("日期,地区,销量\n");
+        for (int i = 0; i < 1000; i++) {
+            csv.append("2024-01-").append(i % 28 + 1).append(",华东,").append(i * 7 % 1000).append('\n');
+        }
+        byte[] encoded = CompressedTextTypeHandler.encode(csv.toString());
+        // 魔数 2 + 版本 1 + 压缩方式 1 之后是原始长度
+        ByteBuffer.wrap(encoded).putInt(4, Integer.MAX_VALUE);
+        assertThrows(BusinessException.class, () -> CompressedTextTypeHandler.decode(encoded));
+    }
+}
@@ -0,0 +1,213 @@
+package com.nanshuo.BI.utils;
+
+import cn.hutool.core.collection.CollUtil;
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.support.ExcelTypeEnum;
+import com.nanshuo.BI.model.enums.chart.ColumnTypeEnums;
+import com.nanshuo.BI.utils.excel.CsvMeta;
+import com.nanshuo.BI.utils.excel.CsvTable;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.ObjectUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.ResourceUtils;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * ExcelUtils 测试
+ * <p>
+ * 旧的整表读取实现与流式实现的耗时和峰值堆占用对比默认跳过，需要加参数运行：
+ * {@code mvn test -Dtest=ExcelUtilsTest -Dexcel.bench=true -Dexcel.bench.rows=1000000}
+ *
+ * @author nanshuo
+ * @date 2026/10/18 10:40:12
+ */
+@Slf4j
+class ExcelUtilsTest {
+
+    private static final int BENCH_ROWS = Integer.getInteger("excel.bench.rows", 100000);
+
+    @Test
+    void excelToCsv() throws Exception {
+        File file = ResourceUtils.getFile("classpath:test_excel.xlsx");
+        StringWriter writer = new StringWriter();
+        CsvMeta csvMeta;
+        try (InputStream inputStream = new FileInputStream(file)) {
+            csvMeta = ExcelUtils.excelToCsv(inputStream, writer);
+        }
+        String[] lines = writer.toString().split("\n");
+        assertEquals(csvMeta.getRowCount() + 1, lines.length);
+        assertEquals(csvMeta.getHeaders().size(), csvMeta.getColumnTypes().size());
+        // 输出可以按 CSV 解析回来，表头、行数与统计信息一致
+        CsvTable table = CsvTable.parse(writer.toString());
+        assertEquals(csvMeta.getHeaders(), table.getHeaders());
+        assertEquals(csvMeta.getRowCount(), table.getRowCount());
+    }
+
+    @Test
+    void keepColumnPositions() throws Exception {
+        File file = Files.createTempFile("blank_cell_excel", ".xlsx").toFile();
+        file.deleteOnExit();
+        List<List<Object>> rows = new ArrayList<>();
+        rows.add(Arrays.asList("1号", null, "a,b"));
+        rows.add(Arrays.asList("2号", 20, "say \"hi\""));
+        EasyExcel.write(file)
+                .head(Arrays.asList(Collections.singletonList("日期"), Collections.singletonList("用户数"),
+                        Collections.singletonList("备注")))
+                .sheet()
+                .doWrite(rows);
+        StringWriter writer = new StringWriter();
+        CsvMeta csvMeta;
+        try (InputStream inputStream = new FileInputStream(file)) {
+            csvMeta = ExcelUtils.excelToCsv(inputStream, writer);
+        }
+        assertEquals("日期,用户数,备注\n1号,,\"a,b\"\n2号,20,\"say \"\"hi\"\"\"\n", writer.toString());
+        assertEquals(Arrays.asList(ColumnTypeEnums.TEXT, ColumnTypeEnums.NUMERIC, ColumnTypeEnums.TEXT),
+                csvMeta.getColumnTypes());
+    }
+
+    @Test
+    void benchTestWorkbook() throws Exception {
+        Assumptions.assumeTrue(Boolean.getBoolean("excel.bench"), "未开启对比测试（-Dexcel.bench=true）");
+        bench("test_excel.xlsx", ResourceUtils.getFile("classpath:test_excel.xlsx"));
+    }
+
+    @Test
+    void benchSyntheticWorkbook() throws Exception {
+        Assumptions.assumeTrue(Boolean.getBoolean("excel.bench"), "未开启对比测试（-Dexcel.bench=true）");
+        File file = Files.createTempFile("bench_excel", ".xlsx").toFile();
+        file.deleteOnExit();
+        List<List<Object>> rows = new ArrayList<>(BENCH_ROWS);
+        for (int i = 0; i < BENCH_ROWS; i++) {
+            rows.add(Arrays.asList("2024-01-" + (i % 28 + 1), "用户" + i, i, i * 0.5));
+        }
+        EasyExcel.write(file)
+                .head(Arrays.asList(Collections.singletonList("日期"), Collections.singletonList("名称"),
+                        Collections.singletonList("用户数"), Collections.singletonList("增长率")))
+                .sheet()
+                .doWrite(rows);
+        rows = null;
+        bench(BENCH_ROWS + " 行合成表格", file);
+    }
+
+    private void bench(String name, File file) throws Exception {
+        Result legacy = measure(() -> {
+            try (InputStream inputStream = new FileInputStream(file)) {
+                return (long) legacyExcelToCsv(inputStream).length();
+            }
+        });
+        Result streaming = measure(() -> {
+            try (InputStream inputStream = new FileInputStream(file)) {
+                CountingWriter writer = new CountingWriter();
+                ExcelUtils.excelToCsv(inputStream, writer);
+                return writer.count;
+            }
+        });
+        log.info("[{}] 整表读取：耗时 {} ms，峰值堆 {} MB，{} 字符；流式：耗时 {} ms，峰值堆 {} MB，{} 字符",
+                name, legacy.costMs, legacy.peakHeapMb(), legacy.chars, streaming.costMs, streaming.peakHeapMb(),
+                streaming.chars);
+    }
+
+    /**
+     * 旧实现：doReadSync 读出整表后再拼接（作为对照）
+     */
+    private String legacyExcelToCsv(InputStream inputStream) {
+        List<Map<Integer, String>> list = EasyExcel.read(inputStream)
+                .excelType(ExcelTypeEnum.XLSX)
+                .sheet()
+                .headRowNumber(0)
+                .doReadSync();
+        if (CollUtil.isEmpty(list)) {
+            return "";
+        }
+        StringBuilder stringBuilder = new StringBuilder();
+        for (Map<Integer, String> dataMap : list) {
+            List<String> dataList = dataMap.values().stream().filter(ObjectUtils::isNotEmpty).collect(Collectors.toList());
+            stringBuilder.append(StringUtils.join(dataList, ",")).append("\n");
+        }
+        return stringBuilder.toString();
+    }
+
+    private Result measure(Callable<Long> task) throws Exception {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        long baseline = runtime.totalMemory() - runtime.freeMemory();
+        HeapSampler sampler = new HeapSampler();
+        sampler.start();
+        long start = System.nanoTime();
+        long chars;
+        try {
+            chars = task.call();
+        } finally {
+            sampler.running = false;
+            sampler.join();
+        }
+        Result result = new Result();
+        result.chars = chars;
+        result.costMs = (System.nanoTime() - start) / 1000000;
+        result.peakHeap = Math.max(0, sampler.peak - baseline);
+        return result;
+    }
+
+    private static class Result {
+        long chars;
+        long costMs;
+        long peakHeap;
+
+        long peakHeapMb() {
+            return peakHeap / 1024 / 1024;
+        }
+    }
+
+    private static class HeapSampler extends Thread {
+        volatile boolean running = true;
+        volatile long peak;
+
+        HeapSampler() {
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            Runtime runtime = Runtime.getRuntime();
+            while (running) {
+                peak = Math.max(peak, runtime.totalMemory() - runtime.freeMemory());
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static class CountingWriter extends Writer {
+        long count;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void write(String str) {
+            count += str.length();
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.nanshuo.BI.utils.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MonitoredThreadPoolExecutorTest {
+
+    /**
+     * 队列满后拒绝并计数，调大后可以继续提交
+     */
+    @Test
+    void rejectAndResize() throws InterruptedException {
+        MonitoredThreadPoolExecutor executor = new MonitoredThreadPoolExecutor("test", 1, 1, 60, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        try {
+            executor.execute(blocking);
+            executor.execute(blocking);
+            assertThrows(RejectedExecutionException.class, () -> executor.execute(blocking));
+            assertEquals(1L, executor.getStats().get("rejectedCount"));
+
+            executor.resize(2, 4, 2);
+            executor.execute(blocking);
+            executor.execute(blocking);
+            assertEquals(4, executor.getMaximumPoolSize());
+            assertEquals(2, executor.getQueueCapacity());
+            assertThrows(RuntimeException.class, () -> executor.resize(4, 2, 1));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.nanshuo.BI.utils.concurrent;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 虚拟线程 vs 业务线程池压测：模拟 5 ~ 30 秒的 AI 延迟，比较吞吐量和内存
+ * <p>
+ * 耗时较长，默认跳过，需要 JDK 21+ 并加参数运行：
+ * {@code mvn test -Dtest=VirtualThreadLoadTest -Dload.test=true -Dload.test.jobs=2000 -Dload.test.latency-scale=1.0}
+ */
+@Slf4j
+class VirtualThreadLoadTest {
+
+    private static final int JOBS = Integer.getInteger("load.test.jobs", 2000);
+
+    /**
+     * 延迟缩放比例，1.0 即 5 ~ 30 秒
+     */
+    private static final double LATENCY_SCALE = Double.parseDouble(System.getProperty("load.test.latency-scale", "1.0"));
+
+    @Test
+    void compareThroughputAndMemory() throws InterruptedException {
+        Assumptions.assumeTrue(Boolean.getBoolean("load.test"), "未开启压测（-Dload.test=true）");
+        Assumptions.assumeTrue(VirtualThreads.isAvailable(), "当前 JDK 不支持虚拟线程");
+
+        // 与默认配置（bi.executor）一致，队列足够大，保证所有任务都能提交
+        MonitoredThreadPoolExecutor platform = new MonitoredThreadPoolExecutor("load-platform", 8, 32, 60, JOBS);
+        Result platformResult = run(platform);
+        platform.shutdown();
+
+        SemaphoreBoundedExecutor virtual = new SemaphoreBoundedExecutor(
+                VirtualThreads.newVirtualThreadPerTaskExecutor(), JOBS);
+        Result virtualResult = run(virtual);
+        virtual.shutdown();
+
+        log.info("任务数 {}，AI 延迟 {} ~ {} ms", JOBS, (long) (5000 * LATENCY_SCALE), (long) (30000 * LATENCY_SCALE));
+        log.info("线程池：耗时 {} ms，吞吐 {} 个/秒，峰值堆内存 {} MB，峰值线程数 {}", platformResult.elapsedMs,
+                platformResult.throughput(), platformResult.peakHeapMb, platformResult.peakThreads);
+        log.info("虚拟线程：耗时 {} ms，吞吐 {} 个/秒，峰值堆内存 {} MB，峰值平台线程数 {}", virtualResult.elapsedMs,
+                virtualResult.throughput(), virtualResult.peakHeapMb, virtualResult.peakThreads);
+        assertTrue(virtualResult.elapsedMs < platformResult.elapsedMs);
+    }
+
+    /**
+     * 提交全部任务并等待完成：读库 -> 等待 AI -> 写库
+     */
+    private Result run(Executor executor) throws InterruptedException {
+        Random random = new Random(42);
+        CountDownLatch latch = new CountDownLatch(JOBS);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong peakHeap = new AtomicLong();
+        AtomicLong peakThreads = new AtomicLong();
+        Thread sampler = new Thread(() -> {
+            Runtime runtime = Runtime.getRuntime();
+            while (running.get()) {
+                peakHeap.accumulateAndGet(runtime.totalMemory() - runtime.freeMemory(), Math::max);
+                peakThreads.accumulateAndGet(Thread.activeCount(), Math::max);
+                sleep(50);
+            }
+        });
+        sampler.setDaemon(true);
+        sampler.start();
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < JOBS; i++) {
+            long aiLatency = (long) ((5000 + random.nextInt(25001)) * LATENCY_SCALE);
+            executor.execute(() -> {
+                try {
+                    sleep(5);
+                    sleep(aiLatency);
+                    sleep(5);
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await(1, TimeUnit.HOURS);
+        Result result = new Result();
+        result.elapsedMs = System.currentTimeMillis() - start;
+        running.set(false);
+        sampler.join();
+        result.peakHeapMb = peakHeap.get() / 1024 / 1024;
+        result.peakThreads = peakThreads.get();
+        return result;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Result {
+
+        private long elapsedMs;
+
+        private long peakHeapMb;
+
+        private long peakThreads;
+
+        private long throughput() {
+            return JOBS * 1000L / Math.max(1, elapsedMs);
+        }
+    }
+}
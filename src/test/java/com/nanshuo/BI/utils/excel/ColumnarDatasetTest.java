@@ -0,0 +1,106 @@
+package com.nanshuo.BI.utils.excel;
+
+import com.nanshuo.BI.model.enums.chart.ColumnTypeEnums;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarDatasetTest {
+
+    private static final String CSV = "日期,用户数,金额,增长率,备注\n"
+            + "1号,10,1.5,12%,\"a,b\"\n"
+            + "2号,,2.25,8%,\n"
+            + "3号,30,3,\"1,234\",\"say \"\"hi\"\"\"\n"
+            + "4号,-40,,3.0,a\n";
+
+    @Test
+    void csvRoundTrip() {
+        ColumnarDataset dataset = ColumnarDataset.fromCsv(CSV);
+        assertEquals(4, dataset.getRowCount());
+        assertEquals(5, dataset.getColumnCount());
+        assertEquals(CsvTable.parse(CSV).toCsv(), dataset.toCsv());
+        assertEquals(CsvTable.parse(CSV).getColumnTypes(), dataset.getColumnTypes());
+
+        assertEquals(ColumnarDataset.ENCODING_DICTIONARY, dataset.getColumn(0).getEncoding());
+        assertEquals(ColumnarDataset.ENCODING_LONG, dataset.getColumn(1).getEncoding());
+        assertEquals(ColumnarDataset.ENCODING_DOUBLE, dataset.getColumn(2).getEncoding());
+        // 不能原样还原的数值按字典编码，但仍可按数值读取
+        assertEquals(ColumnarDataset.ENCODING_DICTIONARY, dataset.getColumn(3).getEncoding());
+        assertEquals(1234, dataset.getDouble(3, 2));
+        assertEquals("3.0", dataset.getText(3, 3));
+
+        assertTrue(dataset.isNull(1, 1));
+        assertEquals("", dataset.getText(1, 1));
+        assertTrue(Double.isNaN(dataset.getDouble(1, 1)));
+        assertEquals(-40, dataset.getDouble(1, 3));
+        assertEquals("3", dataset.getText(2, 2));
+    }
+
+    @Test
+    void shortAndWideRows() {
+        String csv = "a,b\n1\n2,3,x\n";
+        ColumnarDataset dataset = ColumnarDataset.fromCsv(csv);
+        assertEquals(Arrays.asList("a", "b", ""), dataset.getHeaders());
+        assertEquals(CsvTable.parse(csv).toCsv(), dataset.toCsv());
+        assertTrue(dataset.isNull(2, 0));
+    }
+
+    @Test
+    void selectAndStats() {
+        ColumnarDataset dataset = ColumnarDataset.fromCsv(CSV);
+        ColumnarDataset selected = dataset.select(new int[]{0, 3});
+        assertEquals("日期,用户数,金额,增长率,备注\n1号,10,1.5,12%,\"a,b\"\n4号,-40,,3.0,a\n", selected.toCsv());
+        assertEquals(dataset.slice(1, 3).toCsv(), ColumnarDataset.fromCsv(CSV).select(new int[]{1, 2}).toCsv());
+
+        ColumnStats stats = dataset.getStats(1);
+        assertEquals(3, stats.getCount());
+        assertEquals(1, stats.getNullCount());
+        assertEquals(-40.0, stats.getMin());
+        assertEquals(30.0, stats.getMax());
+        assertEquals(0.0, stats.getSum());
+        assertNull(stats.getDistinctCount());
+
+        ColumnStats textStats = dataset.getStats(4);
+        assertEquals(3, textStats.getDistinctCount());
+        assertEquals(0, textStats.getNumericCount());
+        assertNull(textStats.getMean());
+    }
+
+    /**
+     * 整数列出现小数时转为 double，出现文本时转为字典，之前的值保持不变
+     */
+    @Test
+    void downgradeEncoding() {
+        ColumnarDataset dataset = ColumnarDataset.fromCsv("v\n1\n2.5\n1000000000000000\n");
+        assertEquals(ColumnarDataset.ENCODING_DOUBLE, dataset.getColumn(0).getEncoding());
+        assertEquals("v\n1\n2.5\n1000000000000000\n", dataset.toCsv());
+
+        dataset = ColumnarDataset.fromCsv("v\n-1\n0.0001\n\n9223372036854775807x\n");
+        assertEquals(ColumnarDataset.ENCODING_DICTIONARY, dataset.getColumn(0).getEncoding());
+        assertEquals("v\n-1\n0.0001\n\n9223372036854775807x\n", dataset.toCsv());
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        StringBuilder csv = new StringBuilder("日期,地区,销量,单价\n");
+        for (int i = 0; i < 1000; i++) {
+            csv.append("2024-01-").append(i % 28 + 1).append(",华东,").append(i * 7 % 1000).append(',')
+                    .append(i % 10 == 0 ? "" : (i % 100) + ".5").append('\n');
+        }
+        ColumnarDataset dataset = ColumnarDataset.fromCsv(csv.toString());
+        byte[] bytes = dataset.toBytes();
+        assertTrue(bytes.length < csv.toString().getBytes(StandardCharsets.UTF_8).length);
+        ColumnarDataset decoded = ColumnarDataset.fromBytes(bytes);
+        assertEquals(csv.toString(), decoded.toCsv());
+        assertEquals(dataset.getColumnTypes(), decoded.getColumnTypes());
+        assertEquals(ColumnTypeEnums.NUMERIC, decoded.getColumnTypes().get(2));
+        assertEquals(dataset.contentHash(), decoded.contentHash());
+
+        ColumnarDataset empty = ColumnarDataset.fromBytes(ColumnarDataset.fromCsv("a,b\n").toBytes());
+        assertEquals(0, empty.getRowCount());
+        assertEquals("a,b\n", empty.toCsv());
+    }
+}